@@ -43,6 +43,7 @@ import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.impl.status.InlineProgressIndicator;
+import com.intellij.util.concurrency.SequentialTaskExecutor;
 import com.intellij.util.ui.UIUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -51,12 +52,18 @@ import javax.swing.*;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 
 public class HprofEditor extends CaptureEditor {
   @NotNull private static final Logger LOG = Logger.getInstance(HprofEditor.class);
   @Nullable private HprofView myView;
   @Nullable private Snapshot mySnapshot;
+  /**
+   * Runs the analyzer tasks. {@link Snapshot} does not support concurrent readers, so the tasks run one at a time, but on
+   * pooled threads instead of a dedicated thread per analysis.
+   */
+  @NotNull private final ExecutorService myAnalysisExecutor =
+    SequentialTaskExecutor.createSequentialApplicationPoolExecutor("HprofEditor Analysis");
   private boolean myIsValid = true;
 
   public HprofEditor(@NotNull final Project project, @NotNull final VirtualFile file) {
@@ -224,8 +231,8 @@ public class HprofEditor extends CaptureEditor {
     MemoryAnalyzer memoryAnalyzer = new MemoryAnalyzer();
     assert memoryAnalyzer.accept(captureGroup);
 
-    // TODO change this back to PooledThreadExecutor.INSTANCE once multi-reader problem has been solved in Snapshot
-    return memoryAnalyzer.analyze(captureGroup, listeners, tasks, EdtExecutor.INSTANCE, Executors.newSingleThreadExecutor());
+    // TODO run the tasks concurrently on PooledThreadExecutor.INSTANCE once multi-reader problem has been solved in Snapshot
+    return memoryAnalyzer.analyze(captureGroup, listeners, tasks, EdtExecutor.INSTANCE, myAnalysisExecutor);
   }
 
   private static void updateIndicator(@NotNull final InlineProgressIndicator indicator, final double fraction, @NotNull final String text) {
@@ -17,51 +17,87 @@ package com.android.tools.idea.editors.layoutInspector;
 
 import com.android.layoutinspector.LayoutInspectorCaptureOptions;
 import com.android.layoutinspector.model.ViewNode;
+import com.google.common.io.ByteStreams;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.io.*;
 
+/**
+ * The contents of a layout inspector capture file. The view hierarchy is parsed when the file is opened, while the preview
+ * image, which makes up most of the file, is only read and decoded the first time it is requested.
+ */
 public class LayoutFileData {
-  @Nullable private final BufferedImage myBufferedImage;
+  @NotNull private final VirtualFile myFile;
   @Nullable private final ViewNode myNode;
+  @Nullable private BufferedImage myBufferedImage;
+  private boolean myPreviewRead;
 
   public LayoutFileData(@NotNull VirtualFile file) throws IOException {
-    byte[] previewBytes;
+    myFile = file;
 
-    ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(file.contentsToByteArray()));
+    try (ObjectInputStream input = openCapture(file)) {
+      // View node
+      byte[] nodeBytes = new byte[input.readInt()];
+      input.readFully(nodeBytes);
+      myNode = ViewNode.parseFlatString(nodeBytes);
+    }
+    if (getNode() == null) {
+      throw new IOException("Error parsing view node");
+    }
+  }
 
+  /**
+   * Opens a capture file and reads its options, leaving the stream at the view node.
+   */
+  @NotNull
+  private static ObjectInputStream openCapture(@NotNull VirtualFile file) throws IOException {
+    InputStream stream = new BufferedInputStream(file.getInputStream());
     try {
+      ObjectInputStream input = new ObjectInputStream(stream);
+
       // Parse options
       LayoutInspectorCaptureOptions options = new LayoutInspectorCaptureOptions();
       options.parse(input.readUTF());
+      return input;
+    }
+    catch (IOException | RuntimeException e) {
+      stream.close();
+      throw e;
+    }
+  }
 
-      // Parse view node
-      byte[] nodeBytes = new byte[input.readInt()];
-      input.readFully(nodeBytes);
-      myNode = ViewNode.parseFlatString(nodeBytes);
-      if (getNode() == null) {
-        throw new IOException("Error parsing view node");
+  @Nullable
+  private static BufferedImage readPreview(@NotNull VirtualFile file) {
+    try (ObjectInputStream input = openCapture(file)) {
+      int nodeLength = input.readInt();
+      if (input.skipBytes(nodeLength) != nodeLength) {
+        throw new EOFException("Truncated view node");
       }
 
-      // Preview image
-      previewBytes = new byte[input.readInt()];
-      input.readFully(previewBytes);
+      // Preview image, decoded straight from the file
+      int previewLength = input.readInt();
+      return ImageIO.read(ByteStreams.limit(input, previewLength));
     }
-    finally {
-      input.close();
+    catch (IOException e) {
+      Logger.getInstance(LayoutFileData.class).warn(e);
+      return null;
     }
-
-    myBufferedImage = ImageIO.read(new ByteArrayInputStream(previewBytes));
   }
 
+  /**
+   * Returns the preview image, reading it from the capture file the first time it is requested.
+   */
   @Nullable
-  public BufferedImage getBufferedImage() {
+  public synchronized BufferedImage getBufferedImage() {
+    if (!myPreviewRead) {
+      myBufferedImage = readPreview(myFile);
+      myPreviewRead = true;
+    }
     return myBufferedImage;
   }
 
@@ -96,6 +96,8 @@ public class LayoutInspectorCaptureTask extends Task.Backgroundable {
     CaptureService service = CaptureService.getInstance(myProject);
     try {
       Capture capture = service.createCapture(LayoutInspectorCaptureType.class, myData, service.getSuggestedName(myClient));
+      // The editor reads the capture back from the file, don't keep a second copy of it around.
+      myData = null;
       final VirtualFile file = capture.getFile();
       file.refresh(true, false, () -> UIUtil.invokeLaterIfNeeded(() -> {
         OpenFileDescriptor descriptor = new OpenFileDescriptor(myProject, file);
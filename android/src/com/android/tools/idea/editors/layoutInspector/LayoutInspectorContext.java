@@ -87,6 +87,9 @@ public class LayoutInspectorContext implements Disposable, DataProvider, ViewNod
   private ClientWindow myWindow;
   @Nullable
   private ViewNode myRoot;
+  // The capture whose preview has not been requested yet, see getBufferedImage()
+  @Nullable
+  private LayoutFileData myPendingPreview;
   @Nullable
   private BufferedImage myBufferedImage;
   @NotNull
@@ -122,7 +125,7 @@ public class LayoutInspectorContext implements Disposable, DataProvider, ViewNod
 
   public LayoutInspectorContext(@NotNull LayoutFileData layoutParser,@NotNull Disposable parentDisposable) {
     myRoot = layoutParser.getNode();
-    myBufferedImage = layoutParser.getBufferedImage();
+    myPendingPreview = layoutParser;
 
     myNodeTree = createNodeTree(getRoot());
 
@@ -282,8 +285,15 @@ public class LayoutInspectorContext implements Disposable, DataProvider, ViewNod
     return myRoot;
   }
 
+  /**
+   * Returns the preview image. The preview of the capture is only read from its file when it is first shown.
+   */
   @Nullable
   public BufferedImage getBufferedImage() {
+    if (myPendingPreview != null) {
+      myBufferedImage = myPendingPreview.getBufferedImage();
+      myPendingPreview = null;
+    }
     return myBufferedImage;
   }
 
@@ -459,6 +469,7 @@ public class LayoutInspectorContext implements Disposable, DataProvider, ViewNod
 
     try {
       myBufferedImage = ImageIO.read(new ByteArrayInputStream(bytes));
+      myPendingPreview = null;
     }
     catch (IOException e) {
       getLogger().warn(e);
@@ -61,7 +61,7 @@ public class LayoutInspectorPanel extends JPanel implements DataProvider, ImageC
     super(new BorderLayout());
     setOpaque(true);
 
-    myPreview = new ViewNodeActiveDisplay(context.getRoot(), context.getBufferedImage());
+    myPreview = new ViewNodeActiveDisplay(context.getRoot(), context::getBufferedImage);
     myPreview.addViewNodeActiveDisplayListener(context);
 
     add(getActionPanel(), BorderLayout.NORTH);
@@ -34,6 +34,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * A component to display a {@link ViewNode} with display boxes.
@@ -56,6 +57,9 @@ public class ViewNodeActiveDisplay extends JComponent {
   private ViewNode mRoot;
   @Nullable
   private Image mPreview;
+  // Provides the preview when it is first painted, so that it is only loaded once it is shown
+  @Nullable
+  private Supplier<? extends Image> mPreviewSupplier;
 
   private final List<ViewNodeActiveDisplayListener> mListeners = Lists.newArrayList();
 
@@ -81,9 +85,9 @@ public class ViewNodeActiveDisplay extends JComponent {
   // flag to tell next render to update bound boxes
   private boolean updateBounds = false;
 
-  public ViewNodeActiveDisplay(@NotNull ViewNode root, @Nullable Image preview) {
+  public ViewNodeActiveDisplay(@NotNull ViewNode root, @NotNull Supplier<? extends Image> preview) {
     mRoot = root;
-    mPreview = preview;
+    mPreviewSupplier = preview;
 
     MyMouseAdapter adapter = new MyMouseAdapter();
     addMouseListener(adapter);
@@ -178,6 +182,10 @@ public class ViewNodeActiveDisplay extends JComponent {
 
   @Nullable
   public Image getPreview() {
+    if (mPreviewSupplier != null) {
+      mPreview = mPreviewSupplier.get();
+      mPreviewSupplier = null;
+    }
     return mPreview;
   }
 
@@ -214,7 +222,8 @@ public class ViewNodeActiveDisplay extends JComponent {
     // move the coordinate so we draw in the center of the canvas instead of top left.
     g.translate(mDrawShiftX, mDrawShiftY);
 
-    if (mPreview != null) {
+    Image preview = getPreview();
+    if (preview != null) {
       RenderingHints oldHints = g.getRenderingHints();
       g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
       if (Float.compare(mZoomFactor, 1.0f) < 0) {
@@ -225,11 +234,11 @@ public class ViewNodeActiveDisplay extends JComponent {
         g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
       }
-      g.drawImage(mPreview, 0, 0, mRoot.previewBox.width, mRoot.previewBox.height,
-                  0, 0, mPreview.getWidth(null), mPreview.getHeight(null), null);
+      g.drawImage(preview, 0, 0, mRoot.previewBox.width, mRoot.previewBox.height,
+                  0, 0, preview.getWidth(null), preview.getHeight(null), null);
 
       if (isGridVisible() && mZoomFactor >= SHOW_GRID_LEVEL) {
-        paintGrid(g, mPreview);
+        paintGrid(g, preview);
       }
 
       drawOverlay(g);
@@ -410,6 +419,7 @@ public class ViewNodeActiveDisplay extends JComponent {
 
   public void setPreview(@NotNull BufferedImage preview, ViewNode root) {
     mPreview = preview;
+    mPreviewSupplier = null;
     mRoot = root;
     updateBounds = true;
     repaint();
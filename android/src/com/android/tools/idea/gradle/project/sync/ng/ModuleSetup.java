@@ -177,7 +177,8 @@ abstract class ModuleSetup {
 
       ModuleFinder moduleFinder = myModuleFinderFactory.create(myProject);
 
-      JobLauncher.getInstance().invokeConcurrentlyUnderProgress(modules, indicator, true /* fail fast */, module -> {
+      // ModuleFinder is not thread-safe: register the modules sequentially, it is cheap compared to decoding their models.
+      for (Module module : modules) {
         GradleFacet gradleFacet = GradleFacet.getInstance(module);
         if (gradleFacet != null) {
           String gradlePath = gradleFacet.getConfiguration().GRADLE_PROJECT_PATH;
@@ -186,8 +187,10 @@ abstract class ModuleSetup {
             gradleFacets.add(gradleFacet);
           }
         }
-        return true;
-      });
+      }
+
+      // Module models are deserialized lazily from the cache file; decode them all concurrently up front.
+      projectModels.loadAllModules(indicator);
 
       for (GradleFacet gradleFacet : gradleFacets) {
         String gradlePath = gradleFacet.getConfiguration().GRADLE_PROJECT_PATH;
@@ -245,7 +248,7 @@ abstract class ModuleSetup {
       if (globalLibraryMap != null) {
         myDependenciesFactory.setUpGlobalLibraryMap(globalLibraryMap);
       }
-      createAndSetUpModules(projectModels, cache);
+      createAndSetUpModules(projectModels, cache, indicator);
       myProjectDataNodeSetup.setupProjectDataNode(projectModels, myProject);
       myAndroidModuleProcessor.processAndroidModels(myAndroidModules);
       myProjectCleanup.cleanUpProject(myProject, myModelsProvider, indicator);
@@ -261,7 +264,9 @@ abstract class ModuleSetup {
     // TODO(alruiz): reconcile with https://github.com/JetBrains/intellij-community/commit/6d425f7
     private static final String ROOT_PROJECT_PATH_KEY = "external.root.project.path";
 
-    private void createAndSetUpModules(@NotNull SyncProjectModels projectModels, @NotNull CachedProjectModels cache) {
+    private void createAndSetUpModules(@NotNull SyncProjectModels projectModels,
+                                       @NotNull CachedProjectModels cache,
+                                       @NotNull ProgressIndicator indicator) {
       populateModuleBuildFolders(projectModels);
       List<ModuleSetupInfo> moduleSetupInfos = new ArrayList<>();
 
@@ -286,8 +291,21 @@ abstract class ModuleSetup {
         }
       }
 
-      for (ModuleSetupInfo moduleSetupInfo : moduleSetupInfos) {
-        setUpModule(moduleSetupInfo, moduleFinder);
+      // Finding the models of each module and selecting its variant only read the models fetched from Gradle, so they are done
+      // concurrently. The IDE models are created while applying the plans, sequentially and in project order, because the factories
+      // they are created with (e.g. IdeDependenciesFactory, which caches libraries across modules) are not thread-safe.
+      ModuleSetupPlan[] plans = new ModuleSetupPlan[moduleSetupInfos.size()];
+      List<Integer> indices = new ArrayList<>(moduleSetupInfos.size());
+      for (int i = 0; i < moduleSetupInfos.size(); i++) {
+        indices.add(i);
+      }
+      JobLauncher.getInstance().invokeConcurrentlyUnderProgress(indices, indicator, true /* fail fast */, index -> {
+        plans[index] = createSetupPlan(moduleSetupInfos.get(index));
+        return true;
+      });
+
+      for (ModuleSetupPlan plan : plans) {
+        applySetupPlan(plan, moduleFinder);
       }
     }
 
@@ -314,22 +332,56 @@ abstract class ModuleSetup {
       }
     }
 
-    private void setUpModule(@NotNull ModuleSetupInfo setupInfo, @NotNull ModuleFinder moduleFinder) {
+    @NotNull
+    private ModuleSetupPlan createSetupPlan(@NotNull ModuleSetupInfo setupInfo) {
       Module module = setupInfo.module;
       GradleModuleModels moduleModels = setupInfo.moduleModels;
-      CachedModuleModels cachedModels = setupInfo.cachedModels;
-
-      module.putUserData(MODULE_GRADLE_MODELS_KEY, moduleModels);
 
       File moduleRootFolderPath = findModuleRootFolderPath(module);
       assert moduleRootFolderPath != null;
 
-      ModuleSetupContext context = myModuleSetupFactory.create(module, myModelsProvider, moduleFinder, moduleModels);
-
+      GradleProject gradleProject = moduleModels.findModel(GradleProject.class);
       AndroidProject androidProject = moduleModels.findModel(AndroidProject.class);
       if (androidProject != null) {
-        AndroidModuleModel androidModel = createAndroidModel(module, androidProject);
-        if (androidModel != null) {
+        Variant variantToSelect = myVariantSelector.findVariantToSelect(androidProject);
+        if (variantToSelect != null) {
+          return new ModuleSetupPlan(setupInfo, ModuleSetupPlan.Kind.ANDROID, moduleRootFolderPath, gradleProject, androidProject,
+                                     variantToSelect.getName());
+        }
+        // If an Android project does not have variants, it would be impossible to build. This is a possible but invalid use case.
+        // For now we are going to treat this case as a Java library module, because everywhere in the IDE (e.g. run configurations,
+        // editors, test support, variants tool window, project building, etc.) we have the assumption that there is at least one variant
+        // per Android project, and changing that in the code base is too risky, for very little benefit.
+        // See https://code.google.com/p/android/issues/detail?id=170722
+        assert gradleProject != null;
+        return new ModuleSetupPlan(setupInfo, ModuleSetupPlan.Kind.ANDROID_WITHOUT_VARIANTS, moduleRootFolderPath, gradleProject,
+                                   androidProject, null);
+      }
+
+      if (gradleProject != null && moduleModels.findModel(JavaProject.class) != null) {
+        return new ModuleSetupPlan(setupInfo, ModuleSetupPlan.Kind.JAVA, moduleRootFolderPath, gradleProject, null, null);
+      }
+      if (gradleProject != null && moduleModels.findModel(ArtifactModel.class) != null) {
+        return new ModuleSetupPlan(setupInfo, ModuleSetupPlan.Kind.ARTIFACT, moduleRootFolderPath, gradleProject, null, null);
+      }
+      return new ModuleSetupPlan(setupInfo, ModuleSetupPlan.Kind.NONE, moduleRootFolderPath, gradleProject, null, null);
+    }
+
+    private void applySetupPlan(@NotNull ModuleSetupPlan plan, @NotNull ModuleFinder moduleFinder) {
+      Module module = plan.setupInfo.module;
+      GradleModuleModels moduleModels = plan.setupInfo.moduleModels;
+      CachedModuleModels cachedModels = plan.setupInfo.cachedModels;
+      File moduleRootFolderPath = plan.moduleRootFolderPath;
+
+      module.putUserData(MODULE_GRADLE_MODELS_KEY, moduleModels);
+
+      ModuleSetupContext context = myModuleSetupFactory.create(module, myModelsProvider, moduleFinder, moduleModels);
+
+      switch (plan.kind) {
+        case ANDROID: {
+          assert plan.androidProject != null && plan.selectedVariant != null;
+          AndroidModuleModel androidModel = new AndroidModuleModel(module.getName(), moduleRootFolderPath, plan.androidProject,
+                                                                   plan.selectedVariant, myDependenciesFactory);
           myAndroidModuleSetup.setUpModule(context, androidModel, false /* sync not skipped */);
           myAndroidModules.add(module);
           cachedModels.addModel(androidModel);
@@ -342,65 +394,48 @@ abstract class ModuleSetup {
             myNdkModuleSetup.setUpModule(context, ndkModel, false /* sync not skipped */);
             cachedModels.addModel(ndkModel);
           }
+          return;
         }
-        else {
+        case ANDROID_WITHOUT_VARIANTS: {
           // This is an Android module without variants. Treat as a non-buildable Java module.
+          assert plan.gradleProject != null && plan.androidProject != null;
           removeAndroidFacetFrom(module);
-          GradleProject gradleProject = moduleModels.findModel(GradleProject.class);
-          assert gradleProject != null;
-
-          JavaModuleModel javaModel = myJavaModuleModelFactory.create(gradleProject, androidProject);
+          JavaModuleModel javaModel = myJavaModuleModelFactory.create(plan.gradleProject, plan.androidProject);
           myJavaModuleSetup.setUpModule(context, javaModel, false /* sync not skipped */);
           cachedModels.addModel(javaModel);
+          return;
         }
-        return;
+        default:
+          break;
       }
+
       // This is not an Android module. Remove any AndroidFacet set in a previous sync operation.
       removeAndroidFacetFrom(module);
       // This is not an Android module. Remove any AndroidFacet set in a previous sync operation.
       removeAllFacets(myModelsProvider.getModifiableFacetModel(module), NdkFacet.getFacetTypeId());
 
-      // This is a Java module.
-      JavaProject javaProject = moduleModels.findModel(JavaProject.class);
-      GradleProject gradleProject = moduleModels.findModel(GradleProject.class);
-      if (gradleProject != null && javaProject != null) {
-        JavaModuleModel javaModel = myJavaModuleModelFactory.create(moduleRootFolderPath, gradleProject,
+      if (plan.kind == ModuleSetupPlan.Kind.JAVA) {
+        // This is a Java module.
+        JavaProject javaProject = moduleModels.findModel(JavaProject.class);
+        assert plan.gradleProject != null && javaProject != null;
+        JavaModuleModel javaModel = myJavaModuleModelFactory.create(moduleRootFolderPath, plan.gradleProject,
                                                                     javaProject /* regular Java module */);
         myJavaModuleSetup.setUpModule(context, javaModel, false /* sync not skipped */);
         cachedModels.addModel(javaModel);
 
         myExtraModelsManager.applyModelsToModule(moduleModels, module, myModelsProvider);
         myExtraModelsManager.addJavaModelsToCache(module, cachedModels);
-        return;
       }
-
-      // This is a Jar/Aar module or root module.
-      ArtifactModel jarAarProject = moduleModels.findModel(ArtifactModel.class);
-      if (gradleProject != null && jarAarProject != null) {
-        JavaModuleModel javaModel = myJavaModuleModelFactory.create(moduleRootFolderPath, gradleProject, jarAarProject);
+      else if (plan.kind == ModuleSetupPlan.Kind.ARTIFACT) {
+        // This is a Jar/Aar module or root module.
+        ArtifactModel jarAarProject = moduleModels.findModel(ArtifactModel.class);
+        assert plan.gradleProject != null && jarAarProject != null;
+        JavaModuleModel javaModel = myJavaModuleModelFactory.create(moduleRootFolderPath, plan.gradleProject, jarAarProject);
         myJavaModuleSetup.setUpModule(context, javaModel, false /* sync not skipped */);
         cachedModels.addModel(javaModel);
       }
     }
 
-    @Nullable
-    private AndroidModuleModel createAndroidModel(@NotNull Module module, @NotNull AndroidProject androidProject) {
-      Variant variantToSelect = myVariantSelector.findVariantToSelect(androidProject);
-      if (variantToSelect != null) {
-        File moduleRootFolderPath = findModuleRootFolderPath(module);
-        if (moduleRootFolderPath != null) {
-          return new AndroidModuleModel(module.getName(), moduleRootFolderPath, androidProject, variantToSelect.getName(),
-                                        myDependenciesFactory);
-        }
-      }
-      // If an Android project does not have variants, it would be impossible to build. This is a possible but invalid use case.
-      // For now we are going to treat this case as a Java library module, because everywhere in the IDE (e.g. run configurations,
-      // editors, test support, variants tool window, project building, etc.) we have the assumption that there is at least one variant
-      // per Android project, and changing that in the code base is too risky, for very little benefit.
-      // See https://code.google.com/p/android/issues/detail?id=170722
-      return null;
-    }
-
     private void removeAndroidFacetFrom(@NotNull Module module) {
       removeAllFacets(myModelsProvider.getModifiableFacetModel(module), AndroidFacet.ID);
     }
@@ -417,4 +452,36 @@ abstract class ModuleSetup {
       this.cachedModels = cachedModels;
     }
   }
+
+  /**
+   * What was found for a module during the concurrent phase of module setup: the kind of module and, for Android modules, the
+   * variant to select. Plans do not modify the IDE project. The IDE models are created when the plans are applied to their module
+   * afterwards, one at a time.
+   */
+  private static class ModuleSetupPlan {
+    enum Kind {
+      ANDROID, ANDROID_WITHOUT_VARIANTS, JAVA, ARTIFACT, NONE
+    }
+
+    @NotNull final ModuleSetupInfo setupInfo;
+    @NotNull final Kind kind;
+    @NotNull final File moduleRootFolderPath;
+    @Nullable final GradleProject gradleProject;
+    @Nullable final AndroidProject androidProject;
+    @Nullable final String selectedVariant;
+
+    ModuleSetupPlan(@NotNull ModuleSetupInfo setupInfo,
+                    @NotNull Kind kind,
+                    @NotNull File moduleRootFolderPath,
+                    @Nullable GradleProject gradleProject,
+                    @Nullable AndroidProject androidProject,
+                    @Nullable String selectedVariant) {
+      this.setupInfo = setupInfo;
+      this.kind = kind;
+      this.moduleRootFolderPath = moduleRootFolderPath;
+      this.gradleProject = gradleProject;
+      this.androidProject = androidProject;
+      this.selectedVariant = selectedVariant;
+    }
+  }
 }
@@ -16,25 +16,45 @@
 package com.android.tools.idea.gradle.project.sync.ng.caching;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
 import static com.android.tools.idea.gradle.util.GradleUtil.getCacheFolderRootPath;
 import static com.intellij.openapi.util.io.FileUtil.ensureExists;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
-public class CachedProjectModels implements Serializable {
-  // Increase the value when adding/removing fields or when changing the serialization/deserialization mechanism.
-  private static final long serialVersionUID = 1L;
+/**
+ * Gradle models of all the modules in a project, persisted to disk to allow skipping sync on project open.
+ * <p>
+ * The cache file starts with a header and an index of module entries (Gradle path, offset, length and checksum), followed by
+ * the serialized {@link CachedModuleModels} of each module. The file is read in one go when loaded, and each module is only
+ * deserialized when first requested (or in parallel, via {@link #loadAllModules(ProgressIndicator)}). A corrupt index makes
+ * the whole file a cache miss, while a corrupt module entry only makes that module unavailable.
+ */
+public class CachedProjectModels {
+  private static final int MAGIC = 0x47534D43; // "GSMC"
+  // Increase the value when changing the layout of the cache file or the serialization/deserialization mechanism.
+  @VisibleForTesting
+  static final int FORMAT_VERSION = 2;
+  // Size of an index entry with an empty Gradle path: path length, offset, length and checksum.
+  private static final int MIN_INDEX_ENTRY_SIZE = 4 + 8 + 4 + 8;
 
   public static class Factory {
     @NotNull
@@ -46,26 +66,90 @@ public class CachedProjectModels implements Serializable {
   public static class Loader {
     @Nullable
     public CachedProjectModels loadFromDisk(@NotNull Project project) {
-      File cacheFilePath = getCacheFilePath(project);
+      // The cache file of the previous format can not be read any more.
+      File legacyCacheFilePath = getLegacyCacheFilePath(project);
+      if (legacyCacheFilePath.isFile() && !legacyCacheFilePath.delete()) {
+        getLog().info(String.format("Failed to delete obsolete Gradle models cache '%1$s'", legacyCacheFilePath.getPath()));
+      }
+      return loadFromDisk(getCacheFilePath(project));
+    }
+
+    @VisibleForTesting
+    @Nullable
+    CachedProjectModels loadFromDisk(@NotNull File cacheFilePath) {
       if (cacheFilePath.isFile()) {
-        try (FileInputStream fis = new FileInputStream(cacheFilePath)) {
-          try (ObjectInputStream ois = new ObjectInputStream(fis)) {
-            return (CachedProjectModels)ois.readObject();
-          }
-          catch (Throwable e) {
-            getLog().warn(String.format("Failed to load Gradle models from '%1$s'", cacheFilePath.getPath()), e);
-          }
+        try {
+          // The file is read into the heap instead of being memory-mapped: a live mapping would keep the file locked on Windows,
+          // and make replacing it in saveToDisk fail.
+          ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFilePath.toPath()));
+          return readIndex(buffer, cacheFilePath);
         }
         catch (Throwable e) {
-          getLog().warn(String.format("Failed to access '%1$s' while loading Gradle models", cacheFilePath.getPath()), e);
+          getLog().warn(String.format("Failed to load Gradle models from '%1$s'", cacheFilePath.getPath()), e);
         }
       }
       return null;
     }
+
+    @Nullable
+    private static CachedProjectModels readIndex(@NotNull ByteBuffer buffer, @NotNull File cacheFilePath) {
+      try {
+        return doReadIndex(buffer, cacheFilePath);
+      }
+      catch (BufferUnderflowException e) {
+        getLog().warn(String.format("Ignoring truncated Gradle models cache '%1$s'", cacheFilePath.getPath()));
+        return null;
+      }
+    }
+
+    @Nullable
+    private static CachedProjectModels doReadIndex(@NotNull ByteBuffer buffer, @NotNull File cacheFilePath) {
+      if (buffer.getInt() != MAGIC) {
+        getLog().info(String.format("'%1$s' is not a Gradle models cache file", cacheFilePath.getPath()));
+        return null;
+      }
+      int version = buffer.getInt();
+      if (version != FORMAT_VERSION) {
+        getLog().info(String.format("Ignoring Gradle models cache '%1$s' with unsupported version %2$d", cacheFilePath.getPath(), version));
+        return null;
+      }
+
+      int moduleCount = buffer.getInt();
+      if (moduleCount < 0 || moduleCount > buffer.remaining() / MIN_INDEX_ENTRY_SIZE) {
+        getLog().warn(String.format("Ignoring Gradle models cache '%1$s' with corrupt module count %2$d", cacheFilePath.getPath(), moduleCount));
+        return null;
+      }
+      List<IndexEntry> entries = new ArrayList<>(moduleCount);
+      for (int i = 0; i < moduleCount; i++) {
+        int gradlePathLength = buffer.getInt();
+        if (gradlePathLength < 0 || gradlePathLength > buffer.remaining()) {
+          getLog().warn(String.format("Ignoring Gradle models cache '%1$s' with corrupt index", cacheFilePath.getPath()));
+          return null;
+        }
+        byte[] gradlePath = new byte[gradlePathLength];
+        buffer.get(gradlePath);
+        entries.add(new IndexEntry(new String(gradlePath, UTF_8), buffer.getLong(), buffer.getInt(), buffer.getLong()));
+      }
+
+      int dataStart = buffer.position();
+      CachedProjectModels cache = new CachedProjectModels();
+      for (IndexEntry entry : entries) {
+        long start = dataStart + entry.offset;
+        if (entry.offset < 0 || entry.length < 0 || start + entry.length > buffer.limit()) {
+          getLog().warn(String.format("Ignoring truncated Gradle models of module '%1$s' in '%2$s'", entry.gradlePath, cacheFilePath));
+          continue;
+        }
+        EncodedModule module = new EncodedModule(buffer.array(), buffer.arrayOffset() + (int)start, entry.length, entry.checksum);
+        cache.myEncodedModelsByModulePath.put(entry.gradlePath, module);
+      }
+      return cache;
+    }
   }
 
   // Key: module's Gradle path.
-  private final Map<String, CachedModuleModels> myModelsByModulePath = new HashMap<>();
+  private final Map<String, CachedModuleModels> myModelsByModulePath = new ConcurrentHashMap<>();
+  // Modules loaded from disk whose models have not been deserialized yet. Key: module's Gradle path.
+  private final Map<String, EncodedModule> myEncodedModelsByModulePath = new ConcurrentHashMap<>();
 
   @VisibleForTesting
   CachedProjectModels() {
@@ -75,12 +159,47 @@ public class CachedProjectModels implements Serializable {
   public CachedModuleModels addModule(@NotNull Module module, @NotNull String gradlePath) {
     CachedModuleModels cache = new CachedModuleModels(module, gradlePath);
     myModelsByModulePath.put(gradlePath, cache);
+    myEncodedModelsByModulePath.remove(gradlePath);
     return cache;
   }
 
+  /**
+   * Returns the cached models of the module with the given Gradle path, deserializing them if necessary. Returns {@code null} if
+   * the module is not in the cache or if its entry in the cache file is corrupt.
+   */
   @Nullable
   public CachedModuleModels findCacheForModule(@NotNull String gradlePath) {
-    return myModelsByModulePath.get(gradlePath);
+    CachedModuleModels cache = myModelsByModulePath.get(gradlePath);
+    if (cache != null) {
+      return cache;
+    }
+    EncodedModule encoded = myEncodedModelsByModulePath.get(gradlePath);
+    if (encoded == null) {
+      return null;
+    }
+    cache = encoded.decode(gradlePath);
+    if (cache != null) {
+      CachedModuleModels existing = myModelsByModulePath.putIfAbsent(gradlePath, cache);
+      if (existing != null) {
+        cache = existing;
+      }
+    }
+    myEncodedModelsByModulePath.remove(gradlePath);
+    return cache;
+  }
+
+  /**
+   * Deserializes, in parallel, the models of all the modules that have not been requested yet.
+   */
+  public void loadAllModules(@NotNull ProgressIndicator indicator) {
+    List<String> gradlePaths = new ArrayList<>(myEncodedModelsByModulePath.keySet());
+    if (gradlePaths.isEmpty()) {
+      return;
+    }
+    JobLauncher.getInstance().invokeConcurrentlyUnderProgress(gradlePaths, indicator, false /* do not fail fast */, gradlePath -> {
+      findCacheForModule(gradlePath);
+      return true;
+    });
   }
 
   @NotNull
@@ -92,11 +211,18 @@ public class CachedProjectModels implements Serializable {
   @VisibleForTesting
   @NotNull
   static File getCacheFilePath(@NotNull Project project) {
+    return new File(getCacheFolderRootPath(project), "gradle_models.bin");
+  }
+
+  @VisibleForTesting
+  @NotNull
+  static File getLegacyCacheFilePath(@NotNull Project project) {
     return new File(getCacheFolderRootPath(project), "gradle_models.ser");
   }
 
+  @VisibleForTesting
   @NotNull
-  private Future<?> saveToDisk(@NotNull File path) {
+  Future<?> saveToDisk(@NotNull File path) {
     return ApplicationManager.getApplication().executeOnPooledThread(() -> {
       try {
         ensureExists(path.getParentFile());
@@ -104,20 +230,76 @@ public class CachedProjectModels implements Serializable {
       catch (IOException e) {
         getLog().warn(String.format("Failed to create folders for path '%1$s'", path.getPath()), e);
       }
-      try (FileOutputStream fos = new FileOutputStream(path)) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(fos)) {
-          oos.writeObject(this);
-        }
-        catch (Throwable e) {
-          getLog().warn(String.format("Failed to save Gradle models to path '%1$s'", path.getPath()), e);
-        }
+      File tempPath = new File(path.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempPath)))) {
+        write(out);
+      }
+      catch (Throwable e) {
+        getLog().warn(String.format("Failed to save Gradle models to path '%1$s'", path.getPath()), e);
+        //noinspection ResultOfMethodCallIgnored
+        tempPath.delete();
+        return;
+      }
+      try {
+        // Replace the file in one step, so a crash while saving never leaves a partially written cache behind.
+        Files.move(tempPath.toPath(), path.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
       }
       catch (Throwable e) {
-        getLog().warn(String.format("Failed to open path '%1$s'", path.getPath()), e);
+        getLog().warn(String.format("Failed to replace Gradle models at path '%1$s'", path.getPath()), e);
       }
     });
   }
 
+  private void write(@NotNull DataOutputStream out) throws IOException {
+    Map<String, CachedModuleModels> modelsByModulePath = getAllModules();
+    List<byte[]> gradlePaths = new ArrayList<>(modelsByModulePath.size());
+    List<byte[]> encodedModules = new ArrayList<>(modelsByModulePath.size());
+    for (Map.Entry<String, CachedModuleModels> entry : modelsByModulePath.entrySet()) {
+      gradlePaths.add(entry.getKey().getBytes(UTF_8));
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+        oos.writeObject(entry.getValue());
+      }
+      encodedModules.add(bytes.toByteArray());
+    }
+
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(encodedModules.size());
+    long offset = 0;
+    for (int i = 0; i < encodedModules.size(); i++) {
+      byte[] gradlePath = gradlePaths.get(i);
+      byte[] encoded = encodedModules.get(i);
+      out.writeInt(gradlePath.length);
+      out.write(gradlePath);
+      out.writeLong(offset);
+      out.writeInt(encoded.length);
+      out.writeLong(checksum(encoded));
+      offset += encoded.length;
+    }
+    for (byte[] encoded : encodedModules) {
+      out.write(encoded);
+    }
+  }
+
+  @NotNull
+  private Map<String, CachedModuleModels> getAllModules() {
+    for (String gradlePath : new ArrayList<>(myEncodedModelsByModulePath.keySet())) {
+      findCacheForModule(gradlePath);
+    }
+    return new TreeMap<>(myModelsByModulePath);
+  }
+
+  private static long checksum(@NotNull byte[] bytes) {
+    return checksum(bytes, 0, bytes.length);
+  }
+
+  private static long checksum(@NotNull byte[] bytes, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, offset, length);
+    return crc.getValue();
+  }
+
   @NotNull
   private static Logger getLog() {
     return Logger.getInstance(CachedProjectModels.class);
@@ -132,18 +314,62 @@ public class CachedProjectModels implements Serializable {
       return false;
     }
     CachedProjectModels cache = (CachedProjectModels)o;
-    return Objects.equals(myModelsByModulePath, cache.myModelsByModulePath);
+    return Objects.equals(getAllModules(), cache.getAllModules());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(myModelsByModulePath);
+    return Objects.hash(getAllModules());
   }
 
   @Override
   public String toString() {
     return "GradleProjectModelsCache{" +
            "myModelsByModulePath=" + myModelsByModulePath +
+           ", myEncodedModulePaths=" + myEncodedModelsByModulePath.keySet() +
            '}';
   }
+
+  private static class IndexEntry {
+    @NotNull final String gradlePath;
+    final long offset;
+    final int length;
+    final long checksum;
+
+    IndexEntry(@NotNull String gradlePath, long offset, int length, long checksum) {
+      this.gradlePath = gradlePath;
+      this.offset = offset;
+      this.length = length;
+      this.checksum = checksum;
+    }
+  }
+
+  private static class EncodedModule {
+    @NotNull private final byte[] myData;
+    private final int myOffset;
+    private final int myLength;
+    private final long myChecksum;
+
+    EncodedModule(@NotNull byte[] data, int offset, int length, long checksum) {
+      myData = data;
+      myOffset = offset;
+      myLength = length;
+      myChecksum = checksum;
+    }
+
+    @Nullable
+    CachedModuleModels decode(@NotNull String gradlePath) {
+      if (checksum(myData, myOffset, myLength) != myChecksum) {
+        getLog().warn(String.format("Ignoring corrupt Gradle models of module '%1$s'", gradlePath));
+        return null;
+      }
+      try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(myData, myOffset, myLength))) {
+        return (CachedModuleModels)ois.readObject();
+      }
+      catch (Throwable e) {
+        getLog().warn(String.format("Failed to load Gradle models of module '%1$s'", gradlePath), e);
+        return null;
+      }
+    }
+  }
 }
@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.gradle.structure.model.repositories.search;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Strings.nullToEmpty;
+import static com.intellij.openapi.util.JDOMUtil.loadDocument;
+import static com.intellij.openapi.util.io.FileUtil.ensureExists;
+import static com.intellij.openapi.util.io.FileUtil.notNullize;
+import static com.intellij.openapi.util.io.FileUtil.sanitizeFileName;
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.SKIP_SUBTREE;
+import static java.nio.file.Files.walkFileTree;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * In-memory index of the artifacts (group ID, artifact ID and versions) in a local Maven repository, persisted to disk between IDE
+ * sessions.
+ * <p>
+ * Searches are answered from memory. The index is refreshed in the background when it is older than
+ * {@link #REFRESH_INTERVAL_MILLIS}; the refresh only re-reads the {@code maven-metadata.xml} and version folders of artifacts whose
+ * folder or metadata file changed since they were indexed.
+ */
+class LocalMavenRepositoryIndex {
+  // Increase the value when changing the format of the index file.
+  private static final int FORMAT_VERSION = 1;
+  private static final long REFRESH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private static final Map<Path, LocalMavenRepositoryIndex> ourIndices = new ConcurrentHashMap<>();
+
+  @NotNull private final Path myRootLocation;
+  @Nullable private final File myIndexFile;
+
+  private final Object myLoadLock = new Object();
+  private boolean myLoaded;
+
+  // Key: path of the artifact folder (the one containing maven-metadata.xml.) The map is replaced, never modified.
+  @NotNull private volatile Map<String, IndexedArtifact> myArtifacts = ImmutableMap.of();
+  private volatile long myLastRefreshTimeMillis;
+  @NotNull private final AtomicBoolean myRefreshing = new AtomicBoolean();
+
+  @NotNull
+  static LocalMavenRepositoryIndex getInstance(@NotNull Path rootLocation) {
+    return ourIndices.computeIfAbsent(rootLocation, root -> new LocalMavenRepositoryIndex(root, getDefaultIndexFile(root)));
+  }
+
+  @NotNull
+  private static File getDefaultIndexFile(@NotNull Path rootLocation) {
+    Path fileName = rootLocation.getFileName();
+    String name = sanitizeFileName(fileName != null ? fileName.toString() : "root") + "_" +
+                  Integer.toHexString(rootLocation.toAbsolutePath().toString().hashCode()) + ".idx";
+    return new File(PathManager.getSystemPath(), "android" + File.separator + "maven-index" + File.separator + name);
+  }
+
+  @VisibleForTesting
+  LocalMavenRepositoryIndex(@NotNull Path rootLocation, @Nullable File indexFile) {
+    myRootLocation = rootLocation;
+    myIndexFile = indexFile;
+  }
+
+  /**
+   * Returns the indexed artifacts whose group ID and name match the given values. A value matches if it contains the given text,
+   * or, if the given text contains '*' wildcards, if the whole value matches it.
+   */
+  @NotNull
+  List<IndexedArtifact> search(@Nullable String groupId, @NotNull String artifactName) {
+    ensureUpToDate();
+
+    Matcher groupIdMatcher = new Matcher(nullToEmpty(groupId));
+    Matcher artifactNameMatcher = new Matcher(artifactName);
+    List<IndexedArtifact> found = new ArrayList<>();
+    for (IndexedArtifact artifact : myArtifacts.values()) {
+      if (groupIdMatcher.matches(artifact.groupId) && artifactNameMatcher.matches(artifact.artifactId)) {
+        found.add(artifact);
+      }
+    }
+    return found;
+  }
+
+  private void ensureUpToDate() {
+    synchronized (myLoadLock) {
+      if (!myLoaded) {
+        myLoaded = true;
+        if (loadFromDisk()) {
+          // Artifacts may have been added or removed while the IDE was closed.
+          scheduleRefresh();
+        }
+        else {
+          // There is nothing to answer with: the first search has to wait for the repository to be indexed.
+          refresh();
+        }
+        return;
+      }
+    }
+    if (System.currentTimeMillis() - myLastRefreshTimeMillis > REFRESH_INTERVAL_MILLIS) {
+      scheduleRefresh();
+    }
+  }
+
+  private void scheduleRefresh() {
+    if (myRefreshing.compareAndSet(false, true)) {
+      ApplicationManager.getApplication().executeOnPooledThread(() -> {
+        try {
+          refresh();
+        }
+        finally {
+          myRefreshing.set(false);
+        }
+      });
+    }
+  }
+
+  /**
+   * Walks the repository and updates the index, reusing the entries of artifacts whose folder and metadata file have not been
+   * modified since they were indexed.
+   */
+  @VisibleForTesting
+  void refresh() {
+    Map<String, IndexedArtifact> previous = myArtifacts;
+    Map<String, IndexedArtifact> artifacts = new HashMap<>();
+    try {
+      walkFileTree(myRootLocation, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          File folder = dir.toFile();
+          File mavenMetadataFile = new File(folder, "maven-metadata.xml");
+          long metadataTimestamp = mavenMetadataFile.lastModified();
+          if (metadataTimestamp == 0L) {
+            // Not an artifact folder, or maven-metadata.xml is missing.
+            return CONTINUE;
+          }
+
+          String path = folder.getPath();
+          long folderTimestamp = attrs.lastModifiedTime().toMillis();
+          IndexedArtifact artifact = previous.get(path);
+          if (artifact == null || artifact.folderTimestamp != folderTimestamp || artifact.metadataTimestamp != metadataTimestamp) {
+            artifact = readArtifact(folder, mavenMetadataFile, folderTimestamp, metadataTimestamp);
+          }
+          if (artifact != null) {
+            artifacts.put(path, artifact);
+          }
+          return SKIP_SUBTREE;
+        }
+      });
+    }
+    catch (Throwable e) {
+      String msg = String.format("Failed to index local repository '%1$s'", myRootLocation);
+      getLog().warn(msg, e);
+      return;
+    }
+
+    myArtifacts = ImmutableMap.copyOf(artifacts);
+    myLastRefreshTimeMillis = System.currentTimeMillis();
+    if (!artifacts.equals(previous)) {
+      saveToDisk();
+    }
+  }
+
+  @Nullable
+  private static IndexedArtifact readArtifact(@NotNull File folder,
+                                              @NotNull File mavenMetadataFile,
+                                              long folderTimestamp,
+                                              long metadataTimestamp) {
+    try {
+      Document document = loadDocument(mavenMetadataFile);
+      Element rootElement = document.getRootElement();
+      if (rootElement == null) {
+        return null;
+      }
+      Element groupIdElement = rootElement.getChild("groupId");
+      Element artifactIdElement = rootElement.getChild("artifactId");
+      if (groupIdElement == null || artifactIdElement == null) {
+        return null;
+      }
+
+      List<String> versions = new ArrayList<>();
+      for (File child : notNullize(folder.listFiles())) {
+        if (child.isDirectory()) {
+          versions.add(child.getName());
+        }
+      }
+      return new IndexedArtifact(nullToEmpty(groupIdElement.getValue()), artifactIdElement.getValue(), versions, folderTimestamp,
+                                 metadataTimestamp);
+    }
+    catch (Throwable e) {
+      String msg = String.format("Failed to parse '%1$s'", mavenMetadataFile.getPath());
+      getLog().warn(msg, e);
+      return null;
+    }
+  }
+
+  private boolean loadFromDisk() {
+    if (myIndexFile == null || !myIndexFile.isFile()) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(myIndexFile)))) {
+      if (in.readInt() != FORMAT_VERSION) {
+        return false;
+      }
+      int count = in.readInt();
+      Map<String, IndexedArtifact> artifacts = new HashMap<>();
+      for (int i = 0; i < count; i++) {
+        String path = in.readUTF();
+        String groupId = in.readUTF();
+        String artifactId = in.readUTF();
+        long folderTimestamp = in.readLong();
+        long metadataTimestamp = in.readLong();
+        int versionCount = in.readInt();
+        List<String> versions = new ArrayList<>(versionCount);
+        for (int j = 0; j < versionCount; j++) {
+          versions.add(in.readUTF());
+        }
+        artifacts.put(path, new IndexedArtifact(groupId, artifactId, versions, folderTimestamp, metadataTimestamp));
+      }
+      myArtifacts = ImmutableMap.copyOf(artifacts);
+      return true;
+    }
+    catch (Throwable e) {
+      String msg = String.format("Failed to load index of local repository '%1$s' from '%2$s'", myRootLocation, myIndexFile.getPath());
+      getLog().info(msg, e);
+      return false;
+    }
+  }
+
+  private void saveToDisk() {
+    if (myIndexFile == null) {
+      return;
+    }
+    Map<String, IndexedArtifact> artifacts = myArtifacts;
+    try {
+      ensureExists(myIndexFile.getParentFile());
+      File tempFile = new File(myIndexFile.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(artifacts.size());
+        for (Map.Entry<String, IndexedArtifact> entry : artifacts.entrySet()) {
+          IndexedArtifact artifact = entry.getValue();
+          out.writeUTF(entry.getKey());
+          out.writeUTF(artifact.groupId);
+          out.writeUTF(artifact.artifactId);
+          out.writeLong(artifact.folderTimestamp);
+          out.writeLong(artifact.metadataTimestamp);
+          out.writeInt(artifact.versions.size());
+          for (String version : artifact.versions) {
+            out.writeUTF(version);
+          }
+        }
+      }
+      Files.move(tempFile.toPath(), myIndexFile.toPath(), REPLACE_EXISTING);
+    }
+    catch (Throwable e) {
+      String msg = String.format("Failed to save index of local repository '%1$s' to '%2$s'", myRootLocation, myIndexFile.getPath());
+      getLog().warn(msg, e);
+    }
+  }
+
+  @NotNull
+  private static Logger getLog() {
+    return Logger.getInstance(LocalMavenRepositoryIndex.class);
+  }
+
+  static class IndexedArtifact {
+    @NotNull final String groupId;
+    @NotNull final String artifactId;
+    @NotNull final List<String> versions;
+    final long folderTimestamp;
+    final long metadataTimestamp;
+
+    IndexedArtifact(@NotNull String groupId,
+                    @NotNull String artifactId,
+                    @NotNull List<String> versions,
+                    long folderTimestamp,
+                    long metadataTimestamp) {
+      this.groupId = groupId;
+      this.artifactId = artifactId;
+      this.versions = ImmutableList.copyOf(versions);
+      this.folderTimestamp = folderTimestamp;
+      this.metadataTimestamp = metadataTimestamp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      IndexedArtifact that = (IndexedArtifact)o;
+      return folderTimestamp == that.folderTimestamp &&
+             metadataTimestamp == that.metadataTimestamp &&
+             Objects.equals(groupId, that.groupId) &&
+             Objects.equals(artifactId, that.artifactId) &&
+             Objects.equals(versions, that.versions);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(groupId, artifactId, versions, folderTimestamp, metadataTimestamp);
+    }
+  }
+
+  private static class Matcher {
+    @NotNull private final String myText;
+    @Nullable private final Pattern myPattern;
+
+    Matcher(@NotNull String text) {
+      myText = text;
+      myPattern = text.indexOf('*') >= 0 ? toPattern(text) : null;
+    }
+
+    @NotNull
+    private static Pattern toPattern(@NotNull String wildcard) {
+      String[] parts = wildcard.split("\\*", -1);
+      StringBuilder regex = new StringBuilder();
+      for (int i = 0; i < parts.length; i++) {
+        if (i > 0) {
+          regex.append(".*");
+        }
+        regex.append(Pattern.quote(parts[i]));
+      }
+      return Pattern.compile(regex.toString());
+    }
+
+    boolean matches(@NotNull String value) {
+      return myPattern != null ? myPattern.matcher(value).matches() : value.contains(myText);
+    }
+  }
+}
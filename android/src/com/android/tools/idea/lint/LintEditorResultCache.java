@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.lint;
+
+import com.android.annotations.concurrency.GuardedBy;
+import com.android.tools.idea.gradle.util.GradleUtil;
+import com.android.tools.idea.res.AppResourceRepository;
+import com.android.tools.lint.client.api.DefaultConfiguration;
+import com.android.tools.lint.detector.api.Issue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootModificationTracker;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.util.PsiModificationTracker;
+import org.jetbrains.android.facet.AndroidFacet;
+import org.jetbrains.android.facet.AndroidRootUtil;
+import org.jetbrains.android.inspections.lint.ProblemData;
+import org.jetbrains.android.inspections.lint.State;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Project-level cache of the problems found by the on-the-fly lint analysis of a single file. Entries are keyed by the
+ * file and validated against a stamp made of the file content hash, the set of enabled issues, the modification counts
+ * of the resource repository, the Java structure and the project model, and the modification stamps of the lint
+ * configuration files of the module (manifest, build file and lint.xml files), so switching between unchanged editors does
+ * not re-run the detectors.
+ */
+public class LintEditorResultCache {
+  private static final int MAX_ENTRIES = 64;
+
+  private final Object myLock = new Object();
+  @GuardedBy("myLock")
+  private final Map<String, Entry> myEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  @NotNull
+  public static LintEditorResultCache getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, LintEditorResultCache.class);
+  }
+
+  /**
+   * Returns the problems previously found for the state's file if nothing that influences the analysis has changed since,
+   * or {@code null} if lint has to be run again.
+   */
+  @Nullable
+  public List<ProblemData> get(@NotNull State state, @NotNull String stamp) {
+    String path = state.getMainFile().getPath();
+    synchronized (myLock) {
+      Entry entry = myEntries.get(path);
+      if (entry == null) {
+        return null;
+      }
+      if (!entry.stamp.equals(stamp)) {
+        myEntries.remove(path);
+        return null;
+      }
+      return entry.problems;
+    }
+  }
+
+  /**
+   * Records the problems found for the state's file. The stamp must have been computed before the analysis started, so
+   * that changes made while lint was running invalidate the entry. Results of an analysis that raced with an edit of the
+   * file are dropped.
+   */
+  public void put(@NotNull State state, @NotNull String stamp) {
+    if (state.isDirty()) {
+      return;
+    }
+    Entry entry = new Entry(stamp, ImmutableList.copyOf(state.getProblems()));
+    synchronized (myLock) {
+      myEntries.put(state.getMainFile().getPath(), entry);
+    }
+  }
+
+  /**
+   * Computes the stamp of everything the result of analyzing the state's file depends on.
+   */
+  @NotNull
+  public static String computeStamp(@NotNull State state) {
+    Module module = state.getModule();
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    hasher.putString(state.getMainFileContent(), StandardCharsets.UTF_8);
+
+    // The enabled issues come from the inspection profile, so they are hashed in a stable order.
+    List<String> issueIds = new ArrayList<>(state.getIssues().size());
+    for (Issue issue : state.getIssues()) {
+      issueIds.add(issue.getId());
+    }
+    Collections.sort(issueIds);
+    for (String id : issueIds) {
+      hasher.putString(id, StandardCharsets.UTF_8);
+    }
+
+    AndroidFacet facet = AndroidFacet.getInstance(module);
+    AppResourceRepository appResources = facet != null ? AppResourceRepository.findExistingInstance(facet) : null;
+    hasher.putLong(appResources != null ? appResources.getModificationCount() : -1);
+    hasher.putLong(PsiModificationTracker.SERVICE.getInstance(module.getProject()).getJavaStructureModificationCount());
+
+    // The minSdk/targetSdk, the lintOptions of the Gradle model and the lint.xml files decide which issues are reported and
+    // with which severity. Syncing the project changes the roots, edits of the files themselves change their stamps.
+    hasher.putLong(ProjectRootModificationTracker.getInstance(module.getProject()).getModificationCount());
+    if (facet != null) {
+      putStamp(hasher, AndroidRootUtil.getPrimaryManifestFile(facet));
+    }
+    putStamp(hasher, GradleUtil.getGradleBuildFile(module));
+    VirtualFile baseDir = module.getProject().getBaseDir();
+    File lintProjectDir = LintIdeProject.getLintProjectDirectory(module, facet);
+    VirtualFile projectDir = lintProjectDir != null ? LocalFileSystem.getInstance().findFileByIoFile(lintProjectDir) : null;
+    for (VirtualFile dir = projectDir; dir != null; dir = dir.getParent()) {
+      putStamp(hasher, dir.findChild(DefaultConfiguration.CONFIG_FILE_NAME));
+      if (dir.equals(baseDir) || baseDir == null || !VfsUtilCore.isAncestor(baseDir, dir, true)) {
+        break;
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Hashes the modification stamp of the file, or of its document if it's open, since lint reads the unsaved content.
+   */
+  private static void putStamp(@NotNull Hasher hasher, @Nullable VirtualFile file) {
+    if (file == null || !file.isValid()) {
+      hasher.putLong(-1);
+      return;
+    }
+    Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+    hasher.putString(file.getPath(), StandardCharsets.UTF_8);
+    hasher.putLong(document != null ? document.getModificationStamp() : file.getModificationStamp());
+  }
+
+  private static class Entry {
+    @NotNull final String stamp;
+    @NotNull final List<ProblemData> problems;
+
+    Entry(@NotNull String stamp, @NotNull List<ProblemData> problems) {
+      this.stamp = stamp;
+      this.problems = problems;
+    }
+  }
+}
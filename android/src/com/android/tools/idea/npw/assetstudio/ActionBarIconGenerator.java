@@ -93,7 +93,7 @@ public class ActionBarIconGenerator extends IconGenerator {
       return PLACEHOLDER_IMAGE;
     }
 
-    BufferedImage sourceImage = getTrimmedAndPaddedImage(options);
+    BufferedImage sourceImage = getTrimmedAndPaddedImage(context, options);
     if (sourceImage == null) {
       sourceImage = AssetStudioUtils.createDummyImage();
     }
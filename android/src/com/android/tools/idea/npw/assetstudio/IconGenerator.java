@@ -16,6 +16,7 @@
 package com.android.tools.idea.npw.assetstudio;
 
 import com.android.SdkConstants;
+import com.android.ide.common.internal.WaitableExecutor;
 import com.android.resources.Density;
 import com.android.resources.ResourceFolderType;
 import com.android.tools.idea.npw.assetstudio.assets.BaseAsset;
@@ -28,6 +29,7 @@ import com.android.tools.idea.observable.core.StringValueProperty;
 import com.android.tools.idea.projectsystem.AndroidModuleTemplate;
 import com.android.utils.FileUtils;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
@@ -412,6 +414,7 @@ public abstract class IconGenerator implements Disposable {
     Density[] densityValues = Density.values();
     // Sort density values into ascending order.
     Arrays.sort(densityValues, Comparator.comparingInt(Density::getDpiValue));
+    List<Density> densities = new ArrayList<>();
     for (Density density : densityValues) {
       if (!density.isValidValueForDevice()) {
         continue;
@@ -421,14 +424,41 @@ public abstract class IconGenerator implements Disposable {
         // TODO don't manually check and instead gracefully handle missing stencils.
         continue;
       }
-      options.density = density;
-      generateImageAndUpdateMap(category, categoryMap, context, options, name);
+      densities.add(density);
+    }
+
+    // The densities are independent of each other, so render them in parallel. Each task works on its own copy of the options.
+    WaitableExecutor executor = WaitableExecutor.useGlobalSharedThreadPool();
+    for (Density density : densities) {
+      executor.execute(() -> {
+        Options densityOptions = options.clone();
+        densityOptions.density = density;
+        return new DensityImage(densityOptions, generate(context, densityOptions));
+      });
+    }
+
+    List<DensityImage> images;
+    try {
+      images = executor.waitForTasksWithQuickFail(true);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    // Tasks complete in any order, add the images to the map in ascending density order.
+    images.sort(Comparator.comparingInt(image -> image.myOptions.density.getDpiValue()));
+    for (DensityImage image : images) {
+      updateMap(category, categoryMap, image.myOptions, name, image.myImage);
     }
   }
 
   private void generateImageAndUpdateMap(@Nullable String category, @NotNull Map<String, Map<String, BufferedImage>> categoryMap,
                                          @NotNull GraphicGeneratorContext context, @NotNull Options options, @NotNull String name) {
-    BufferedImage image = generate(context, options);
+    updateMap(category, categoryMap, options, name, generate(context, options));
+  }
+
+  private void updateMap(@Nullable String category, @NotNull Map<String, Map<String, BufferedImage>> categoryMap,
+                         @NotNull Options options, @NotNull String name, @NotNull BufferedImage image) {
     // The category key is either the "category" parameter or the density if not present.
     String mapCategory = category;
     if (mapCategory == null) {
@@ -481,6 +511,32 @@ public abstract class IconGenerator implements Disposable {
     return null;
   }
 
+  /**
+   * Returns the source image of the options trimmed and padded as requested by the options. The result is cached in the given
+   * context, so that it is computed only once for all densities and for subsequent generations with unchanged source options.
+   */
+  @Nullable
+  public static BufferedImage getTrimmedAndPaddedImage(@NotNull GraphicGeneratorContext context, @NotNull Options options) {
+    ListenableFuture<BufferedImage> sourceImageFuture = options.sourceImageFuture;
+    if (sourceImageFuture == null) {
+      return null;
+    }
+    if (!options.isTrimmed && options.paddingPercent == 0) {
+      return getTrimmedAndPaddedImage(options);
+    }
+    SourceImageKey key = new SourceImageKey(sourceImageFuture, options.isTrimmed, options.paddingPercent);
+    try {
+      return context.getFromCacheOrCreate(key, () -> Futures.immediateFuture(getTrimmedAndPaddedImage(options))).get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch (ExecutionException e) {
+      return null;
+    }
+  }
+
   @Nullable
   public static BufferedImage getTrimmedAndPaddedImage(@NotNull Options options) {
     if (options.sourceImageFuture == null) {
@@ -498,7 +554,11 @@ public abstract class IconGenerator implements Disposable {
       }
       return image;
     }
-    catch (InterruptedException | ExecutionException e) {
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch (ExecutionException e) {
       return null;
     }
   }
@@ -511,7 +571,7 @@ public abstract class IconGenerator implements Disposable {
   /**
    * Options used for all generators.
    */
-  public static class Options {
+  public static class Options implements Cloneable {
     /** Indicates that the graphic generator may use placeholders instead of real images. */
     public boolean usePlaceholders;
 
@@ -535,6 +595,59 @@ public abstract class IconGenerator implements Disposable {
      * A value less than 2 means no suffix.
      */
     public int apiVersion;
+
+    @Override
+    public Options clone() {
+      try {
+        return (Options)super.clone();
+      }
+      catch (CloneNotSupportedException e) {
+        throw new Error(e); // Not possible.
+      }
+    }
+  }
+
+  /** An image generated for a single density, together with the options used to generate it. */
+  private static final class DensityImage {
+    @NotNull private final Options myOptions;
+    @NotNull private final BufferedImage myImage;
+
+    DensityImage(@NotNull Options options, @NotNull BufferedImage image) {
+      myOptions = options;
+      myImage = image;
+    }
+  }
+
+  /**
+   * Cache key of a trimmed and padded source image. Source image futures are compared by identity since a new future is
+   * created whenever the source asset changes.
+   */
+  private static final class SourceImageKey {
+    @NotNull private final ListenableFuture<BufferedImage> mySourceImageFuture;
+    private final boolean myIsTrimmed;
+    private final int myPaddingPercent;
+
+    SourceImageKey(@NotNull ListenableFuture<BufferedImage> sourceImageFuture, boolean isTrimmed, int paddingPercent) {
+      mySourceImageFuture = sourceImageFuture;
+      myIsTrimmed = isTrimmed;
+      myPaddingPercent = paddingPercent;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof SourceImageKey)) {
+        return false;
+      }
+      SourceImageKey other = (SourceImageKey)obj;
+      return mySourceImageFuture == other.mySourceImageFuture
+             && myIsTrimmed == other.myIsTrimmed
+             && myPaddingPercent == other.myPaddingPercent;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(mySourceImageFuture), myIsTrimmed, myPaddingPercent);
+    }
   }
 
   public enum IconFolderKind {
@@ -1236,7 +1236,7 @@ public class LauncherIconGenerator extends IconGenerator {
   }
 
   /** Options specific to generating launcher icons. */
-  public static class LauncherIconOptions extends Options implements Cloneable {
+  public static class LauncherIconOptions extends Options {
     /** The foreground layer name, used to generate resource paths. */
     public String foregroundLayerName;
 
@@ -1310,12 +1310,7 @@ public class LauncherIconGenerator extends IconGenerator {
 
     @Override
     public LauncherIconOptions clone() {
-      try {
-        return (LauncherIconOptions)super.clone();
-      }
-      catch (CloneNotSupportedException e) {
-        throw new Error(e); // Not possible.
-      }
+      return (LauncherIconOptions)super.clone();
     }
   }
 
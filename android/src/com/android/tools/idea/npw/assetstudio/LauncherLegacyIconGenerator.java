@@ -222,7 +222,7 @@ public class LauncherLegacyIconGenerator extends IconGenerator {
       return PLACEHOLDER_IMAGE;
     }
 
-    BufferedImage sourceImage = getTrimmedAndPaddedImage(options);
+    BufferedImage sourceImage = getTrimmedAndPaddedImage(context, options);
     if (sourceImage == null) {
       sourceImage = AssetStudioUtils.createDummyImage();
     }
@@ -64,7 +64,7 @@ public class NotificationIconGenerator extends IconGenerator {
       return PLACEHOLDER_IMAGE;
     }
 
-    BufferedImage sourceImage = getTrimmedAndPaddedImage(options);
+    BufferedImage sourceImage = getTrimmedAndPaddedImage(context, options);
     if (sourceImage == null) {
       sourceImage = AssetStudioUtils.createDummyImage();
     }
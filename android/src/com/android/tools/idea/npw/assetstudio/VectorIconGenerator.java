@@ -60,7 +60,7 @@ public class VectorIconGenerator extends IconGenerator {
       return PLACEHOLDER_IMAGE;
     }
 
-    BufferedImage image = getTrimmedAndPaddedImage(options);
+    BufferedImage image = getTrimmedAndPaddedImage(context, options);
     if (image == null) {
       image = AssetStudioUtils.createDummyImage();
     }
@@ -36,17 +36,19 @@ import java.util.function.Consumer;
 public class IconGenerationProcessor {
   @NotNull private final List<Request> myImageRequests = new ArrayList<>();
   @Nullable private Request myRunningRequest;
+  @Nullable private Worker myRunningWorker;
 
   public void enqueue(@NotNull AndroidIconType iconType, @NotNull IconGenerator iconGenerator,
                       @NotNull Consumer<IconGeneratorResult> onDone) {
     ApplicationManager.getApplication().assertIsDispatchThread();
 
-    // If there is at least one request with the same icon type, ignore this one
-    if (myImageRequests.stream().anyMatch(x -> Objects.equals(x.getIconType(), iconType))) {
-      return;
-    }
-
     if (iconGenerator.sourceAsset().get().isPresent()) {
+      // A new request supersedes the pending and the running requests with the same icon type, since their options are stale.
+      myImageRequests.removeIf(x -> Objects.equals(x.getIconType(), iconType));
+      if (myRunningRequest != null && myRunningWorker != null && Objects.equals(myRunningRequest.getIconType(), iconType)) {
+        myRunningWorker.cancel(true);
+      }
+
       IconGenerator.Options options = iconGenerator.createOptions(true);
       Request request = new Request(iconType, iconGenerator, options, onDone);
       myImageRequests.add(request);
@@ -66,12 +68,17 @@ public class IconGenerationProcessor {
       return;
     }
 
-    myRunningRequest = myImageRequests.remove(0);
-    Worker worker = new Worker(myRunningRequest, () -> {
+    Request request = myImageRequests.remove(0);
+    Worker worker = new Worker(request, () -> {
       ApplicationManager.getApplication().assertIsDispatchThread();
-      myRunningRequest = null;
+      if (myRunningRequest == request) {
+        myRunningRequest = null;
+        myRunningWorker = null;
+      }
       processNextRequest();
     });
+    myRunningRequest = request;
+    myRunningWorker = worker;
     worker.execute();
   }
 
@@ -135,7 +142,11 @@ public class IconGenerationProcessor {
     protected void done() {
       ApplicationManager.getApplication().assertIsDispatchThread();
       try {
-        myRequest.done();
+        // The result of a superseded request is dropped. A cancelled worker is done as soon as it is cancelled, while its
+        // generation tasks are being interrupted.
+        if (!isCancelled()) {
+          myRequest.done();
+        }
       }
       finally {
         // Don't run immediately to allow things to settle down if necessary.
@@ -17,21 +17,48 @@ package com.android.tools.idea.rendering;
 
 import com.android.annotations.VisibleForTesting;
 import com.android.ide.common.resources.ResourceResolver;
-import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.util.ui.JBUI;
 import com.intellij.util.ui.UIUtil;
 import icons.AndroidIcons;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
-
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.android.SdkConstants.DOT_XML;
 
+/**
+ * Cache of the icons shown in the editor gutter for drawable resources.
+ * <p>
+ * Icons are kept in memory until the underlying file changes. Thumbnails of bitmaps are also written to disk, keyed by the
+ * path, a hash of the file contents and the requested size, so that reopening a project does not decode and scale every
+ * bitmap again. XML drawables are not stored on disk since their rendering depends on the resource resolver.
+ * <p>
+ * {@link #prefetch} lets the annotator compute icons on a background thread, so that painting the gutter usually finds
+ * them already in memory.
+ */
 public class GutterIconCache {
   private static final Logger LOG = Logger.getInstance(GutterIconCache.class);
   private static final Icon NONE = AndroidIcons.Android; // placeholder
@@ -39,18 +66,40 @@ public class GutterIconCache {
   @VisibleForTesting static final int MAX_WIDTH = JBUI.scale(16);
   @VisibleForTesting static final int MAX_HEIGHT = JBUI.scale(16);
 
-  private static final GutterIconCache ourInstance = new GutterIconCache();
+  /** Number of thumbnails kept on disk; the least recently used ones are deleted on the first write of a session. */
+  private static final int MAX_DISK_ENTRIES = 5000;
+  private static final String THUMBNAIL_EXTENSION = ".png";
+
+  private static final GutterIconCache ourInstance =
+    new GutterIconCache(new File(PathManager.getSystemPath(), "android" + File.separator + "gutter-icons"));
 
-  private Map<String, Icon> myThumbnailCache = Maps.newHashMap();
+  private final Map<String, Icon> myThumbnailCache = new ConcurrentHashMap<>();
 
   /**
    * Stores timestamps for the last modification time of image files using the
    * path as a key.
    */
-  private Map<String, Long> myModificationStampCache = Maps.newHashMap();
-  private boolean myRetina;
+  private final Map<String, Long> myModificationStampCache = new ConcurrentHashMap<>();
+  private volatile boolean myRetina;
+
+  /** Paths with a pending {@link #prefetch} request. */
+  private final Set<String> myPendingPrefetches = ConcurrentHashMap.newKeySet();
+  private final ExecutorService myPrefetchExecutor =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("GutterIconCache", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+  @Nullable private final File myDiskCacheDir;
+  private final AtomicBoolean myDiskCachePruned = new AtomicBoolean();
 
   public GutterIconCache() {
+    this(null);
+  }
+
+  /**
+   * Creates a cache which stores bitmap thumbnails in {@code diskCacheDir}, or only in memory if {@code diskCacheDir} is null.
+   */
+  @VisibleForTesting
+  GutterIconCache(@Nullable File diskCacheDir) {
+    myDiskCacheDir = diskCacheDir;
   }
 
   @NotNull
@@ -60,11 +109,12 @@ public class GutterIconCache {
 
   @VisibleForTesting
   boolean isIconUpToDate(@NotNull String path) {
-    if (myModificationStampCache.containsKey(path)) {
+    Long stamp = myModificationStampCache.get(path);
+    if (stamp != null) {
       // Entry is valid if image resource has not been modified since the entry was cached
       VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
       if (file != null) {
-        return myModificationStampCache.get(path) == file.getModificationStamp()
+        return stamp == file.getModificationStamp()
                && !FileDocumentManager.getInstance().isFileModified(file);
       }
     }
@@ -72,6 +122,26 @@ public class GutterIconCache {
     return false;
   }
 
+  /**
+   * Computes the icon for {@code path} on a background thread unless an up-to-date icon is already cached. Safe to call
+   * repeatedly; requests for a path that is already being computed are ignored.
+   */
+  public void prefetch(@NotNull String path, @Nullable ResourceResolver resolver) {
+    if (myThumbnailCache.containsKey(path) && myRetina == UIUtil.isRetina() && isIconUpToDate(path)) {
+      return;
+    }
+    if (myPendingPrefetches.add(path)) {
+      myPrefetchExecutor.execute(() -> {
+        try {
+          getIcon(path, resolver);
+        }
+        finally {
+          myPendingPrefetches.remove(path);
+        }
+      });
+    }
+  }
+
   @Nullable
   public Icon getIcon(@NotNull String path, @Nullable ResourceResolver resolver) {
     boolean isRetina = UIUtil.isRetina();
@@ -81,22 +151,113 @@ public class GutterIconCache {
     }
     Icon myIcon = myThumbnailCache.get(path);
     if (myIcon == null || !isIconUpToDate(path)) {
-      myIcon = GutterIconFactory.createIcon(path, resolver, MAX_WIDTH, MAX_HEIGHT);
+      // Record timestamp of image resource before rendering, so that a concurrent edit invalidates the entry
+      VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
+      long stamp = file != null ? file.getModificationStamp() : -1;
+
+      myIcon = createIcon(path, resolver, isRetina);
 
       if (myIcon == null) {
         myIcon = NONE;
       }
 
       myThumbnailCache.put(path, myIcon);
-
-      // Record timestamp of image resource at the time of caching
-      VirtualFile file = LocalFileSystem.getInstance().findFileByPath(path);
       if (file != null) {
-        myModificationStampCache.put(path, file.getModificationStamp());
+        myModificationStampCache.put(path, stamp);
       }
     }
 
     return myIcon != NONE ? myIcon : null;
   }
 
+  @Nullable
+  private Icon createIcon(@NotNull String path, @Nullable ResourceResolver resolver, boolean isRetina) {
+    if (path.endsWith(DOT_XML) || myDiskCacheDir == null) {
+      return GutterIconFactory.createIcon(path, resolver, MAX_WIDTH, MAX_HEIGHT);
+    }
+
+    File thumbnailFile = getThumbnailFile(path, isRetina);
+    if (thumbnailFile != null && thumbnailFile.isFile()) {
+      try {
+        BufferedImage thumbnail = ImageIO.read(thumbnailFile);
+        if (thumbnail != null) {
+          //noinspection ResultOfMethodCallIgnored
+          thumbnailFile.setLastModified(System.currentTimeMillis());
+          return GutterIconFactory.createThumbnailIcon(thumbnail, MAX_WIDTH, MAX_HEIGHT);
+        }
+      }
+      catch (IOException e) {
+        LOG.debug("Could not read cached thumbnail " + thumbnailFile, e);
+      }
+    }
+
+    BufferedImage thumbnail = GutterIconFactory.createBitmapThumbnail(path, MAX_WIDTH, MAX_HEIGHT);
+    if (thumbnail == null) {
+      return null;
+    }
+    if (thumbnailFile != null) {
+      writeThumbnail(thumbnail, thumbnailFile);
+    }
+    return GutterIconFactory.createThumbnailIcon(thumbnail, MAX_WIDTH, MAX_HEIGHT);
+  }
+
+  /**
+   * Returns the file the thumbnail of the bitmap at {@code path} is stored in, or null if the bitmap cannot be read.
+   */
+  @VisibleForTesting
+  @Nullable
+  File getThumbnailFile(@NotNull String path, boolean isRetina) {
+    if (myDiskCacheDir == null) {
+      return null;
+    }
+    File file = new File(path);
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      Hasher hasher = Hashing.sha256().newHasher()
+        .putString(path, StandardCharsets.UTF_8)
+        .putBytes(Files.asByteSource(file).hash(Hashing.murmur3_128()).asBytes())
+        .putInt(MAX_WIDTH)
+        .putInt(MAX_HEIGHT)
+        .putBoolean(isRetina);
+      return new File(myDiskCacheDir, hasher.hash().toString() + THUMBNAIL_EXTENSION);
+    }
+    catch (IOException e) {
+      LOG.debug("Could not hash " + path, e);
+      return null;
+    }
+  }
+
+  private void writeThumbnail(@NotNull BufferedImage thumbnail, @NotNull File thumbnailFile) {
+    assert myDiskCacheDir != null;
+    if (myDiskCachePruned.compareAndSet(false, true)) {
+      pruneDiskCache(myDiskCacheDir);
+    }
+    try {
+      FileUtil.createDirectory(myDiskCacheDir);
+      // Write to a temporary file first so that concurrent readers never see a partially written thumbnail.
+      File tempFile = FileUtil.createTempFile(myDiskCacheDir, thumbnailFile.getName(), ".tmp", true, false);
+      if (ImageIO.write(thumbnail, "png", tempFile)) {
+        FileUtil.rename(tempFile, thumbnailFile);
+      }
+      else {
+        FileUtil.delete(tempFile);
+      }
+    }
+    catch (IOException e) {
+      LOG.debug("Could not write cached thumbnail " + thumbnailFile, e);
+    }
+  }
+
+  private static void pruneDiskCache(@NotNull File diskCacheDir) {
+    File[] files = diskCacheDir.listFiles((dir, name) -> name.endsWith(THUMBNAIL_EXTENSION));
+    if (files == null || files.length <= MAX_DISK_ENTRIES) {
+      return;
+    }
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+    for (int i = MAX_DISK_ENTRIES; i < files.length; i++) {
+      FileUtil.delete(files[i]);
+    }
+  }
 }
@@ -185,9 +185,22 @@ public class GutterIconFactory {
 
   @Nullable
   private static Icon createBitmapIcon(@NotNull String path, int maxWidth, int maxHeight) {
+    BufferedImage thumbnail = createBitmapThumbnail(path, maxWidth, maxHeight);
+    return thumbnail != null ? createThumbnailIcon(thumbnail, maxWidth, maxHeight) : null;
+  }
+
+  /**
+   * Reads the bitmap at {@code path} and scales it down for display in the gutter. On retina displays the returned image is
+   * twice the requested size (and so exceeds {@code maxWidth} or {@code maxHeight}); {@link #createThumbnailIcon} turns it
+   * back into an icon of the right size. Returns null if the image cannot be read.
+   */
+  @Nullable
+  static BufferedImage createBitmapThumbnail(@NotNull String path, int maxWidth, int maxHeight) {
     try {
-      Icon icon = createBitmapIcon(ImageIO.read(new File(path)), maxWidth, maxHeight);
-      if (icon != null) return icon;
+      BufferedImage image = ImageIO.read(new File(path));
+      if (image != null) {
+        return createBitmapThumbnail(image, maxWidth, maxHeight);
+      }
     }
     catch (Throwable e) {
       // Not just IOExceptions here; for example, we've seen
@@ -198,42 +211,54 @@ public class GutterIconFactory {
     return null;
   }
 
-  @Nullable
-  private static Icon createBitmapIcon(BufferedImage image, int maxWidth, int maxHeight) {
-    if (image != null) {
-      int imageWidth = image.getWidth();
-      int imageHeight = image.getHeight();
-      if (isRetinaEnabled() && (imageWidth > ImageUtils.RETINA_SCALE * maxWidth || imageHeight > ImageUtils.RETINA_SCALE * maxHeight)) {
-        double scale = ImageUtils.RETINA_SCALE * Math.min(maxWidth / (double)imageWidth, maxHeight / (double)imageHeight);
-        BufferedImage scaled = ImageUtils.scale(image, scale, scale);
-        RetinaImageIcon retinaIcon = getRetinaIcon(scaled);
-        if (retinaIcon != null) {
-          return retinaIcon;
-        }
-      }
+  @NotNull
+  private static BufferedImage createBitmapThumbnail(@NotNull BufferedImage image, int maxWidth, int maxHeight) {
+    int imageWidth = image.getWidth();
+    int imageHeight = image.getHeight();
+    if (isRetinaEnabled() && (imageWidth > ImageUtils.RETINA_SCALE * maxWidth || imageHeight > ImageUtils.RETINA_SCALE * maxHeight)) {
+      double scale = ImageUtils.RETINA_SCALE * Math.min(maxWidth / (double)imageWidth, maxHeight / (double)imageHeight);
+      return ImageUtils.scale(image, scale, scale);
+    }
 
-      if (imageWidth > maxWidth || imageHeight > maxHeight) {
-        double scale = Math.min(maxWidth / (double)imageWidth, maxHeight / (double)imageHeight);
-
-        if (image.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
-          // Indexed images look terrible if they are scaled directly; instead, paint into an ARGB blank image
-          BufferedImage bg = UIUtil.createImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-          Graphics g = bg.getGraphics();
-          //noinspection UseJBColor
-          g.setColor(Gray.TRANSPARENT);
-          g.fillRect(0, 0, bg.getWidth(), bg.getHeight());
-          //noinspection ConstantConditions
-          UIUtil.drawImage(g, image, 0, 0, null);
-          g.dispose();
-          image = bg;
-        }
+    if (imageWidth > maxWidth || imageHeight > maxHeight) {
+      double scale = Math.min(maxWidth / (double)imageWidth, maxHeight / (double)imageHeight);
 
-        image = ImageUtils.scale(image, scale, scale);
+      if (image.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
+        // Indexed images look terrible if they are scaled directly; instead, paint into an ARGB blank image
+        BufferedImage bg = UIUtil.createImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = bg.getGraphics();
+        //noinspection UseJBColor
+        g.setColor(Gray.TRANSPARENT);
+        g.fillRect(0, 0, bg.getWidth(), bg.getHeight());
+        //noinspection ConstantConditions
+        UIUtil.drawImage(g, image, 0, 0, null);
+        g.dispose();
+        image = bg;
       }
 
-      return new ImageIcon(image);
+      image = ImageUtils.scale(image, scale, scale);
     }
-    return null;
+
+    return image;
+  }
+
+  /**
+   * Returns an icon for a thumbnail produced by {@link #createBitmapThumbnail(String, int, int)}.
+   */
+  @NotNull
+  static Icon createThumbnailIcon(@NotNull BufferedImage thumbnail, int maxWidth, int maxHeight) {
+    int width = thumbnail.getWidth();
+    int height = thumbnail.getHeight();
+    if (width > maxWidth || height > maxHeight) {
+      // A retina thumbnail
+      RetinaImageIcon retinaIcon = getRetinaIcon(thumbnail);
+      if (retinaIcon != null) {
+        return retinaIcon;
+      }
+      double scale = Math.min(maxWidth / (double)width, maxHeight / (double)height);
+      return new ImageIcon(ImageUtils.scale(thumbnail, scale, scale));
+    }
+    return new ImageIcon(thumbnail);
   }
 
   /**
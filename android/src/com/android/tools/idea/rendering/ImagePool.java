@@ -3,22 +3,21 @@ package com.android.tools.idea.rendering;
 import com.android.annotations.VisibleForTesting;
 import com.google.common.base.FinalizablePhantomReference;
 import com.google.common.base.FinalizableReferenceQueue;
-import com.google.common.collect.EvictingQueue;
-import com.google.common.collect.ForwardingQueue;
 import com.google.common.collect.Sets;
+import com.intellij.openapi.util.LowMemoryWatcher;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.annotation.concurrent.GuardedBy;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.awt.image.ImageObserver;
 import java.awt.image.WritableRaster;
 import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -26,6 +25,10 @@ import java.util.function.Function;
  * Class that offers a pool of {@link BufferedImage}s. The returned {@link Image} do not offer a direct access
  * to the underlying {@link BufferedImage} to avoid clients holding references to it.
  * Once the {@link Image} is not being referenced anymore, it will be automatically returned to the pool.
+ * <p>
+ * The pool holds the released images strongly, up to a maximum number of bytes. When the budget is exceeded, the images that were
+ * released the longest time ago are dropped first, whatever their bucket. Unless a budget is given, all the pools of the process share a
+ * single budget, and the images they hold are dropped when the IDE runs low on memory.
  */
 @SuppressWarnings("ALL")
 public class ImagePool {
@@ -59,8 +62,24 @@ public class ImagePool {
   private static final boolean DEBUG = false;
   private static final Bucket NULL_BUCKET = new Bucket(0, 0, 0);
   private final int[] myBucketSizes;
-  private final HashMap<String, Bucket> myPool = new HashMap<>();
   private final BiFunction<Integer, Integer, Function<Integer, Integer>> myBucketSizingPolicy;
+  private static final Budget ourSharedBudget = new Budget(getDefaultMaxPoolBytes());
+  @SuppressWarnings("unused") // The watcher is only kept while it is referenced
+  private static final LowMemoryWatcher ourLowMemoryWatcher = LowMemoryWatcher.register(ourSharedBudget::evictAll);
+  // The budget of the pool is also the lock guarding the state of all the pools sharing it
+  private final Budget myLock;
+  @GuardedBy("myLock")
+  private final HashMap<String, Bucket> myPool = new HashMap<>();
+  @GuardedBy("myLock")
+  private int myPooledImages;
+  @GuardedBy("myLock")
+  private long myPooledBytes;
+  @GuardedBy("myLock")
+  private long myHits;
+  @GuardedBy("myLock")
+  private long myMisses;
+  @GuardedBy("myLock")
+  private long myEvictions;
   @SuppressWarnings("IOResourceOpenedButNotSafelyClosed")
   private final FinalizableReferenceQueue myFinalizableReferenceQueue = new FinalizableReferenceQueue();
   private final Set<Reference<?>> myReferences = Sets.newConcurrentHashSet();
@@ -68,26 +87,50 @@ public class ImagePool {
   /**
    * Constructs a new {@link ImagePool} with a custom queue sizing policy. The passed bucketSizingPolicy will be called
    * every time that a new cache is needed for a given (width, height) -> (imageType).
-   * The return value from calling that function will be the size of the EvictingQueue used for caching the pooled
-   * images.
+   * The return value from calling that function will be the maximum number of pooled images kept for that bucket.
    * @param bucketSizes Array containing a list of the allowed bucket sizes. The images will be allocated into a bucket that fits its two
    *                    dimensions. If an image contains one dimension bigger than the biggest given bucket size, the image won't be
    *                    allocated into the pool.
    * @param bucketSizingPolicy Function that returns the maximum size for a given bucket. The bucket is defined by width, height and image
    *                           type. If the returned size is 0, no pooling will be done for that bucket size.
+   * @param maxPoolBytes Maximum number of bytes of the images kept in the pool, across all buckets.
+   */
+  public ImagePool(@NotNull int[] bucketSizes,
+                   @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy,
+                   long maxPoolBytes) {
+    this(bucketSizes, bucketSizingPolicy, new Budget(maxPoolBytes));
+  }
+
+  /**
+   * Constructs a new {@link ImagePool} sharing the default budget of the process with the other pools.
    */
   public ImagePool(@NotNull int[] bucketSizes, @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy) {
+    this(bucketSizes, bucketSizingPolicy, ourSharedBudget);
+  }
+
+  @VisibleForTesting
+  ImagePool(@NotNull int[] bucketSizes,
+            @NotNull BiFunction<Integer, Integer, Function<Integer, Integer>> bucketSizingPolicy,
+            @NotNull Budget budget) {
     if (DEBUG) {
       System.out.println("New ImagePool");
     }
     myBucketSizes = bucketSizes;
     Arrays.sort(myBucketSizes);
     myBucketSizingPolicy = bucketSizingPolicy;
+    myLock = budget;
+  }
+
+  /**
+   * Returns the default budget shared by the pools, an eighth of the maximum heap size capped to 512MB.
+   */
+  private static long getDefaultMaxPoolBytes() {
+    return Math.min(Runtime.getRuntime().maxMemory() / 8, 512L * 1024 * 1024);
   }
-  private boolean isDisposed = false;
+  private volatile boolean isDisposed = false;
 
   /**
-   * Returns the key to be used for indexing the {@link EvictingQueue}.
+   * Returns the key to be used for indexing the buckets.
    */
   @NotNull
   private static String getPoolKey(int w, int h, int type) {
@@ -152,16 +195,81 @@ public class ImagePool {
 
     int finalWidthBucket = widthBucket;
     int finalHeightBucket = heightBucket;
-    return myPool.computeIfAbsent(poolKey, (k) -> {
-      int size = myBucketSizingPolicy.apply(finalWidthBucket, finalHeightBucket).apply(type);
+    synchronized (myLock) {
+      return myPool.computeIfAbsent(poolKey, (k) -> {
+        int size = myBucketSizingPolicy.apply(finalWidthBucket, finalHeightBucket).apply(type);
+
+        if (size == 0) {
+          // For size 0, do not allocate extra memory for a new bucket.
+          return NULL_BUCKET;
+        }
 
-      if (size == 0) {
-        // For size 0, do not allocate extra memory for a new EvictingQueue.
-        return NULL_BUCKET;
+        return new Bucket(finalWidthBucket, finalHeightBucket, size);
+      });
+    }
+  }
+
+  /**
+   * Takes the most recently released image of the bucket, or returns null if there is none.
+   */
+  @Nullable
+  private BufferedImage take(@NotNull Bucket bucket) {
+    if (bucket == NULL_BUCKET) {
+      return null;
+    }
+    synchronized (myLock) {
+      PooledBuffer buffer = bucket.myPooledBuffers.pollLast();
+      if (buffer == null) {
+        myMisses++;
+        return null;
       }
+      myLock.myPooledBuffers.remove(buffer);
+      myLock.myPooledBytes -= buffer.myBytes;
+      myPooledImages--;
+      myPooledBytes -= buffer.myBytes;
+      myHits++;
+      return buffer.myImage;
+    }
+  }
 
-      return new Bucket(finalWidthBucket, finalHeightBucket, size);
-    });
+  /**
+   * Returns the image to the bucket, and drops the least recently released images of the pools sharing the budget if it's now exceeded.
+   *
+   * @return whether the image was accepted into the pool
+   */
+  private boolean release(@NotNull Bucket bucket, @NotNull BufferedImage image) {
+    if (bucket == NULL_BUCKET) {
+      return false;
+    }
+    long bytes = getByteSize(image);
+    synchronized (myLock) {
+      if (isDisposed || bytes > myLock.myMaxBytes || bucket.myPooledBuffers.size() >= bucket.myMaxSize) {
+        return false;
+      }
+      PooledBuffer buffer = new PooledBuffer(this, bucket, image, bytes);
+      bucket.myPooledBuffers.addLast(buffer);
+      myLock.myPooledBuffers.add(buffer);
+      myLock.myPooledBytes += bytes;
+      myPooledImages++;
+      myPooledBytes += bytes;
+      myLock.evictWhile(() -> myLock.myPooledBytes > myLock.myMaxBytes);
+      return true;
+    }
+  }
+
+  private static long getByteSize(@NotNull BufferedImage image) {
+    DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+    return (long)dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+  }
+
+  /**
+   * Returns the usage counters of the pool, for diagnostics.
+   */
+  @NotNull
+  public Stats getStats() {
+    synchronized (myLock) {
+      return new Stats(myHits, myMisses, myEvictions, myPooledImages, myPooledBytes, myLock.myMaxBytes);
+    }
   }
 
   @VisibleForTesting
@@ -169,19 +277,14 @@ public class ImagePool {
   ImageImpl create(final int w, final int h, final int type, @Nullable Consumer<BufferedImage> freedCallback) {
     assert !isDisposed : "ImagePool already disposed";
 
-    // To avoid creating a large number of EvictingQueues, we distribute the images in buckets and use that
+    // To avoid creating a large number of buckets, we distribute the images in buckets of a few sizes and use that
     Bucket bucket = getTypeBucket(w, h, type);
     if (DEBUG) {
       System.out.printf("create(%dx%d-%d) in bucket (%dx%d)\n", w, h, type, bucket.myMinWidth, bucket.myMinHeight);
     }
 
-    BufferedImage image;
-    SoftReference<BufferedImage> imageRef;
-    try {
-      imageRef = bucket.remove();
-      while ((image = imageRef.get()) == null) {
-        imageRef = bucket.remove();
-      }
+    BufferedImage image = take(bucket);
+    if (image != null) {
       if (DEBUG) {
         long totalSize = image.getWidth() * image.getHeight();
         double wasted = (totalSize - w * h);
@@ -196,7 +299,7 @@ public class ImagePool {
       g.fillRect(0, 0, w, h);
       g.dispose();
     }
-    catch (NoSuchElementException e) {
+    else {
       if (DEBUG) {
         System.out.printf("  New image %dx%d - %d\n", w, h, type);
       }
@@ -211,7 +314,7 @@ public class ImagePool {
       public void finalizeReferent() {
         // This method might be called twice if the user has manually called the free() method. The second call will have no effect.
         if (myReferences.remove(this)) {
-          boolean accepted = bucket.offer(new SoftReference<>(imagePointer));
+          boolean accepted = release(bucket, imagePointer);
           if (DEBUG) {
             System.out.printf("%s image (%dx%d-%d) in bucket (%dx%d)\n",
                               accepted ? "Released" : "Rejected",
@@ -229,24 +332,137 @@ public class ImagePool {
     return pooledImage;
   }
 
-  private static class Bucket extends ForwardingQueue<SoftReference<BufferedImage>> {
-    private final Queue<SoftReference<BufferedImage>> myDelegate;
-    private final AtomicLong myLastAccess = new AtomicLong(System.currentTimeMillis());
+  private static class Bucket {
+    // Released images of this bucket, in the order they were released. Guarded by the pool lock.
+    private final ArrayDeque<PooledBuffer> myPooledBuffers = new ArrayDeque<>();
     private final int myMinWidth;
     private final int myMinHeight;
+    private final int myMaxSize;
 
     public Bucket(int minWidth, int minHeight, int maxSize) {
       myMinWidth = minWidth;
       myMinHeight = minHeight;
-      myDelegate = maxSize == 0 ?
-                   EvictingQueue.create(0)
-                   : new ArrayBlockingQueue<SoftReference<BufferedImage>>(maxSize);
+      myMaxSize = maxSize;
+    }
+  }
+
+  /**
+   * Maximum number of bytes of the released images kept by one or more pools. Its monitor guards the state of all those pools, so that
+   * releasing an image to one of them can drop the images of the others.
+   */
+  @VisibleForTesting
+  static class Budget {
+    private final long myMaxBytes;
+    // Released images of all the pools, in the order they were released
+    @GuardedBy("this")
+    private final LinkedHashSet<PooledBuffer> myPooledBuffers = new LinkedHashSet<>();
+    @GuardedBy("this")
+    private long myPooledBytes;
+
+    Budget(long maxBytes) {
+      myMaxBytes = maxBytes;
+    }
+
+    /**
+     * Drops the least recently released images while the condition holds.
+     */
+    @GuardedBy("this")
+    private void evictWhile(@NotNull BooleanSupplier condition) {
+      Iterator<PooledBuffer> oldest = myPooledBuffers.iterator();
+      while (oldest.hasNext() && condition.getAsBoolean()) {
+        PooledBuffer evicted = oldest.next();
+        oldest.remove();
+        // The buffers of a bucket are in release order too, so this is the first one of its bucket
+        evicted.myBucket.myPooledBuffers.removeFirstOccurrence(evicted);
+        myPooledBytes -= evicted.myBytes;
+        evicted.myPool.myPooledImages--;
+        evicted.myPool.myPooledBytes -= evicted.myBytes;
+        evicted.myPool.myEvictions++;
+      }
+    }
+
+    /**
+     * Drops all the released images, when memory runs low.
+     */
+    synchronized void evictAll() {
+      evictWhile(() -> true);
+    }
+  }
+
+  /**
+   * An image released to a pool, waiting to be reused.
+   */
+  private static class PooledBuffer {
+    private final ImagePool myPool;
+    private final Bucket myBucket;
+    private final BufferedImage myImage;
+    private final long myBytes;
+
+    private PooledBuffer(@NotNull ImagePool pool, @NotNull Bucket bucket, @NotNull BufferedImage image, long bytes) {
+      myPool = pool;
+      myBucket = bucket;
+      myImage = image;
+      myBytes = bytes;
+    }
+  }
+
+  /**
+   * Usage counters of an {@link ImagePool}.
+   */
+  public static class Stats {
+    private final long myHits;
+    private final long myMisses;
+    private final long myEvictions;
+    private final int myPooledImages;
+    private final long myPooledBytes;
+    private final long myMaxPooledBytes;
+
+    private Stats(long hits, long misses, long evictions, int pooledImages, long pooledBytes, long maxPooledBytes) {
+      myHits = hits;
+      myMisses = misses;
+      myEvictions = evictions;
+      myPooledImages = pooledImages;
+      myPooledBytes = pooledBytes;
+      myMaxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Number of images created by reusing a pooled image
+     */
+    public long getHits() {
+      return myHits;
+    }
+
+    /**
+     * Number of poolable images that had to be allocated because their bucket was empty
+     */
+    public long getMisses() {
+      return myMisses;
+    }
+
+    /**
+     * Number of pooled images dropped to keep the pool within its budget
+     */
+    public long getEvictions() {
+      return myEvictions;
+    }
+
+    public int getPooledImages() {
+      return myPooledImages;
+    }
+
+    public long getPooledBytes() {
+      return myPooledBytes;
+    }
+
+    public long getMaxPooledBytes() {
+      return myMaxPooledBytes;
     }
 
     @Override
-    protected Queue<SoftReference<BufferedImage>> delegate() {
-      myLastAccess.set(System.currentTimeMillis());
-      return myDelegate;
+    public String toString() {
+      return String.format("ImagePool: %d hits, %d misses, %d evictions, %d images (%d/%d bytes)",
+                           myHits, myMisses, myEvictions, myPooledImages, myPooledBytes, myMaxPooledBytes);
     }
   }
 
@@ -281,10 +497,20 @@ public class ImagePool {
    * Disposes the image pool
    */
   public void dispose() {
-    isDisposed = true;
     myFinalizableReferenceQueue.close();
     myReferences.clear();
-    myPool.clear();
+    synchronized (myLock) {
+      isDisposed = true;
+      for (Bucket bucket : myPool.values()) {
+        for (PooledBuffer buffer : bucket.myPooledBuffers) {
+          myLock.myPooledBuffers.remove(buffer);
+          myLock.myPooledBytes -= buffer.myBytes;
+        }
+      }
+      myPool.clear();
+      myPooledImages = 0;
+      myPooledBytes = 0;
+    }
   }
 
   /**
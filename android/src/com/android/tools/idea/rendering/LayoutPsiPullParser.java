@@ -25,6 +25,7 @@ import com.android.tools.idea.AndroidPsiUtils;
 import com.android.tools.idea.res.ResourceHelper;
 import com.google.common.base.Splitter;
 import com.google.common.collect.*;
+import gnu.trove.TIntArrayList;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.text.StringUtil;
@@ -97,6 +98,10 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
   @NotNull
   private final List<TagSnapshot> myNodeStack = new ArrayList<>();
 
+  /** Index of each node of {@link #myNodeStack} in the children of its parent */
+  @NotNull
+  private final TIntArrayList myChildIndexStack = new TIntArrayList();
+
   @Nullable
   protected final TagSnapshot myRoot;
 
@@ -612,6 +617,7 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
   @Override
   protected void onNextFromStartDocument() {
     if (myRoot != null) {
+      myChildIndexStack.add(0);
       push(myRoot);
       myParsingState = START_TAG;
     } else {
@@ -627,6 +633,7 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
     List<TagSnapshot> children = node.children;
     if (!children.isEmpty()) {
       // move to the new child, and don't change the state.
+      myChildIndexStack.add(0);
       push(children.get(0));
 
       // in case the current state is CURRENT_DOC, we set the proper state.
@@ -649,18 +656,22 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
     TagSnapshot node = getCurrentNode();
     assert node != null;  // Should only be called when END_TAG
 
-    TagSnapshot sibling = node.getNextSibling();
-    if (sibling != null) {
-      node = sibling;
+    // Snapshots can be shared between trees, so siblings are found through the parent rather than stored in the snapshots
+    TagSnapshot parent = getPreviousNode();
+    int siblingIndex = myChildIndexStack.get(myChildIndexStack.size() - 1) + 1;
+    if (parent != null && siblingIndex < parent.children.size()) {
+      node = parent.children.get(siblingIndex);
       // to go to the sibling, we need to remove the current node,
       pop();
       // and add its sibling.
+      myChildIndexStack.set(myChildIndexStack.size() - 1, siblingIndex);
       push(node);
       myParsingState = START_TAG;
     }
     else {
       // move back to the parent
       pop();
+      myChildIndexStack.remove(myChildIndexStack.size() - 1);
 
       // we have only one element left (myRoot), then we're done with the document.
       if (myNodeStack.isEmpty()) {
@@ -706,7 +717,10 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
   @Nullable
   private static TagSnapshot createSnapshot(@NotNull XmlTag tag, boolean honorMergeParentTag) {
     Consumer<TagSnapshot> tagDecorator = TAG_SNAPSHOT_DECORATOR;
+    // Snapshots of unmodified tags are reused from previous renders, unless the decorator depends on the position of the tag
+    TagSnapshotCache cache = TagSnapshotCache.getInstance(tag.getProject());
     if (tag.getName().equals(TAG_LAYOUT)) {
+      cache = null;
       // If we are creating a snapshot of a databinding layout (the root tag is <layout>), we need to emulate some post-processing that
       // the databinding code does in the layouts.
       // For all the children of the root tag, it adds a tag that identifies. The tag is "layout/layout_name_<number>"
@@ -743,13 +757,14 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
         return createSnapshotForViewFragment(tag);
 
       case FRAME_LAYOUT:
+        // The root snapshot and its children are modified after their creation, so they can't be shared
         return createSnapshotForFrameLayout(tag, tagDecorator);
 
       case VIEW_MERGE:
-        return createSnapshotForMerge(tag, honorMergeParentTag, tagDecorator);
+        return createSnapshotForMerge(tag, honorMergeParentTag, tagDecorator, cache);
 
       default:
-        return TagSnapshot.createTagSnapshot(tag, tagDecorator);
+        return TagSnapshot.createTagSnapshot(tag, tagDecorator, cache);
     }
   }
 
@@ -838,8 +853,9 @@ public class LayoutPsiPullParser extends LayoutPullParser implements AaptAttrPar
   @NotNull
   private static TagSnapshot createSnapshotForMerge(@NotNull XmlTag rootTag,
                                                     boolean honorMergeParentTag,
-                                                    @NotNull Consumer<TagSnapshot> tagDecorator) {
-    TagSnapshot root = TagSnapshot.createTagSnapshot(rootTag, tagDecorator);
+                                                    @NotNull Consumer<TagSnapshot> tagDecorator,
+                                                    @Nullable TagSnapshotCache cache) {
+    TagSnapshot root = TagSnapshot.createTagSnapshot(rootTag, tagDecorator, cache);
     String parentTag = honorMergeParentTag ? rootTag.getAttributeValue(ATTR_PARENT_TAG, TOOLS_URI) : null;
     if (parentTag == null) {
       return root;
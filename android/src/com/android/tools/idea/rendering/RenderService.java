@@ -54,8 +54,10 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.android.SdkConstants.TAG_PREFERENCE_SCREEN;
@@ -65,6 +67,27 @@ import static com.intellij.lang.annotation.HighlightSeverity.ERROR;
  * The {@link RenderService} provides rendering and layout information for Android layouts. This is a wrapper around the layout library.
  */
 public class RenderService extends AndroidFacetScopedService {
+  /**
+   * Priority of the actions run on the render thread. Pending actions with a higher priority run first, actions with the same
+   * priority run in the order they were submitted.
+   * <p/>
+   * Pending actions age so that a steady stream of urgent renders can not starve the others: an action is only overtaken by the
+   * more urgent actions submitted less than {@link #myMaxOvertakes} actions after it.
+   */
+  public enum RenderingPriority {
+    /** Renders the user is waiting for, like the ones of the visible layout editor. */
+    HIGH(0),
+    NORMAL(16),
+    /** Background renders, like thumbnails and palette previews. */
+    LOW(64);
+
+    private final int myMaxOvertakes;
+
+    RenderingPriority(int maxOvertakes) {
+      myMaxOvertakes = maxOvertakes;
+    }
+  }
+
   /** Number of ms that we will wait for the rendering thread to return before timing out */
   private static final long DEFAULT_RENDER_THREAD_TIMEOUT_MS = Long.getLong("layoutlib.thread.timeout",
                                                                             TimeUnit.SECONDS.toMillis(
@@ -77,7 +100,10 @@ public class RenderService extends AndroidFacetScopedService {
   @VisibleForTesting
   public static long ourRenderThreadTimeoutMs = DEFAULT_RENDER_THREAD_TIMEOUT_MS;
   private static final AtomicReference<Thread> ourRenderingThread = new AtomicReference<>();
-  private static ExecutorService ourRenderingExecutor;
+  private static ThreadPoolExecutor ourRenderingExecutor;
+  private static final AtomicLong ourRenderActionCounter = new AtomicLong();
+  /** Render actions that have not started yet, by the key that a newer action can use to supersede them. */
+  private static final Map<Object, PrioritizedRenderAction> ourPendingActionsBySupersedeKey = new ConcurrentHashMap<>();
   private static final AtomicInteger ourTimeoutExceptionCounter = new AtomicInteger(0);
 
   private static final Key<RenderService> KEY = Key.create(RenderService.class.getName());
@@ -89,9 +115,11 @@ public class RenderService extends AndroidFacetScopedService {
   }
 
   private static void innerInitializeRenderExecutor() {
+    // Layoutlib keeps global state and serializes render sessions internally, so a single thread runs all the render actions.
+    // Actions are picked by priority instead, so the visible editor does not wait behind background previews.
     ourRenderingExecutor = new ThreadPoolExecutor(0, 1,
                              RENDER_THREAD_IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS,
-                             new LinkedBlockingQueue<>(),
+                             new PriorityBlockingQueue<>(),
                              (Runnable r) -> {
                                Thread renderingThread =
                                  new Thread(null, r, "Layoutlib Render Thread");
@@ -111,6 +139,7 @@ public class RenderService extends AndroidFacetScopedService {
 
   private static void shutdownRenderExecutor() {
     ourRenderingExecutor.shutdownNow();
+    ourPendingActionsBySupersedeKey.clear();
     Thread currentThread = ourRenderingThread.getAndSet(null);
     if (currentThread != null) {
       currentThread.interrupt();
@@ -324,6 +353,14 @@ public class RenderService extends AndroidFacetScopedService {
     return getModule().getProject();
   }
 
+  /**
+   * Returns the usage counters of the pool of rendered images of this service, for diagnostics.
+   */
+  @NotNull
+  public ImagePool.Stats getImagePoolStats() {
+    return myImagePool.getStats();
+  }
+
   @Nullable
   public AndroidPlatform getPlatform() {
     return AndroidPlatform.getInstance(getModule());
@@ -368,13 +405,21 @@ public class RenderService extends AndroidFacetScopedService {
    * method.
    */
   public static <T> T runRenderAction(@NotNull Callable<T> callable) throws Exception {
+    return runRenderAction(callable, RenderingPriority.NORMAL);
+  }
+
+  /**
+   * Runs a action that requires the rendering lock with the given priority. Layoutlib is not thread safe so any rendering actions
+   * should be called using this method.
+   */
+  public static <T> T runRenderAction(@NotNull Callable<T> callable, @NotNull RenderingPriority priority) throws Exception {
     try {
       // If the number of timeouts exceeds a certain threshold, stop waiting so the caller doesn't block. We try to submit a task that
       // clean-up the timeout counter instead. If it goes through, it means the queue is free.
       if (ourTimeoutExceptionCounter.get() > 3) {
-        ourRenderingExecutor.submit(() -> ourTimeoutExceptionCounter.set(0)).get(50, TimeUnit.MILLISECONDS);
+        enqueue(Executors.callable(() -> ourTimeoutExceptionCounter.set(0)), priority, null).get(50, TimeUnit.MILLISECONDS);
       }
-      T result = ourRenderingExecutor.submit(callable).get(ourRenderThreadTimeoutMs, TimeUnit.MILLISECONDS);
+      T result = enqueue(callable, priority, null).get(ourRenderThreadTimeoutMs, TimeUnit.MILLISECONDS);
       // The executor seems to be taking tasks so reset the counter
       ourTimeoutExceptionCounter.set(0);
 
@@ -402,10 +447,21 @@ public class RenderService extends AndroidFacetScopedService {
    */
   @NotNull
   public static <T> ListenableFuture<T> runAsyncRenderAction(@NotNull Callable<T> callable) {
-    ListenableFutureTask<T> future = ListenableFutureTask.create(callable);
-    ourRenderingExecutor.submit(future);
+    return runAsyncRenderAction(callable, RenderingPriority.NORMAL, null);
+  }
 
-    return future;
+  /**
+   * Runs an action that requires the rendering lock asynchronously, with the given priority.
+   * <p/>
+   * If {@code supersedeKey} is not null, a previously submitted action with the same key that has not started running yet is
+   * discarded and its future cancelled: only the most recent action for a key is worth running, e.g. a render of a layout that
+   * changed again since it was requested. Callers of actions submitted with a key must expect a {@link CancellationException}.
+   */
+  @NotNull
+  public static <T> ListenableFuture<T> runAsyncRenderAction(@NotNull Callable<T> callable,
+                                                             @NotNull RenderingPriority priority,
+                                                             @Nullable Object supersedeKey) {
+    return enqueue(callable, priority, supersedeKey);
   }
 
   /**
@@ -415,9 +471,66 @@ public class RenderService extends AndroidFacetScopedService {
    * This method will run the passed action asynchronously
    */
   public static void runAsyncRenderAction(@NotNull Runnable runnable) {
-    ourRenderingExecutor.submit(runnable);
+    enqueue(Executors.callable(runnable), RenderingPriority.NORMAL, null);
+  }
+
+  @NotNull
+  private static <T> ListenableFuture<T> enqueue(@NotNull Callable<T> callable,
+                                                 @NotNull RenderingPriority priority,
+                                                 @Nullable Object supersedeKey) {
+    ListenableFutureTask<T> future = ListenableFutureTask.create(callable);
+    PrioritizedRenderAction action =
+      new PrioritizedRenderAction(future, priority, ourRenderActionCounter.getAndIncrement(), supersedeKey);
+    if (supersedeKey != null) {
+      PrioritizedRenderAction superseded = ourPendingActionsBySupersedeKey.put(supersedeKey, action);
+      // Only discard the previous action if it was still in the queue; if it is already running, let it finish.
+      if (superseded != null && ourRenderingExecutor.remove(superseded)) {
+        superseded.myFuture.cancel(false);
+      }
+    }
+    ourRenderingExecutor.execute(action);
+    return future;
   }
 
+  /**
+   * A render action waiting in the queue of the render thread. Actions are ordered by the position in the submission order they
+   * must run at the latest, then by priority and then by submission order.
+   */
+  private static class PrioritizedRenderAction implements Runnable, Comparable<PrioritizedRenderAction> {
+    @NotNull private final RunnableFuture<?> myFuture;
+    @NotNull private final RenderingPriority myPriority;
+    private final long mySequenceNumber;
+    private final long myDeadline;
+    @Nullable private final Object mySupersedeKey;
+
+    PrioritizedRenderAction(@NotNull RunnableFuture<?> future,
+                            @NotNull RenderingPriority priority,
+                            long sequenceNumber,
+                            @Nullable Object supersedeKey) {
+      myFuture = future;
+      myPriority = priority;
+      mySequenceNumber = sequenceNumber;
+      myDeadline = sequenceNumber + priority.myMaxOvertakes;
+      mySupersedeKey = supersedeKey;
+    }
+
+    @Override
+    public void run() {
+      if (mySupersedeKey != null) {
+        ourPendingActionsBySupersedeKey.remove(mySupersedeKey, this);
+      }
+      myFuture.run();
+    }
+
+    @Override
+    public int compareTo(@NotNull PrioritizedRenderAction other) {
+      int result = Long.compare(myDeadline, other.myDeadline);
+      if (result == 0) {
+        result = myPriority.compareTo(other.myPriority);
+      }
+      return result != 0 ? result : Long.compare(mySequenceNumber, other.mySequenceNumber);
+    }
+  }
 
   /**
    * Given a {@link ViewInfo} from a layoutlib rendering, checks that the view info provides
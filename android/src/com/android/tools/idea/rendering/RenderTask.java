@@ -147,6 +147,10 @@ public class RenderTask implements IImageFactory {
   private CrashReporter myCrashReporter;
 
   private final List<ListenableFuture<?>> myRunningFutures = new LinkedList<>();
+  @NotNull private RenderService.RenderingPriority myPriority = RenderService.RenderingPriority.NORMAL;
+  /** Keys used to discard pending layout and render actions of this task that have been superseded by newer ones. */
+  private final Object myLayoutSupersedeKey = new Object();
+  private final Object myRenderSupersedeKey = new Object();
   private AtomicBoolean isDisposed = new AtomicBoolean(false);
 
   /**
@@ -353,6 +357,19 @@ public class RenderTask implements IImageFactory {
     return this;
   }
 
+  /**
+   * Sets the priority of the render actions of this task, relative to the ones of other tasks. The default is
+   * {@link RenderService.RenderingPriority#NORMAL}.
+   *
+   * @return this (such that chains of setters can be stringed together)
+   */
+  @SuppressWarnings("UnusedReturnValue")
+  @NotNull
+  public RenderTask setPriority(@NotNull RenderService.RenderingPriority priority) {
+    myPriority = priority;
+    return this;
+  }
+
   /**
    * Sets the overriding background color to be used, if any. The color should be a
    * bitmask of AARRGGBB. The default is null.
@@ -634,12 +651,21 @@ public class RenderTask implements IImageFactory {
   @VisibleForTesting
   @NotNull
   <V> ListenableFuture<V> runAsyncRenderAction(@NotNull Callable<V> callable) {
+    return runAsyncRenderAction(callable, null);
+  }
+
+  /**
+   * Like {@link #runAsyncRenderAction(Callable)}, but if {@code supersedeKey} is not null, a pending action submitted with the same key
+   * that has not started yet is cancelled.
+   */
+  @NotNull
+  private <V> ListenableFuture<V> runAsyncRenderAction(@NotNull Callable<V> callable, @Nullable Object supersedeKey) {
     if (isDisposed.get()) {
       return Futures.immediateFailedFuture(new IllegalStateException("RenderTask was already disposed"));
     }
 
     synchronized (myRunningFutures) {
-      ListenableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable);
+      ListenableFuture<V> newFuture = RenderService.runAsyncRenderAction(callable, myPriority, supersedeKey);
       Futures.addCallback(newFuture, new FutureCallback<V>() {
         @Override
         public void onSuccess(@Nullable V result) {
@@ -682,7 +708,7 @@ public class RenderTask implements IImageFactory {
 
         //noinspection UndesirableClassUsage
         return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-      }));
+      }), myPriority);
     }
     catch (final Exception e) {
       String message = e.getMessage();
@@ -711,7 +737,7 @@ public class RenderTask implements IImageFactory {
       return runAsyncRenderAction(() -> {
         myRenderSession.measure();
         return RenderResult.create(this, renderSession, psiFile, myLogger, ImagePool.NULL_POOLED_IMAGE);
-      });
+      }, myLayoutSupersedeKey);
     }
     catch (final Exception e) {
       // nothing
@@ -763,7 +789,7 @@ public class RenderTask implements IImageFactory {
           myLogger.error(null, renderResult.getErrorMessage(), renderResult.getException(), null, null);
         }
         return result;
-      });
+      }, myRenderSupersedeKey);
     }
     catch (final Exception e) {
       reportException(e);
@@ -893,7 +919,7 @@ public class RenderTask implements IImageFactory {
     }
 
     try {
-      Result result = RenderService.runRenderAction(() -> myLayoutLib.renderDrawable(params));
+      Result result = RenderService.runRenderAction(() -> myLayoutLib.renderDrawable(params), myPriority);
 
       if (result != null && result.isSuccess()) {
         Object data = result.getData();
@@ -974,7 +1000,7 @@ public class RenderTask implements IImageFactory {
     Map<XmlTag, ViewInfo> map = Maps.newHashMap();
     RenderSession session = null;
     try {
-      session = RenderService.runRenderAction(() -> measure(modelParser));
+      session = RenderService.runRenderAction(() -> measure(modelParser), myPriority);
     }
     catch (Exception ignored) {
     }
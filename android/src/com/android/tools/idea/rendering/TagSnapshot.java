@@ -45,7 +45,6 @@ public class TagSnapshot {
   @Nullable public final XmlTag tag;
   @Nullable public final String prefix;
 
-  @Nullable private TagSnapshot myNext;
   @NotNull public List<TagSnapshot> children;
   @NotNull public List<AttributeSnapshot> attributes;
   /** Whether this element or any of its children has any aapt:attr definitions */
@@ -75,6 +74,27 @@ public class TagSnapshot {
    */
   @NotNull
   public static TagSnapshot createTagSnapshot(@NotNull XmlTag tag, @Nullable Consumer<TagSnapshot> afterCreate) {
+    return createTagSnapshot(tag, afterCreate, null);
+  }
+
+  /**
+   * Creates a new tag snapshot starting at the given tag, reusing the snapshots of the unmodified tags from the given cache.
+   * The snapshots returned from the cache are shared, so they must not be modified after this call.
+   * @param tag The root tag to create the snapshot from
+   * @param afterCreate If not null, this will be called for every new {@link TagSnapshot} created by this call
+   * @param cache If not null, the cache to look up and store the snapshots of the tags
+   */
+  @NotNull
+  public static TagSnapshot createTagSnapshot(@NotNull XmlTag tag,
+                                              @Nullable Consumer<TagSnapshot> afterCreate,
+                                              @Nullable TagSnapshotCache cache) {
+    if (cache != null) {
+      TagSnapshot cached = cache.get(tag, afterCreate);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
     // Attributes
     List<AttributeSnapshot> attributes = AttributeSnapshot.createAttributesForTag(tag);
 
@@ -83,7 +103,6 @@ public class TagSnapshot {
     XmlTag[] subTags = tag.getSubTags();
     boolean hasDeclaredAaptAttrs = false;
     if (subTags.length > 0) {
-      TagSnapshot last = null;
       children = Lists.newArrayListWithCapacity(subTags.length);
       for (XmlTag subTag : subTags) {
         if (AAPT_URI.equals(subTag.getNamespace())) {
@@ -98,13 +117,9 @@ public class TagSnapshot {
           continue;
         }
 
-        TagSnapshot child = createTagSnapshot(subTag, afterCreate);
+        TagSnapshot child = createTagSnapshot(subTag, afterCreate, cache);
         hasDeclaredAaptAttrs |= child.hasDeclaredAaptAttrs;
         children.add(child);
-        if (last != null) {
-          last.myNext = child;
-        }
-        last = child;
       }
     } else {
       children = Collections.emptyList();
@@ -115,6 +130,9 @@ public class TagSnapshot {
     if (afterCreate != null) {
       afterCreate.accept(newSnapshot);
     }
+    if (cache != null) {
+      cache.put(tag, afterCreate, newSnapshot);
+    }
 
     return newSnapshot;
   }
@@ -207,11 +225,6 @@ public class TagSnapshot {
     setAttribute(name, namespace, prefix, value, true);
   }
 
-  @Nullable
-  public TagSnapshot getNextSibling() {
-    return myNext;
-  }
-
   @Override
   public String toString() {
     return "TagSnapshot{" + tagName + ", attributes=" + attributes + ", children=\n" + children + "\n}";
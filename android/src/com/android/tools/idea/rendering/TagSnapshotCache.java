@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.rendering;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.*;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlTag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.android.SdkConstants.XMLNS;
+
+/**
+ * Project-level cache of the {@link TagSnapshot}s of the tags of the layout files. Renders triggered by an edit reuse the snapshots
+ * of the subtrees that did not change and only create new ones for the edited tags and their parents.
+ * <p>
+ * The snapshots are stored on the {@link XmlTag}s. A PSI listener drops the snapshots of the tags containing a change, and namespace
+ * declaration changes, which can affect the attributes added by the snapshot decorators, invalidate all the cached snapshots.
+ */
+public class TagSnapshotCache {
+  private static final Key<CachedSnapshot> CACHED_SNAPSHOT = Key.create("TagSnapshotCache.snapshot");
+
+  private final AtomicLong myGeneration = new AtomicLong();
+
+  @NotNull
+  public static TagSnapshotCache getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, TagSnapshotCache.class);
+  }
+
+  public TagSnapshotCache(@NotNull Project project) {
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiTreeChangeAdapter() {
+      @Override
+      public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        invalidateNamespaces(event.getChild());
+        invalidate(event.getParent());
+      }
+
+      @Override
+      public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        invalidateNamespaces(event.getChild());
+        invalidate(event.getParent());
+      }
+
+      @Override
+      public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        invalidateNamespaces(event.getOldChild());
+        invalidateNamespaces(event.getNewChild());
+        invalidate(event.getParent());
+      }
+
+      @Override
+      public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        invalidateNamespaces(event.getChild());
+        invalidate(event.getOldParent());
+        invalidate(event.getNewParent());
+      }
+
+      @Override
+      public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        invalidate(event.getParent());
+      }
+
+      @Override
+      public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+        // File renames and other property changes are rare, just drop everything
+        myGeneration.incrementAndGet();
+      }
+    }, project);
+  }
+
+  /**
+   * Returns the snapshot previously created for the tag with the given decorator, or null if there is none or the tag has been
+   * modified since.
+   */
+  @Nullable
+  TagSnapshot get(@NotNull XmlTag tag, @Nullable Consumer<TagSnapshot> afterCreate) {
+    CachedSnapshot cached = tag.getUserData(CACHED_SNAPSHOT);
+    if (cached == null || cached.myGeneration != myGeneration.get() || cached.myAfterCreate != afterCreate) {
+      return null;
+    }
+    return cached.mySnapshot;
+  }
+
+  void put(@NotNull XmlTag tag, @Nullable Consumer<TagSnapshot> afterCreate, @NotNull TagSnapshot snapshot) {
+    PsiFile file = tag.getContainingFile();
+    // Changes to non physical files are not reported to the listener
+    if (file != null && file.isPhysical()) {
+      tag.putUserData(CACHED_SNAPSHOT, new CachedSnapshot(snapshot, afterCreate, myGeneration.get()));
+    }
+  }
+
+  private void invalidate(@Nullable PsiElement element) {
+    for (PsiElement current = element; current != null && !(current instanceof PsiFile); current = current.getParent()) {
+      invalidateNamespaces(current);
+      if (current instanceof XmlTag) {
+        current.putUserData(CACHED_SNAPSHOT, null);
+      }
+    }
+  }
+
+  /**
+   * Drops all the cached snapshots if the given element, e.g. the child added to or removed from a tag, is a namespace declaration.
+   */
+  private void invalidateNamespaces(@Nullable PsiElement element) {
+    if (element instanceof XmlAttribute && ((XmlAttribute)element).getName().startsWith(XMLNS)) {
+      myGeneration.incrementAndGet();
+    }
+  }
+
+  private static class CachedSnapshot {
+    @NotNull private final TagSnapshot mySnapshot;
+    @Nullable private final Consumer<TagSnapshot> myAfterCreate;
+    private final long myGeneration;
+
+    private CachedSnapshot(@NotNull TagSnapshot snapshot, @Nullable Consumer<TagSnapshot> afterCreate, long generation) {
+      mySnapshot = snapshot;
+      myAfterCreate = afterCreate;
+      myGeneration = generation;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res;
+
+import com.android.annotations.NonNull;
+import com.android.annotations.concurrency.GuardedBy;
+import com.android.ide.common.rendering.api.DensityBasedResourceValue;
+import com.android.ide.common.rendering.api.ResourceValue;
+import com.android.ide.common.res2.MergingException;
+import com.android.ide.common.res2.ResourceFile;
+import com.android.ide.common.res2.ResourceItem;
+import com.android.ide.common.res2.ResourceSet;
+import com.android.ide.common.resources.configuration.DensityQualifier;
+import com.android.ide.common.resources.configuration.FolderConfiguration;
+import com.android.resources.Density;
+import com.android.resources.ResourceType;
+import com.android.tools.idea.log.LogWrapper;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link ResourceItem} of a library created from an {@link AarResourceTable}. It doesn't hold on to the XML of its value;
+ * the value is computed the first time it is requested, by parsing the values file the item is defined in.
+ */
+class AarResourceItem extends ResourceItem {
+  @Nullable private final ValueFile myValueFile;
+
+  AarResourceItem(@NonNull String name,
+                  @Nullable String namespace,
+                  @NonNull ResourceType type,
+                  @Nullable String libraryName,
+                  @Nullable ValueFile valueFile) {
+    super(name, namespace, type, null, libraryName);
+    myValueFile = valueFile;
+  }
+
+  @Nullable
+  @Override
+  public ResourceValue getResourceValue(boolean isFrameworks) {
+    if (mResourceValue == null) {
+      if (myValueFile != null) {
+        mResourceValue = myValueFile.getResourceValue(getType(), getName(), isFrameworks);
+      }
+      else {
+        ResourceFile source = getSource();
+        if (source == null) {
+          return null;
+        }
+        // File based resource: the value is the path of the file.
+        String path = source.getFile().getAbsolutePath();
+        Density density = getType() == ResourceType.DRAWABLE || getType() == ResourceType.MIPMAP ? getFolderDensity() : null;
+        if (density != null) {
+          mResourceValue = new DensityBasedResourceValue(getResourceUrl(isFrameworks), path, density, getLibraryName());
+        }
+        else {
+          mResourceValue = new ResourceValue(getResourceUrl(isFrameworks), path, getLibraryName());
+        }
+      }
+    }
+    return mResourceValue;
+  }
+
+  @Nullable
+  private Density getFolderDensity() {
+    FolderConfiguration configuration = getConfiguration();
+    DensityQualifier densityQualifier = configuration.getDensityQualifier();
+    return densityQualifier != null ? densityQualifier.getValue() : null;
+  }
+
+  /**
+   * A values file shared by all the items defined in it. The file is parsed when the value of one of its items is first
+   * requested, and the parsed items are kept softly so that requesting the values of the other items does not parse the
+   * file again.
+   */
+  static final class ValueFile {
+    private static final Logger LOG = Logger.getInstance(ValueFile.class);
+
+    @NotNull private final File myResourceDir;
+    @NotNull private final File myFile;
+    @Nullable private final String myNamespace;
+    @Nullable private final String myLibraryName;
+    @GuardedBy("this")
+    @Nullable private SoftReference<Map<String, ResourceItem>> myParsedItems;
+
+    ValueFile(@NotNull File resourceDir, @NotNull File file, @Nullable String namespace, @Nullable String libraryName) {
+      myResourceDir = resourceDir;
+      myFile = file;
+      myNamespace = namespace;
+      myLibraryName = libraryName;
+    }
+
+    @Nullable
+    synchronized ResourceValue getResourceValue(@NotNull ResourceType type, @NotNull String name, boolean isFrameworks) {
+      Map<String, ResourceItem> parsedItems = myParsedItems != null ? myParsedItems.get() : null;
+      if (parsedItems == null) {
+        parsedItems = parse();
+        myParsedItems = new SoftReference<>(parsedItems);
+      }
+      ResourceItem item = parsedItems.get(getKey(type, name));
+      return item != null ? item.getResourceValue(isFrameworks) : null;
+    }
+
+    @NotNull
+    private Map<String, ResourceItem> parse() {
+      ResourceSet resourceSet = new ResourceSet(myResourceDir.getName(), myNamespace, myLibraryName, false /* validateEnabled */);
+      resourceSet.addSource(myResourceDir);
+      resourceSet.setTrackSourcePositions(false);
+      try {
+        ResourceFile resourceFile = resourceSet.loadFile(myResourceDir, myFile, new LogWrapper(LOG).alwaysLogAsDebug(true).allowVerbose(false));
+        if (resourceFile == null) {
+          return Collections.emptyMap();
+        }
+        Map<String, ResourceItem> items = new HashMap<>();
+        for (ResourceItem item : resourceFile.getItems()) {
+          items.putIfAbsent(getKey(item.getType(), item.getName()), item);
+        }
+        return items;
+      }
+      catch (MergingException e) {
+        LOG.warn(e);
+        return Collections.emptyMap();
+      }
+    }
+
+    @NotNull
+    private static String getKey(@NotNull ResourceType type, @NotNull String name) {
+      return type.getName() + '/' + name;
+    }
+  }
+}
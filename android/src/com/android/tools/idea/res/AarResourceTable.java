@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res;
+
+import com.android.annotations.VisibleForTesting;
+import com.android.ide.common.res2.ResourceFile;
+import com.android.ide.common.res2.ResourceItem;
+import com.android.ide.common.res2.ResourceSet;
+import com.android.ide.common.resources.configuration.FolderConfiguration;
+import com.android.resources.ResourceFolderType;
+import com.android.resources.ResourceType;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.ArrayUtilRt;
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+import static com.intellij.openapi.util.io.FileUtil.ensureExists;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Compact, immutable description of the resources in the res folder of a library, used by {@link FileResourceRepository}
+ * instead of keeping the whole {@link com.android.ide.common.res2.ResourceMerger} object graph of every AAR in memory.
+ *
+ * <p>Resource names and folder names are stored once in a string pool, and the items of each resource type are kept as
+ * parallel arrays of indices into the pool and the file table. Resource values are not part of the table:
+ * {@link AarResourceItem}s created from it parse them from the source file the first time they are requested.
+ *
+ * <p>The table is persisted per res folder under the IDE system directory, and is only reused if the res folder has not
+ * been modified since it was written.
+ */
+final class AarResourceTable {
+  private static final Logger LOG = Logger.getInstance(AarResourceTable.class);
+  private static final int MAGIC = 0x41524553; // "ARES"
+  private static final int FORMAT_VERSION = 1;
+  private static final ResourceType[] RESOURCE_TYPES = ResourceType.values();
+
+  @NotNull private final String[] myStrings;
+  /** Index in the string pool of the folder name (e.g. "values-fr") of each file. */
+  @NotNull private final int[] myFileFolders;
+  /** Index in the string pool of the name of each file. */
+  @NotNull private final int[] myFileNames;
+  /** For each resource type ordinal, the string pool index of the name of each item, in repository order. */
+  @NotNull private final int[][] myItemNames;
+  /** For each resource type ordinal, the file table index of each item, parallel to {@link #myItemNames}. */
+  @NotNull private final int[][] myItemFiles;
+
+  private AarResourceTable(@NotNull String[] strings,
+                           @NotNull int[] fileFolders,
+                           @NotNull int[] fileNames,
+                           @NotNull int[][] itemNames,
+                           @NotNull int[][] itemFiles) {
+    myStrings = strings;
+    myFileFolders = fileFolders;
+    myFileNames = fileNames;
+    myItemNames = itemNames;
+    myItemFiles = itemFiles;
+  }
+
+  /**
+   * Builds the table from a resource set that has been loaded from the files of a res folder.
+   */
+  @NotNull
+  static AarResourceTable create(@NotNull ResourceSet resourceSet) {
+    Map<String, Integer> stringIndices = new HashMap<>();
+    List<String> strings = new ArrayList<>();
+    Map<File, Integer> fileIndices = new HashMap<>();
+    TIntArrayList fileFolders = new TIntArrayList();
+    TIntArrayList fileNames = new TIntArrayList();
+    TIntArrayList[] itemNames = new TIntArrayList[RESOURCE_TYPES.length];
+    TIntArrayList[] itemFiles = new TIntArrayList[RESOURCE_TYPES.length];
+
+    for (ResourceItem item : resourceSet.getDataMap().values()) {
+      ResourceFile source = item.getSource();
+      if (source == null) {
+        continue;
+      }
+      File file = source.getFile();
+      Integer fileIndex = fileIndices.get(file);
+      if (fileIndex == null) {
+        fileIndex = fileIndices.size();
+        fileIndices.put(file, fileIndex);
+        fileFolders.add(intern(file.getParentFile().getName(), stringIndices, strings));
+        fileNames.add(intern(file.getName(), stringIndices, strings));
+      }
+      int ordinal = item.getType().ordinal();
+      if (itemNames[ordinal] == null) {
+        itemNames[ordinal] = new TIntArrayList();
+        itemFiles[ordinal] = new TIntArrayList();
+      }
+      itemNames[ordinal].add(intern(item.getName(), stringIndices, strings));
+      itemFiles[ordinal].add(fileIndex);
+    }
+
+    int[][] names = new int[RESOURCE_TYPES.length][];
+    int[][] files = new int[RESOURCE_TYPES.length][];
+    for (int i = 0; i < RESOURCE_TYPES.length; i++) {
+      names[i] = itemNames[i] == null ? ArrayUtilRt.EMPTY_INT_ARRAY : itemNames[i].toNativeArray();
+      files[i] = itemFiles[i] == null ? ArrayUtilRt.EMPTY_INT_ARRAY : itemFiles[i].toNativeArray();
+    }
+    return new AarResourceTable(strings.toArray(new String[0]), fileFolders.toNativeArray(), fileNames.toNativeArray(), names, files);
+  }
+
+  private static int intern(@NotNull String string, @NotNull Map<String, Integer> indices, @NotNull List<String> strings) {
+    Integer index = indices.get(string);
+    if (index == null) {
+      index = strings.size();
+      indices.put(string, index);
+      strings.add(string);
+    }
+    return index;
+  }
+
+  /**
+   * Creates the resource items described by the table, grouped by type in repository order. Items defined in the same file
+   * share one {@link ResourceFile}, and files in the same folder share the qualifiers and folder configuration.
+   */
+  @NotNull
+  List<ResourceItem> createItems(@NotNull File resourceDir, @Nullable String namespace, @Nullable String libraryName) {
+    int fileCount = myFileNames.length;
+    File[] files = new File[fileCount];
+    FolderConfiguration[] configurations = new FolderConfiguration[fileCount];
+    AarResourceItem.ValueFile[] valueFiles = new AarResourceItem.ValueFile[fileCount];
+    List<List<ResourceItem>> fileItems = new ArrayList<>(fileCount);
+    Map<String, FolderConfiguration> folderConfigurations = new HashMap<>();
+    for (int i = 0; i < fileCount; i++) {
+      String folderName = myStrings[myFileFolders[i]];
+      File folder = new File(resourceDir, folderName);
+      files[i] = new File(folder, myStrings[myFileNames[i]]);
+      configurations[i] = folderConfigurations.computeIfAbsent(folderName, FolderConfiguration::getConfigForFolder);
+      if (ResourceFolderType.getFolderType(folderName) == ResourceFolderType.VALUES) {
+        valueFiles[i] = new AarResourceItem.ValueFile(resourceDir, files[i], namespace, libraryName);
+      }
+      fileItems.add(new ArrayList<>());
+    }
+
+    List<ResourceItem> items = new ArrayList<>();
+    for (int ordinal = 0; ordinal < RESOURCE_TYPES.length; ordinal++) {
+      int[] names = myItemNames[ordinal];
+      int[] itemFiles = myItemFiles[ordinal];
+      for (int i = 0; i < names.length; i++) {
+        int fileIndex = itemFiles[i];
+        if (configurations[fileIndex] == null) {
+          continue;
+        }
+        ResourceItem item = new AarResourceItem(myStrings[names[i]], namespace, RESOURCE_TYPES[ordinal], libraryName, valueFiles[fileIndex]);
+        fileItems.get(fileIndex).add(item);
+        items.add(item);
+      }
+    }
+
+    for (int i = 0; i < fileCount; i++) {
+      List<ResourceItem> itemsInFile = fileItems.get(i);
+      if (!itemsInFile.isEmpty()) {
+        // The ResourceFile constructor sets itself as the source of the items.
+        new ResourceFile(files[i], itemsInFile, getQualifiers(myStrings[myFileFolders[i]]), configurations[i]);
+      }
+    }
+    return items;
+  }
+
+  @NotNull
+  private static String getQualifiers(@NotNull String folderName) {
+    int index = folderName.indexOf('-');
+    return index != -1 ? folderName.substring(index + 1) : "";
+  }
+
+  @VisibleForTesting
+  int getItemCount() {
+    int count = 0;
+    for (int[] names : myItemNames) {
+      count += names.length;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the file the table of the given res folder is persisted to.
+   */
+  @NotNull
+  static File getCacheFile(@NotNull File resourceDir) {
+    File parent = resourceDir.getAbsoluteFile().getParentFile();
+    String name = (parent != null ? parent.getName() : resourceDir.getName()) + "_" +
+                  Integer.toHexString(resourceDir.getAbsolutePath().hashCode()) + ".bin";
+    return new File(PathManager.getSystemPath(), "android" + File.separator + "aar-resources" + File.separator + name);
+  }
+
+  /**
+   * Computes the timestamp the persisted table is validated against: the last modification of the res folder, its
+   * subfolders and the values files. Other files are derived from their names, so only additions and removals matter,
+   * and those change the timestamp of the folder that contains them.
+   */
+  static long computeTimestamp(@NotNull File resourceDir) {
+    long timestamp = resourceDir.lastModified();
+    File[] folders = resourceDir.listFiles();
+    if (folders == null) {
+      return timestamp;
+    }
+    for (File folder : folders) {
+      timestamp = Math.max(timestamp, folder.lastModified());
+      if (folder.isDirectory() && ResourceFolderType.getFolderType(folder.getName()) == ResourceFolderType.VALUES) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+          for (File file : files) {
+            timestamp = Math.max(timestamp, file.lastModified());
+          }
+        }
+      }
+    }
+    return timestamp;
+  }
+
+  /**
+   * Loads the table persisted for the given res folder, or returns null if there is none or it is out of date.
+   */
+  @Nullable
+  static AarResourceTable load(@NotNull File cacheFile, @NotNull File resourceDir, long timestamp) {
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      if (!in.readUTF().equals(resourceDir.getAbsolutePath()) || in.readLong() != timestamp) {
+        return null;
+      }
+      String[] strings = new String[in.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = in.readUTF();
+      }
+      int fileCount = in.readInt();
+      int[] fileFolders = new int[fileCount];
+      int[] fileNames = new int[fileCount];
+      for (int i = 0; i < fileCount; i++) {
+        fileFolders[i] = checkIndex(in.readInt(), strings.length);
+        fileNames[i] = checkIndex(in.readInt(), strings.length);
+      }
+      int[][] itemNames = new int[RESOURCE_TYPES.length][];
+      int[][] itemFiles = new int[RESOURCE_TYPES.length][];
+      Arrays.fill(itemNames, ArrayUtilRt.EMPTY_INT_ARRAY);
+      Arrays.fill(itemFiles, ArrayUtilRt.EMPTY_INT_ARRAY);
+      int typeCount = in.readInt();
+      for (int i = 0; i < typeCount; i++) {
+        ResourceType type = ResourceType.getEnum(in.readUTF());
+        if (type == null) {
+          return null;
+        }
+        int itemCount = in.readInt();
+        int[] names = new int[itemCount];
+        int[] files = new int[itemCount];
+        for (int j = 0; j < itemCount; j++) {
+          names[j] = checkIndex(in.readInt(), strings.length);
+          files[j] = checkIndex(in.readInt(), fileCount);
+        }
+        itemNames[type.ordinal()] = names;
+        itemFiles[type.ordinal()] = files;
+      }
+      return new AarResourceTable(strings, fileFolders, fileNames, itemNames, itemFiles);
+    }
+    catch (IOException e) {
+      LOG.info("Failed to load resource table of " + resourceDir + " from " + cacheFile, e);
+      return null;
+    }
+  }
+
+  private static int checkIndex(int index, int size) throws IOException {
+    if (index < 0 || index >= size) {
+      throw new IOException("Index out of range: " + index);
+    }
+    return index;
+  }
+
+  /**
+   * Persists the table for the given res folder; failures are logged and otherwise ignored.
+   */
+  void save(@NotNull File cacheFile, @NotNull File resourceDir, long timestamp) {
+    try {
+      ensureExists(cacheFile.getParentFile());
+      File tempFile = new File(cacheFile.getPath() + ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(resourceDir.getAbsolutePath());
+        out.writeLong(timestamp);
+        out.writeInt(myStrings.length);
+        for (String string : myStrings) {
+          out.writeUTF(string);
+        }
+        out.writeInt(myFileNames.length);
+        for (int i = 0; i < myFileNames.length; i++) {
+          out.writeInt(myFileFolders[i]);
+          out.writeInt(myFileNames[i]);
+        }
+        int typeCount = 0;
+        for (int[] names : myItemNames) {
+          if (names.length > 0) {
+            typeCount++;
+          }
+        }
+        out.writeInt(typeCount);
+        for (int ordinal = 0; ordinal < RESOURCE_TYPES.length; ordinal++) {
+          int[] names = myItemNames[ordinal];
+          if (names.length == 0) {
+            continue;
+          }
+          // Types are stored by name, so that the file does not depend on the order of the enum constants.
+          out.writeUTF(RESOURCE_TYPES[ordinal].getName());
+          out.writeInt(names.length);
+          for (int i = 0; i < names.length; i++) {
+            out.writeInt(names[i]);
+            out.writeInt(myItemFiles[ordinal][i]);
+          }
+        }
+      }
+      Files.move(tempFile.toPath(), cacheFile.toPath(), REPLACE_EXISTING);
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to save resource table of " + resourceDir + " to " + cacheFile, e);
+    }
+  }
+}
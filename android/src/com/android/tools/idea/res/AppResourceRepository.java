@@ -49,6 +49,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.android.SdkConstants.FD_RES;
 import static com.android.tools.idea.LogAnonymizerUtil.anonymizeClassName;
@@ -532,6 +533,7 @@ public class AppResourceRepository extends MultiResourceRepository {
   private final TObjectIntHashMap<TypedResourceName> myName2DynamicIdMap = new TObjectIntHashMap<>();
   private final TIntObjectHashMap<TypedResourceName> myDynamicId2ResourceMap = new TIntObjectHashMap<>();
   private int myDynamicSeed = DYNAMIC_ID_SEED_START;
+  private final AtomicLong myIdsGeneration = new AtomicLong();
   private final IntArrayWrapper myWrapper = new IntArrayWrapper(null);
 
 
@@ -623,6 +625,15 @@ public class AppResourceRepository extends MultiResourceRepository {
     myResourceValueMap = res2id;
     myResIdValueToNameMap = id2res;
     myStyleableValueToNameMap = styleableId2name;
+    myIdsGeneration.incrementAndGet();
+  }
+
+  /**
+   * Returns a counter that changes whenever the ids returned by {@link #getResourceId} may change, i.e. when the compiled
+   * resources are set or the dynamic ids are reset.
+   */
+  long getIdsGeneration() {
+    return myIdsGeneration.get();
   }
 
   public void resetDynamicIds(boolean clearResourceRegistry) {
@@ -636,6 +647,7 @@ public class AppResourceRepository extends MultiResourceRepository {
       myName2DynamicIdMap.clear();
       myDynamicId2ResourceMap.clear();
     }
+    myIdsGeneration.incrementAndGet();
   }
 
   private static final class TypedResourceName {
@@ -46,7 +46,8 @@ import static com.android.SdkConstants.FN_RESOURCE_TEXT;
  * for example for the expanded {@code .aar} directories.
  *
  * <p>Most of the implementation is based on {@link ResourceMerger} which means the behavior is highly
- * consistent with what will happen at build time.
+ * consistent with what will happen at build time. The resources are kept in the compact form described by
+ * {@link AarResourceTable}, which is persisted per folder, and their values are parsed on demand.
  */
 public class FileResourceRepository extends LocalResourceRepository {
   private static final Logger LOG = Logger.getInstance(FileResourceRepository.class);
@@ -99,8 +100,12 @@ public class FileResourceRepository extends LocalResourceRepository {
   private static FileResourceRepository create(@NotNull final File file, @Nullable String namespace, @Nullable String libraryName) {
     final FileResourceRepository repository = new FileResourceRepository(file, namespace, libraryName);
     try {
-      ResourceMerger resourceMerger = createResourceMerger(file, namespace, libraryName);
-      repository.getItems().update(resourceMerger);
+      AarResourceTable table = loadResourceTable(file);
+      for (ResourceItem item : table.createItems(file, namespace, libraryName)) {
+        ListMultimap<String, ResourceItem> map = repository.getMap(namespace, item.getType(), true);
+        assert map != null;
+        map.put(item.getName(), item);
+      }
     }
     catch (Exception e) {
       LOG.error("Failed to initialize resources", e);
@@ -144,11 +149,27 @@ public class FileResourceRepository extends LocalResourceRepository {
     return myLibraryName;
   }
 
-  private static ResourceMerger createResourceMerger(File file, String namespace, String libraryName) {
-    ILogger logger = new LogWrapper(LOG).alwaysLogAsDebug(true).allowVerbose(false);
-    ResourceMerger merger = new ResourceMerger(0);
+  /**
+   * Returns the table of the resources in the given folder, from the persisted cache if it is still up to date, or else by
+   * parsing the folder and updating the cache.
+   */
+  @NotNull
+  private static AarResourceTable loadResourceTable(@NotNull File file) {
+    File cacheFile = AarResourceTable.getCacheFile(file);
+    long timestamp = AarResourceTable.computeTimestamp(file);
+    AarResourceTable table = AarResourceTable.load(cacheFile, file, timestamp);
+    if (table == null) {
+      // The names of the items don't depend on the namespace or the library name, so they aren't part of the table.
+      table = AarResourceTable.create(createResourceSet(file));
+      table.save(cacheFile, file, timestamp);
+    }
+    return table;
+  }
 
-    ResourceSet resourceSet = new ResourceSet(file.getName(), namespace, libraryName, false /* validateEnabled */);
+  @NotNull
+  private static ResourceSet createResourceSet(@NotNull File file) {
+    ILogger logger = new LogWrapper(LOG).alwaysLogAsDebug(true).allowVerbose(false);
+    ResourceSet resourceSet = new ResourceSet(file.getName(), null, null, false /* validateEnabled */);
     resourceSet.addSource(file);
     resourceSet.setTrackSourcePositions(false);
     try {
@@ -161,8 +182,7 @@ public class FileResourceRepository extends LocalResourceRepository {
     catch (MergingException e) {
       LOG.warn(e);
     }
-    merger.addDataSet(resourceSet);
-    return merger;
+    return resourceSet;
   }
 
   @Override
@@ -46,6 +46,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -224,6 +225,20 @@ public abstract class LocalResourceRepository extends AbstractResourceRepository
     }
   }
 
+  /**
+   * Notifies the parents that only the items of the given type with the given names have been added, removed or changed,
+   * so that they can update their merged view of the type for those names instead of merging all the items again.
+   */
+  protected void invalidateParentCaches(@Nullable String namespace, @NotNull ResourceType type, @NotNull Collection<String> names) {
+    synchronized (ITEM_MAP_LOCK) {
+      if (myParents != null) {
+        for (MultiResourceRepository parent : myParents) {
+          parent.invalidateCache(this, namespace, type, names);
+        }
+      }
+    }
+  }
+
   /** If this repository has not already been visited, merge its items of the given type into result. */
   protected final void merge(@NotNull Set<LocalResourceRepository> visited,
                              @Nullable String namespace,
@@ -247,18 +262,60 @@ public abstract class LocalResourceRepository extends AbstractResourceRepository
       return;
     }
     for (ResourceItem item : items.values()) {
-      String name = item.getName();
-      String qualifiers = item.getQualifiers();
-      if (!result.containsKey(name) || type == ResourceType.DECLARE_STYLEABLE || type == ResourceType.ID || !seenQualifiers.containsEntry(name, qualifiers)) {
-        // We only add a duplicate item if there isn't an item with the same qualifiers (and it's
-        // not an id; id's are allowed to be defined in multiple places even with the same
-        // qualifiers)
-        result.put(name, item);
-        seenQualifiers.put(name, qualifiers);
+      mergeItem(item, type, seenQualifiers, result);
+    }
+  }
+
+  /**
+   * If this repository has not already been visited, merge its items of the given type with the given names into result.
+   * Since the override semantics only depend on the items with the same name, this gives the same items for those names as
+   * {@link #merge}.
+   */
+  protected final void mergeNames(@NotNull Set<LocalResourceRepository> visited,
+                                  @Nullable String namespace,
+                                  @NotNull ResourceType type,
+                                  @NotNull Collection<String> names,
+                                  @NotNull SetMultimap<String, String> seenQualifiers,
+                                  @NotNull ListMultimap<String, ResourceItem> result) {
+    if (visited.contains(this)) {
+      return;
+    }
+    visited.add(this);
+    doMergeNames(visited, namespace, type, names, seenQualifiers, result);
+  }
+
+  protected void doMergeNames(@NotNull Set<LocalResourceRepository> visited,
+                              @Nullable String namespace,
+                              @NotNull ResourceType type,
+                              @NotNull Collection<String> names,
+                              @NotNull SetMultimap<String, String> seenQualifiers,
+                              @NotNull ListMultimap<String, ResourceItem> result) {
+    ListMultimap<String, ResourceItem> items = getMap(namespace, type, false);
+    if (items == null) {
+      return;
+    }
+    for (String name : names) {
+      for (ResourceItem item : items.get(name)) {
+        mergeItem(item, type, seenQualifiers, result);
       }
     }
   }
 
+  private static void mergeItem(@NotNull ResourceItem item,
+                                @NotNull ResourceType type,
+                                @NotNull SetMultimap<String, String> seenQualifiers,
+                                @NotNull ListMultimap<String, ResourceItem> result) {
+    String name = item.getName();
+    String qualifiers = item.getQualifiers();
+    if (!result.containsKey(name) || type == ResourceType.DECLARE_STYLEABLE || type == ResourceType.ID || !seenQualifiers.containsEntry(name, qualifiers)) {
+      // We only add a duplicate item if there isn't an item with the same qualifiers (and it's
+      // not an id; id's are allowed to be defined in multiple places even with the same
+      // qualifiers)
+      result.put(name, item);
+      seenQualifiers.put(name, qualifiers);
+    }
+  }
+
   protected boolean computeHasResourcesOfType(@NotNull ResourceType type, @NotNull Set<LocalResourceRepository> visited) {
     if (!visited.add(this)) {
       return false;
@@ -31,6 +31,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.annotation.concurrent.GuardedBy;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +70,14 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
   @GuardedBy("ITEM_MAP_LOCK")
   private long myDataBindingResourceFilesModificationCount = Long.MIN_VALUE;
 
+  /** Modification count at the last invalidation of the merged items of each type, by type ordinal. */
+  @GuardedBy("ITEM_MAP_LOCK")
+  private final long[] myTypeModificationCounts = new long[ResourceType.values().length];
+
+  /** Modification count at the last invalidation of the merged items of all types. */
+  @GuardedBy("ITEM_MAP_LOCK")
+  private long myAllTypesModificationCount;
+
   MultiResourceRepository(@NotNull String displayName, @NotNull List<? extends LocalResourceRepository> children) {
     super(displayName);
     setChildren(children);
@@ -99,6 +108,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
       myFullTable = null;
       myCachedMaps.clear();
       myCachedHasResourcesOfType.clear();
+      myAllTypesModificationCount = super.getModificationCount();
     }
 
     invalidateParentCaches();
@@ -136,6 +146,16 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
     }
   }
 
+  /**
+   * Returns a modification count that only changes when the merged items of the given type may have changed, unlike
+   * {@link #getModificationCount()} which changes for any change in the children.
+   */
+  public long getModificationCount(@NotNull ResourceType type) {
+    synchronized (ITEM_MAP_LOCK) {
+      return Math.max(myAllTypesModificationCount, myTypeModificationCounts[type.ordinal()]);
+    }
+  }
+
   @Nullable
   @Override
   public DataBindingInfo getDataBindingInfoForLayout(String layoutName) {
@@ -262,6 +282,20 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
     }
   }
 
+  @Override
+  protected void doMergeNames(@NotNull Set<LocalResourceRepository> visited,
+                              @Nullable String namespace,
+                              @NotNull ResourceType type,
+                              @NotNull Collection<String> names,
+                              @NotNull SetMultimap<String, String> seenQualifiers,
+                              @NotNull ListMultimap<String, ResourceItem> result) {
+    synchronized (ITEM_MAP_LOCK) {
+      for (int i = myChildren.size() - 1; i >= 0; i--) {
+        myChildren.get(i).mergeNames(visited, namespace, type, names, seenQualifiers, result);
+      }
+    }
+  }
+
   @Override
   public boolean hasResourcesOfType(@NotNull ResourceType type) {
     synchronized (ITEM_MAP_LOCK) {
@@ -319,6 +353,7 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
       myCachedHasResourcesOfType.clear();
       myFullTable = null;
       setModificationCount(ourModificationCounter.incrementAndGet());
+      myAllTypesModificationCount = super.getModificationCount();
 
       invalidateParentCaches();
     }
@@ -343,11 +378,48 @@ public abstract class MultiResourceRepository extends LocalResourceRepository {
 
       myFullTable = null;
       setModificationCount(ourModificationCounter.incrementAndGet());
+      for (ResourceType type : types) {
+        myTypeModificationCounts[type.ordinal()] = super.getModificationCount();
+      }
 
       invalidateParentCaches(namespace, types);
     }
   }
 
+  /**
+   * Notifies this delegating repository that the given dependent repository has added, removed or changed the items of the
+   * given type with the given names. A cached merged map of the type is updated in place by merging only those names again,
+   * which keeps the cost of an edit proportional to the number of affected items rather than to the number of resources.
+   */
+  public void invalidateCache(@NotNull LocalResourceRepository repository,
+                              @Nullable String namespace,
+                              @NotNull ResourceType type,
+                              @NotNull Collection<String> names) {
+    synchronized (ITEM_MAP_LOCK) {
+      assert myChildren.contains(repository) : repository;
+
+      ListMultimap<String, ResourceItem> map = myCachedMaps.get(namespace, type);
+      if (map != null) {
+        for (String name : names) {
+          map.removeAll(name);
+        }
+        Set<LocalResourceRepository> visited = Sets.newHashSet();
+        SetMultimap<String, String> seenQualifiers = HashMultimap.create();
+        mergeNames(visited, namespace, type, names, seenQualifiers, map);
+      }
+
+      myCachedNamespaces = null;
+      if (ResourceNamespaces.isDefaultNamespace(namespace)) {
+        myCachedHasResourcesOfType.remove(type);
+      }
+      myFullTable = null;
+      setModificationCount(ourModificationCounter.incrementAndGet());
+      myTypeModificationCounts[type.ordinal()] = super.getModificationCount();
+
+      invalidateParentCaches(namespace, type, names);
+    }
+  }
+
   @Override
   @VisibleForTesting
   public boolean isScanPending(@NonNull PsiFile psiFile) {
@@ -69,6 +69,10 @@ public class ResourceClassGenerator {
   private Map<ResourceType, TObjectIntHashMap<String>> myCache;
   /** For int[] in styleables. The ints in styleables are stored in {@link #myCache}. */
   private Map<String, List<Integer>> myStyleableCache;
+  /** The stamps the entries of {@link #myCache} were computed at. */
+  private final Map<ResourceType, Stamp> myCacheStamps = Maps.newEnumMap(ResourceType.class);
+  /** Generated bytecode by class name, so that reloading the R classes for a new class loader doesn't regenerate them. */
+  private final Map<String, GeneratedClass> myClassCache = Maps.newHashMap();
   @NotNull private final AppResourceRepository myAppResources;
 
   private ResourceClassGenerator(@NotNull AppResourceRepository appResources) {
@@ -87,10 +91,66 @@ public class ResourceClassGenerator {
   }
 
   /**
+   * Returns the bytecode of the given R class. The bytecode is cached per class, and regenerated only when the resources of
+   * the class' type or the resource ids handed out by the {@link AppResourceRepository} have changed.
+   *
    * @param fqcn Fully qualified class name (as accepted by ClassLoader, or as returned by Class.getName())
    */
   @Nullable
-  public byte[] generate(String fqcn) {
+  public synchronized byte[] generate(String fqcn) {
+    int index = fqcn.lastIndexOf('$');
+    ResourceType type = index != -1 ? ResourceType.getEnum(fqcn.substring(index + 1)) : null;
+    Stamp stamp = computeStamp(type);
+    GeneratedClass generated = myClassCache.get(fqcn);
+    if (generated != null && generated.stamp.equals(stamp)) {
+      return generated.bytecode;
+    }
+
+    if (type != null) {
+      ResourceType cacheType = type == ResourceType.DECLARE_STYLEABLE ? ResourceType.STYLEABLE : type;
+      if (!stamp.equals(myCacheStamps.get(cacheType))) {
+        // The ids of this type are out of date; compute them again from the repository.
+        if (myCache != null) {
+          myCache.remove(cacheType);
+        }
+        if (cacheType == ResourceType.STYLEABLE) {
+          myStyleableCache = null;
+        }
+        myCacheStamps.put(cacheType, stamp);
+      }
+    }
+
+    byte[] bytecode = doGenerate(fqcn);
+    if (bytecode != null) {
+      myClassCache.put(fqcn, new GeneratedClass(stamp, bytecode));
+    }
+    return bytecode;
+  }
+
+  /**
+   * Computes the stamp that the bytecode of an R class depends on: the generation of the resource ids, and the modification
+   * count of the resources of the class' type, or of all resources for the outer R class listing the types.
+   */
+  @NotNull
+  private Stamp computeStamp(@Nullable ResourceType type) {
+    long modificationCount;
+    if (type == null) {
+      modificationCount = myAppResources.getModificationCount();
+    }
+    else if (type == ResourceType.STYLEABLE || type == ResourceType.DECLARE_STYLEABLE) {
+      // Styleables are generated from the declare-styleable items, and refer to the ids of their attributes.
+      modificationCount = Math.max(myAppResources.getModificationCount(ResourceType.DECLARE_STYLEABLE),
+                                   Math.max(myAppResources.getModificationCount(ResourceType.STYLEABLE),
+                                            myAppResources.getModificationCount(ResourceType.ATTR)));
+    }
+    else {
+      modificationCount = myAppResources.getModificationCount(type);
+    }
+    return new Stamp(myAppResources.getIdsGeneration(), modificationCount);
+  }
+
+  @Nullable
+  private byte[] doGenerate(String fqcn) {
     String className = fqcn.replace('.', '/');
 
     if (LOG.isDebugEnabled()) {
@@ -361,6 +421,43 @@ public class ResourceClassGenerator {
     mv.visitEnd();
   }
 
+  private static final class Stamp {
+    private final long myIdsGeneration;
+    private final long myModificationCount;
+
+    Stamp(long idsGeneration, long modificationCount) {
+      myIdsGeneration = idsGeneration;
+      myModificationCount = modificationCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Stamp)) {
+        return false;
+      }
+      Stamp stamp = (Stamp)o;
+      return myIdsGeneration == stamp.myIdsGeneration && myModificationCount == stamp.myModificationCount;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myIdsGeneration, myModificationCount);
+    }
+  }
+
+  private static final class GeneratedClass {
+    @NotNull final Stamp stamp;
+    @NotNull final byte[] bytecode;
+
+    GeneratedClass(@NotNull Stamp stamp, @NotNull byte[] bytecode) {
+      this.stamp = stamp;
+      this.bytecode = bytecode;
+    }
+  }
+
   public static String getResourceName(String styleableName, @NotNull AttrResourceValue value) {
     StringBuilder sb = new StringBuilder(30);
     sb.append(styleableName);
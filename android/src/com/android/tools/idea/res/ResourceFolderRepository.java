@@ -31,6 +31,7 @@ import com.android.tools.idea.log.LogWrapper;
 import com.android.tools.lint.detector.api.LintUtils;
 import com.android.utils.ILogger;
 import com.google.common.collect.*;
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
@@ -255,18 +256,68 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
         item.setIgnoredFromDiskMerge(true);
       }
     }
-    return merger;
+
+    // Move the loaded files to a resource set that the files parsed by the scan can be added to.
+    ResourceMerger scanMerger = new ResourceMerger(0 /* minSdk */);
+    ScanResourceSet scanResourceSet = createResourceSet();
+    Set<ResourceFile> loadedFiles = Sets.newLinkedHashSet();
+    for (ResourceItem item : dataSet.getDataMap().values()) {
+      if (item.getSource() != null) {
+        loadedFiles.add(item.getSource());
+      }
+    }
+    try {
+      for (ResourceFile file : loadedFiles) {
+        scanResourceSet.addLoadedFile(myResourceDirFile, file);
+      }
+    }
+    catch (MergingException e) {
+      LOG.warn("failed to loadPreviousStateIfExists " + blobRoot, e);
+      return createFreshResourceMerger();
+    }
+    scanMerger.addDataSet(scanResourceSet);
+    return scanMerger;
   }
 
   private ResourceMerger createFreshResourceMerger() {
     ResourceMerger merger = new ResourceMerger(0 /* minSdk */);
-    ResourceSet myData = new ResourceSet(myResourceDir.getName(), myNamespace, getLibraryName(), false /* validateEnabled */);
-    File resourceDir = VfsUtilCore.virtualToIoFile(myResourceDir);
-    myData.addSource(resourceDir);
-    merger.addDataSet(myData);
+    merger.addDataSet(createResourceSet());
     return merger;
   }
 
+  @NotNull
+  private ScanResourceSet createResourceSet() {
+    ScanResourceSet resourceSet = new ScanResourceSet(myResourceDir.getName(), myNamespace, getLibraryName());
+    File resourceDir = VfsUtilCore.virtualToIoFile(myResourceDir);
+    resourceSet.addSource(resourceDir);
+    return resourceSet;
+  }
+
+  /**
+   * The resource set of the initial scan's merger. The scan parses files concurrently into separate resource sets, since
+   * resource sets are not thread-safe, and then moves the parsed files into this one, so that they can be written to the file
+   * cache without being parsed again.
+   */
+  private static class ScanResourceSet extends ResourceSet {
+    ScanResourceSet(@NotNull String name, @Nullable String namespace, @Nullable String libraryName) {
+      super(name, namespace, libraryName, false /* validateEnabled */);
+    }
+
+    /**
+     * Adds a file parsed by the initial scan, like {@link #loadFile} would.
+     */
+    void addParsedFile(@NotNull File sourceFolder, @NotNull ResourceFile file) throws MergingException {
+      processNewDataFile(sourceFolder, file, true /* setTouched */);
+    }
+
+    /**
+     * Adds a file loaded from the file cache, keeping the state of its items.
+     */
+    void addLoadedFile(@NotNull File sourceFolder, @NotNull ResourceFile file) throws MergingException {
+      processNewDataFile(sourceFolder, file, false /* setTouched */);
+    }
+  }
+
   /**
    * Determine if it's unnecessary to write or update the file-backed cache.
    * If only a few items are reparsed, then the cache is fresh enough.
@@ -291,7 +342,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
     int numXmlReparsed;
 
     final ResourceMerger myResourceMerger;
-    final ResourceSet myResourceSet;
+    final ScanResourceSet myResourceSet;
     final ILogger myILogger;
     final File myResourceDir;
     final Collection<PsiFileResourceQueueEntry> myPsiFileResourceQueue = new ArrayList<>();
@@ -300,10 +351,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
     public InitialScanState(ResourceMerger merger, File resourceDir) {
       myResourceMerger = merger;
       assert myResourceMerger.getDataSets().size() == 1;
-      myResourceSet = myResourceMerger.getDataSets().get(0);
-      myResourceSet.setShouldParseResourceIds(true);
-      myResourceSet.setDontNormalizeQualifiers(true);
-      myResourceSet.setTrackSourcePositions(false);
+      myResourceSet = (ScanResourceSet)myResourceMerger.getDataSets().get(0);
+      configureForScan(myResourceSet);
       myILogger = new LogWrapper(LOG).alwaysLogAsDebug(true).allowVerbose(false);
       myResourceDir = resourceDir;
     }
@@ -317,16 +366,38 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
       ++numXmlReparsed;
     }
 
+    static void configureForScan(@NotNull ResourceSet resourceSet) {
+      resourceSet.setShouldParseResourceIds(true);
+      resourceSet.setDontNormalizeQualifiers(true);
+      resourceSet.setTrackSourcePositions(false);
+    }
+
     /**
-     * Load a ResourceFile into the resource merger's resource set and return it.
+     * Parses a resource XML file into the given resource set, which must be confined to the calling thread.
      *
-     * @param file a resource XML file to load and parse
-     * @return the resulting ResourceFile, if there is no parse error.
-     * @throws MergingException
+     * @return the resulting ResourceFile, or null if the file-based parser could not handle the file
      */
     @Nullable
-    ResourceFile loadFile(File file) throws MergingException {
-      return myResourceSet.loadFile(myResourceDir, file, myILogger);
+    ResourceFile parseFile(@NotNull ResourceSet resourceSet, @NotNull File file) {
+      try {
+        return resourceSet.loadFile(myResourceDir, file, myILogger);
+      }
+      catch (MergingException e) {
+        return null;
+      }
+    }
+
+    /**
+     * Adds a file parsed by {@link #parseFile} to the merger's resource set, so that it is written to the file cache.
+     */
+    void addParsedFile(@NotNull ResourceFile file) {
+      try {
+        myResourceSet.addParsedFile(myResourceDir, file);
+      }
+      catch (MergingException e) {
+        // The file won't be cached, and will be parsed again next time.
+        LOG.debug("Failed to add " + file.getFile() + " to the resource merger", e);
+      }
     }
 
     public void queuePsiFileResourceScan(PsiFileResourceQueueEntry data) {
@@ -371,6 +442,32 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
     }
   }
 
+  /**
+   * A file found by the initial scan of the resource directory. Files that are not covered by the file cache are parsed
+   * concurrently, and the results are then added to the repository in the order the files were found.
+   */
+  private static class PendingFileScan {
+    public final VirtualFile file;
+    public final ResourceFolderType folderType;
+    public final String qualifiers;
+    public final FolderConfiguration folderConfiguration;
+    @Nullable public final ResourceType type; // null for value files, which can define resources of any type
+    public final boolean idGenerating;
+    public final boolean needsParsing;
+    @Nullable public volatile ResourceFile parsedFile;
+
+    public PendingFileScan(VirtualFile file, ResourceFolderType folderType, String qualifiers, FolderConfiguration folderConfiguration,
+                           @Nullable ResourceType type, boolean idGenerating, boolean needsParsing) {
+      this.file = file;
+      this.folderType = folderType;
+      this.qualifiers = qualifiers;
+      this.folderConfiguration = folderConfiguration;
+      this.type = type;
+      this.idGenerating = idGenerating;
+      this.needsParsing = needsParsing;
+    }
+  }
+
   private void scanRemainingFiles() {
     if (!myResourceDir.isValid()) {
       return;
@@ -436,6 +533,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
   }
 
   private void scanResFolder(@NotNull VirtualFile resDir) {
+    List<PendingFileScan> scans = new ArrayList<>();
     for (VirtualFile subDir : resDir.getChildren()) {
       if (subDir.isValid() && subDir.isDirectory()) {
         String name = subDir.getName();
@@ -447,14 +545,47 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
           }
           String qualifiers = getQualifiers(name);
           if (folderType == VALUES) {
-            scanValueResFolder(subDir, qualifiers, folderConfiguration);
+            collectValueResFolder(subDir, qualifiers, folderConfiguration, scans);
           }
           else {
-            scanFileResourceFolder(subDir, folderType, qualifiers, folderConfiguration);
+            collectFileResourceFolder(subDir, folderType, qualifiers, folderConfiguration, scans);
           }
         }
       }
     }
+
+    parseFilesConcurrently(scans);
+
+    // Add the results in the order the files were found, so the resource maps are ordered as if the files were scanned one at a time.
+    for (PendingFileScan scan : scans) {
+      if (scan.folderType == VALUES) {
+        scanValueFile(scan);
+      }
+      else {
+        scanFileResourceFile(scan);
+      }
+    }
+  }
+
+  /**
+   * Runs the file-based parser on the files that are not covered by the file cache. Each worker thread parses into its own
+   * {@link ResourceSet}, since resource sets are not thread-safe; the parsed files are moved to the merger as they are added.
+   */
+  private void parseFilesConcurrently(@NotNull List<PendingFileScan> scans) {
+    List<PendingFileScan> toParse = ContainerUtil.filter(scans, scan -> scan.needsParsing);
+    if (toParse.isEmpty()) {
+      return;
+    }
+    InitialScanState scanState = myInitialScanState;
+    ThreadLocal<ResourceSet> resourceSets = ThreadLocal.withInitial(() -> {
+      ResourceSet resourceSet = createResourceSet();
+      InitialScanState.configureForScan(resourceSet);
+      return resourceSet;
+    });
+    JobLauncher.getInstance().invokeConcurrentlyUnderProgress(toParse, null, false /* do not fail fast */, scan -> {
+      scan.parsedFile = scanState.parseFile(resourceSets.get(), VfsUtilCore.virtualToIoFile(scan.file));
+      return true;
+    });
   }
 
   private static String getQualifiers(String dirName) {
@@ -462,23 +593,23 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
     return index != -1 ? dirName.substring(index + 1) : "";
   }
 
-  private void scanFileResourceFolder(@NotNull VirtualFile directory,
-                                      ResourceFolderType folderType, String qualifiers,
-                                      FolderConfiguration folderConfiguration) {
+  private void collectFileResourceFolder(@NotNull VirtualFile directory,
+                                         ResourceFolderType folderType, String qualifiers,
+                                         FolderConfiguration folderConfiguration,
+                                         @NotNull List<PendingFileScan> scans) {
     List<ResourceType> resourceTypes = FolderTypeRelationship.getRelatedResourceTypes(folderType);
     assert resourceTypes.size() >= 1 : folderType;
     ResourceType type = resourceTypes.get(0);
 
     boolean idGeneratingFolder = FolderTypeRelationship.isIdGeneratingFolderType(folderType);
 
-    ListMultimap<String, ResourceItem> map = getMap(myNamespace, type, true);
-
     for (VirtualFile file : directory.getChildren()) {
       if (file.isValid() && !file.isDirectory()) {
         FileType fileType = file.getFileType();
         boolean idGeneratingFile = idGeneratingFolder && fileType == StdFileTypes.XML;
         if (PsiProjectListener.isRelevantFileType(fileType) || folderType == RAW) {
-          scanFileResourceFile(qualifiers, folderType, folderConfiguration, type, idGeneratingFile, map, file);
+          boolean needsParsing = idGeneratingFile && !myResourceFiles.containsKey(file);
+          scans.add(new PendingFileScan(file, folderType, qualifiers, folderConfiguration, type, idGeneratingFile, needsParsing));
         } // TODO: Else warn about files that aren't expected to be found here?
       }
     }
@@ -511,57 +642,49 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
     }
   }
 
-  private void scanFileResourceFile(String qualifiers,
-                                    ResourceFolderType folderType,
-                                    FolderConfiguration folderConfiguration,
-                                    ResourceType type,
-                                    boolean idGenerating,
-                                    ListMultimap<String, ResourceItem> map,
-                                    VirtualFile file) {
+  private void scanFileResourceFile(@NotNull PendingFileScan scan) {
+    VirtualFile file = scan.file;
+    ResourceFolderType folderType = scan.folderType;
+    ResourceType type = scan.type;
+    assert type != null : folderType;
+    ListMultimap<String, ResourceItem> map = getMap(myNamespace, type, true);
     ResourceFile resourceFile;
-    if (idGenerating) {
-      if (myResourceFiles.containsKey(file)) {
+    if (scan.idGenerating) {
+      if (!scan.needsParsing) {
         myInitialScanState.countCacheHit();
         return;
       }
-      try {
-        resourceFile = myInitialScanState.loadFile(VfsUtilCore.virtualToIoFile(file));
-        if (resourceFile == null) {
-          // The file-based parser failed for some reason. Fall back to Psi in case it is more lax.
-          // Don't count Psi items in myInitialScanState.numXml, because they are never cached.
-          myInitialScanState.queuePsiFileResourceScan(
-            new PsiFileResourceQueueEntry(file, qualifiers, folderType, folderConfiguration));
-          return;
-        }
-        ListMultimap<String, ResourceItem> idMap = getMap(myNamespace, ResourceType.ID, true);
-        boolean isDensityBasedResource = folderType == DRAWABLE || folderType == MIPMAP;
-        // We skip caching density-based resources, so don't count those against cache statistics.
-        if (!isDensityBasedResource) {
-          myInitialScanState.countCacheMiss();
-        }
-        for (ResourceItem item : resourceFile.getItems()) {
-          ListMultimap<String, ResourceItem> itemMap;
-          if (item.getType() == ResourceType.ID) {
-            itemMap = idMap;
-          } else {
-            assert item.getType() == type;
-            itemMap = map;
-          }
-          itemMap.put(item.getName(), item);
-          // It's not yet safe to serialize density-based resources items to blob files.
-          // The ResourceValue should be an instance of DensityBasedResourceValue, but no flags are
-          // serialized to the blob to indicate that.
-          if (isDensityBasedResource) {
-            item.setIgnoredFromDiskMerge(true);
-          }
-        }
-      }
-      catch (MergingException e) {
-        // The file-based parser may not be able handle the file if it is a data-binding file.
+      resourceFile = scan.parsedFile;
+      if (resourceFile == null) {
+        // The file-based parser failed for some reason, e.g. it may not be able handle the file if it is a data-binding file.
+        // Fall back to Psi in case it is more lax. Don't count Psi items in myInitialScanState.numXml, because they are never cached.
         myInitialScanState.queuePsiFileResourceScan(
-          new PsiFileResourceQueueEntry(file, qualifiers, folderType, folderConfiguration));
+          new PsiFileResourceQueueEntry(file, scan.qualifiers, folderType, scan.folderConfiguration));
         return;
       }
+      ListMultimap<String, ResourceItem> idMap = getMap(myNamespace, ResourceType.ID, true);
+      boolean isDensityBasedResource = folderType == DRAWABLE || folderType == MIPMAP;
+      // We skip caching density-based resources, so don't count those against cache statistics.
+      if (!isDensityBasedResource) {
+        myInitialScanState.countCacheMiss();
+      }
+      myInitialScanState.addParsedFile(resourceFile);
+      for (ResourceItem item : resourceFile.getItems()) {
+        ListMultimap<String, ResourceItem> itemMap;
+        if (item.getType() == ResourceType.ID) {
+          itemMap = idMap;
+        } else {
+          assert item.getType() == type;
+          itemMap = map;
+        }
+        itemMap.put(item.getName(), item);
+        // It's not yet safe to serialize density-based resources items to blob files.
+        // The ResourceValue should be an instance of DensityBasedResourceValue, but no flags are
+        // serialized to the blob to indicate that.
+        if (isDensityBasedResource) {
+          item.setIgnoredFromDiskMerge(true);
+        }
+      }
     }
     else {
       // We create the items without adding it to the resource set / resource merger.
@@ -569,7 +692,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
       String name = ResourceHelper.getResourceName(file);
       ResourceItem item = new ResourceItem(name, myNamespace, type, null, getLibraryName());
       map.put(name, item);
-      resourceFile = new ResourceFile(VfsUtilCore.virtualToIoFile(file), item, qualifiers, folderConfiguration);
+      resourceFile = new ResourceFile(VfsUtilCore.virtualToIoFile(file), item, scan.qualifiers, scan.folderConfiguration);
       item.setIgnoredFromDiskMerge(true);
     }
     myResourceFiles.put(file, resourceFile);
@@ -842,13 +965,15 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
     }
   }
 
-  private void scanValueResFolder(@NotNull VirtualFile directory, String qualifiers, FolderConfiguration folderConfiguration) {
+  private void collectValueResFolder(@NotNull VirtualFile directory, String qualifiers, FolderConfiguration folderConfiguration,
+                                     @NotNull List<PendingFileScan> scans) {
     //noinspection ConstantConditions
     assert directory.getName().startsWith(FD_RES_VALUES);
 
     for (VirtualFile file : directory.getChildren()) {
-      if (file.isValid() && !file.isDirectory()) {
-        scanValueFile(qualifiers, file, folderConfiguration);
+      if (file.isValid() && !file.isDirectory() && file.getFileType() == StdFileTypes.XML) {
+        boolean needsParsing = !myResourceFiles.containsKey(file);
+        scans.add(new PendingFileScan(file, VALUES, qualifiers, folderConfiguration, null, false, needsParsing));
       }
     }
   }
@@ -912,33 +1037,24 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
     return added;
   }
 
-  private void scanValueFile(String qualifiers, VirtualFile virtualFile, FolderConfiguration folderConfiguration) {
-    FileType fileType = virtualFile.getFileType();
-    if (fileType == StdFileTypes.XML) {
-      if (myResourceFiles.containsKey(virtualFile)) {
-        myInitialScanState.countCacheHit();
-        return;
-      }
-      File file = VfsUtilCore.virtualToIoFile(virtualFile);
-      try {
-        ResourceFile resourceFile = myInitialScanState.loadFile(file);
-        if (resourceFile == null) {
-          // The file-based parser failed for some reason. Fall back to Psi in case it is more lax.
-          myInitialScanState.queuePsiValueResourceScan(new PsiValueResourceQueueEntry(virtualFile, qualifiers, folderConfiguration));
-          return;
-        }
-        for (ResourceItem item : resourceFile.getItems()) {
-          ListMultimap<String, ResourceItem> map = getMap(myNamespace, item.getType(), true);
-          map.put(item.getName(), item);
-        }
-        myInitialScanState.countCacheMiss();
-        myResourceFiles.put(virtualFile, resourceFile);
-      }
-      catch (MergingException e) {
-        // The file-based parser failed for some reason. Fall back to Psi in case it is more lax.
-        myInitialScanState.queuePsiValueResourceScan(new PsiValueResourceQueueEntry(virtualFile, qualifiers, folderConfiguration));
-      }
+  private void scanValueFile(@NotNull PendingFileScan scan) {
+    if (!scan.needsParsing) {
+      myInitialScanState.countCacheHit();
+      return;
+    }
+    ResourceFile resourceFile = scan.parsedFile;
+    if (resourceFile == null) {
+      // The file-based parser failed for some reason. Fall back to Psi in case it is more lax.
+      myInitialScanState.queuePsiValueResourceScan(new PsiValueResourceQueueEntry(scan.file, scan.qualifiers, scan.folderConfiguration));
+      return;
+    }
+    for (ResourceItem item : resourceFile.getItems()) {
+      ListMultimap<String, ResourceItem> map = getMap(myNamespace, item.getType(), true);
+      map.put(item.getName(), item);
     }
+    myInitialScanState.countCacheMiss();
+    myInitialScanState.addParsedFile(resourceFile);
+    myResourceFiles.put(scan.file, resourceFile);
   }
 
   // Schedule a rescan to convert any map ResourceItems to Psi if needed, and return true if conversion
@@ -1153,7 +1269,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
           }
           scanDataBinding(resourceFile, getModificationCount());
           // Identities may have changed even if the ids are the same, so update maps
-          invalidateParentCaches(myNamespace, ResourceType.ID);
+          invalidateParentCaches(myNamespace, ResourceType.ID, Sets.union(idsBefore, idsAfter));
         }
       } else {
         // Remove old items first, if switching to Psi. Rescan below to add back, but with a possibly different multimap list order.
@@ -1305,7 +1421,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
                       map.put(name, item);
                       resourceFile.addItems(Collections.singletonList(item));
                       setModificationCount(ourModificationCounter.incrementAndGet());
-                      invalidateParentCaches(myNamespace, type);
+                      invalidateParentCaches(myNamespace, type, Collections.singleton(name));
                       return;
                     }
                   }
@@ -1368,7 +1484,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
                     PsiResourceFile resourceFile = (PsiResourceFile)resFile;
                     resourceFile.addItems(ids);
                     setModificationCount(ourModificationCounter.incrementAndGet());
-                    invalidateParentCaches(myNamespace, ResourceType.ID);
+                    invalidateParentCaches(myNamespace, ResourceType.ID, ContainerUtil.map2Set(ids, ResourceItem::getName));
                   }
                 }
                 return;
@@ -1516,7 +1632,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
                       }
                       if (removeItems(resourceFile, type, name, true)) {
                         setModificationCount(ourModificationCounter.incrementAndGet());
-                        invalidateParentCaches(myNamespace, type);
+                        invalidateParentCaches(myNamespace, type, Collections.singleton(name));
                       }
                     }
                   }
@@ -1699,7 +1815,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
                               resourceFile.addItem(newItem);
                             }
                             setModificationCount(ourModificationCounter.incrementAndGet());
-                            invalidateParentCaches(myNamespace, ResourceType.ID);
+                            invalidateParentCaches(myNamespace, ResourceType.ID, ImmutableSet.of(oldName, newName));
                             return;
                           }
                         }
@@ -1747,7 +1863,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
                             resourceFile.addItem(newItem);
                           }
                           setModificationCount(ourModificationCounter.incrementAndGet());
-                          invalidateParentCaches(myNamespace, ResourceType.ID);
+                          invalidateParentCaches(myNamespace, ResourceType.ID, ImmutableSet.of(oldName, newName));
                           return;
                         }
                       }
@@ -1877,7 +1993,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository {
                           }
                         }
                         setModificationCount(ourModificationCounter.incrementAndGet());
-                        invalidateParentCaches(myNamespace, type);
+                        invalidateParentCaches(myNamespace, type, ImmutableSet.of(oldName, newName));
 
                         // Invalidate surrounding declare styleable if any
                         if (type == ResourceType.ATTR) {
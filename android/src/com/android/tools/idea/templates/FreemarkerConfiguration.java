@@ -17,14 +17,22 @@ package com.android.tools.idea.templates;
 
 import com.android.tools.idea.templates.propertyAdapters.PropertyObjectWrapper;
 import com.google.common.base.Charsets;
+import com.intellij.util.containers.ContainerUtil;
 import freemarker.template.Configuration;
 import freemarker.template.TemplateExceptionHandler;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Map;
 
 /**
  * A Freemarker {@link Configuration} initialized with sensible built-in values for instantiating
  * Android project templates.
  */
 public final class FreemarkerConfiguration extends Configuration {
+  /** Shared configurations by template root folder. They only hold parsed templates, so they can be dropped when memory is low. */
+  private static final Map<File, FreemarkerConfiguration> ourSharedConfigurations = ContainerUtil.createConcurrentSoftValueMap();
+
   public FreemarkerConfiguration() {
     setDefaultEncoding(Charsets.UTF_8.name());
     setLocalizedLookup(false);
@@ -32,4 +40,22 @@ public final class FreemarkerConfiguration extends Configuration {
     setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
     setObjectWrapper(new PropertyObjectWrapper());
   }
+
+  /**
+   * Returns a configuration loading templates from the given template root folder (see
+   * {@link StudioTemplateLoader#getTemplateRootFolder()}). The configuration is shared by all renderings of the templates
+   * in that folder, so that its template cache keeps the parsed templates: a template file is only parsed again after it
+   * has been modified. Templates must be looked up by their "root://" name (see {@link StudioTemplateLoader#findTemplate(File)});
+   * the loader of the configuration does not keep any state of the renderings.
+   */
+  @NotNull
+  public static FreemarkerConfiguration getShared(@NotNull File templateRootFolder) {
+    return ourSharedConfigurations.computeIfAbsent(templateRootFolder, folder -> {
+      FreemarkerConfiguration configuration = new FreemarkerConfiguration();
+      configuration.setTemplateLoader(new StudioTemplateLoader(folder));
+      // Check the modification time of a template each time it is requested, so edits to templates are picked up right away.
+      configuration.setTemplateUpdateDelay(0);
+      return configuration;
+    });
+  }
 }
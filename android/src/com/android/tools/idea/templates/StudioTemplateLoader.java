@@ -26,14 +26,19 @@ import java.util.Stack;
 
 /**
  * A custom {@link TemplateLoader} which locates templates on disk relative to a specified template folder.
+ * <p/>
+ * FreeMarker always looks templates up by their "root://" name, and resolves the names of included templates against the
+ * name of the including template, so looking up templates does not change the state of the loader. This lets a single
+ * loader serve the templates of concurrent renderings (see {@link FreemarkerConfiguration#getShared(File)}). The folder
+ * stack used to resolve relative file references is only changed by the rendering that owns the loader.
  */
 public final class StudioTemplateLoader implements TemplateLoader {
   // Root folder of a set of templates. This is found by finding a parent folder of the original
   // template folder with the name "templates". If no such folder exist use the template folder as root.
   // The prefix "root://" refers to this folder.
   private final File myTemplateRootFolder;
-  // The top element holds the folder of the previous loaded template file.
-  // Initially this is set to the folder of the main template.
+  // The top element holds the folder relative file references are resolved against, pushed explicitly by the rendering that
+  // owns this loader. Initially this is set to the folder of the main template.
   private final Stack<File> myLastTemplateFolders;
   // Specify the root folder as a prefix
   private final static String ROOT = "root://";
@@ -113,9 +118,7 @@ public final class StudioTemplateLoader implements TemplateLoader {
   @Nullable
   public Object findTemplateSource(@NotNull String name) throws IOException {
     File file = resolveName(name);
-    TemplateSource templateSource = TemplateSource.open(file);
-    pushTemplateFolder(file.getParentFile());
-    return templateSource;
+    return TemplateSource.open(file);
   }
 
   /**
@@ -149,7 +152,6 @@ public final class StudioTemplateLoader implements TemplateLoader {
   @Override
   public void closeTemplateSource(Object source) throws IOException {
     TemplateSource templateSource = (TemplateSource) source;
-    popTemplateFolder();
     templateSource.close();
   }
 
@@ -176,6 +178,15 @@ public final class StudioTemplateLoader implements TemplateLoader {
     return file;
   }
 
+  /**
+   * Returns the root folder of the set of templates this loader loads from. Names starting with "root://" are relative
+   * to this folder.
+   */
+  @NotNull
+  public File getTemplateRootFolder() {
+    return myTemplateRootFolder;
+  }
+
   @NotNull
   private static File findTemplateRootFolder(@NotNull File templateFolder) {
     File folder = templateFolder;
@@ -186,26 +197,33 @@ public final class StudioTemplateLoader implements TemplateLoader {
   }
 
   /**
-   * Helper class for handling template source files.
+   * Helper class for handling template source files. The file is only opened when Freemarker needs to read it, so that
+   * looking up a template that is already cached only checks the modification time of the file. Sources are equal when
+   * they refer to the same file, which Freemarker requires to reuse a cached template.
    */
   private final static class TemplateSource {
-    private final InputStream myInputStream;
+    private final File myFile;
     private final long myLastModifiedTime;
+    private InputStream myInputStream;
 
-    private TemplateSource(@NotNull InputStream inputStream, long lastModified) {
-      myInputStream = inputStream;
+    private TemplateSource(@NotNull File file, long lastModified) {
+      myFile = file;
       myLastModifiedTime = lastModified;
     }
 
-    public static TemplateSource open(@NotNull File file) throws IOException {
+    @Nullable
+    public static TemplateSource open(@NotNull File file) {
       if (!file.exists() && !file.isFile()) {
         return null;
       }
-      return new TemplateSource(SdkUtils.fileToUrl(file).openStream(), file.lastModified());
+      return new TemplateSource(file, file.lastModified());
     }
 
     @NotNull
-    public InputStream getInputStream() {
+    public InputStream getInputStream() throws IOException {
+      if (myInputStream == null) {
+        myInputStream = SdkUtils.fileToUrl(myFile).openStream();
+      }
       return myInputStream;
     }
 
@@ -214,7 +232,20 @@ public final class StudioTemplateLoader implements TemplateLoader {
     }
 
     public void close() throws IOException {
-      myInputStream.close();
+      if (myInputStream != null) {
+        myInputStream.close();
+        myInputStream = null;
+      }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof TemplateSource && myFile.equals(((TemplateSource)obj).myFile);
+    }
+
+    @Override
+    public int hashCode() {
+      return myFile.hashCode();
     }
   }
 }
@@ -59,6 +59,7 @@ import org.w3c.dom.Document;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.android.SdkConstants.*;
 import static com.android.tools.idea.templates.Template.TEMPLATE_XML_NAME;
@@ -86,9 +87,15 @@ public class TemplateManager {
   private static final String TEMPLATE_ZIP_NAME = "templates.zip";
 
   /**
-   * Cache for {@link #getTemplateMetadata(File)}
+   * Cache for {@link #getTemplateMetadata(File)}. An entry is reused as long as the template.xml file it was parsed from
+   * has not changed.
    */
-  private Map<File, TemplateMetadata> myTemplateMap;
+  private final Map<File, CachedMetadata> myTemplateMap = new ConcurrentHashMap<>();
+
+  /**
+   * Cache for {@link #getTemplates(String)}, keyed by the folder prefix.
+   */
+  private final Map<String, CachedTemplates> myTemplatesByFolder = new ConcurrentHashMap<>();
 
   /** Lock protecting access to {@link #myCategoryTable} */
   private final Object CATEGORY_TABLE_LOCK = new Object();
@@ -96,6 +103,14 @@ public class TemplateManager {
   /** Table mapping (Category, Template Name) -> Template File */
   private Table<String, String, File> myCategoryTable;
 
+  /** The template root folders {@link #myCategoryTable} was built from */
+  @GuardedBy("CATEGORY_TABLE_LOCK")
+  private List<File> myCategoryTableRoots;
+
+  /** Timestamps of the directories and template.xml files {@link #myCategoryTable} was built from */
+  @GuardedBy("CATEGORY_TABLE_LOCK")
+  private FileStamps myCategoryTableStamps;
+
   /**
    * Cache location for templates pulled from exploded-aars
    */
@@ -258,14 +273,33 @@ public class TemplateManager {
    */
   @NotNull
   public List<File> getTemplates(@NotNull String folder) {
+    File root = getTemplateRootFolder();
+    List<File> extras = getExtraTemplateRootFolders();
+    List<File> roots = new ArrayList<>();
+    roots.add(root);
+    roots.addAll(extras);
+
+    // The directory listings are only redone if one of the scanned directories has changed since the last call.
+    CachedTemplates cached = myTemplatesByFolder.get(folder);
+    if (cached != null && cached.myRoots.equals(roots) && cached.myStamps.isUpToDate()) {
+      return new ArrayList<>(cached.myTemplates);
+    }
+
+    FileStamps stamps = new FileStamps();
+    List<File> templates = getTemplates(folder, root, extras, stamps);
+    myTemplatesByFolder.put(folder, new CachedTemplates(roots, stamps, templates));
+    return new ArrayList<>(templates);
+  }
+
+  @NotNull
+  private List<File> getTemplates(@NotNull String folder, @Nullable File root, @NotNull List<File> extras, @NotNull FileStamps stamps) {
     List<File> templates = new ArrayList<>();
     Map<String, File> templateNames = Maps.newHashMap();
-    File root = getTemplateRootFolder();
     if (root != null) {
-      File[] files = new File(root, folder).listFiles();
+      File[] files = stamps.listFiles(new File(root, folder));
       if (files != null) {
         for (File file : files) {
-          if (file.isDirectory() && (new File(file, TEMPLATE_XML_NAME)).exists()) { // Avoid .DS_Store etc, & non Freemarker templates
+          if (file.isDirectory() && stamps.exists(new File(file, TEMPLATE_XML_NAME))) { // Avoid .DS_Store etc, & non Freemarker templates
             templates.add(file);
             templateNames.put(file.getName(), file);
           }
@@ -274,9 +308,10 @@ public class TemplateManager {
     }
 
     // Add in templates from extras/ as well.
-    for (File extra : getExtraTemplateRootFolders()) {
-      for (File file : listFiles(new File(extra, folder))) {
-        if (file.isDirectory() && (new File(file, TEMPLATE_XML_NAME)).exists()) {
+    for (File extra : extras) {
+      File[] files = stamps.listFiles(new File(extra, folder));
+      for (File file : files != null ? files : new File[0]) {
+        if (file.isDirectory() && stamps.exists(new File(file, TEMPLATE_XML_NAME))) {
           File replaces = templateNames.get(file.getName());
           if (replaces != null) {
             int compare = compareTemplates(replaces, file);
@@ -548,44 +583,61 @@ public class TemplateManager {
   @GuardedBy("CATEGORY_TABLE_LOCK")
   private Table<String, String, File> getCategoryTable(boolean forceReload, @Nullable Project project) {
     if (myCategoryTable == null || forceReload) {
-      if (myTemplateMap != null) {
-        myTemplateMap.clear();
+      File templateRootFolder = getTemplateRootFolder();
+      List<File> userDefinedRootFolders = getUserDefinedTemplateRootFolders();
+      List<File> auxRootFolders = getAuxTemplateRootFolders();
+      List<File> aarDirectories = getTemplateDirectoriesFromAars(project);
+
+      List<File> roots = new ArrayList<>();
+      roots.add(templateRootFolder);
+      roots.addAll(userDefinedRootFolders);
+      roots.addAll(auxRootFolders);
+      roots.addAll(aarDirectories);
+
+      // A reload only rescans the template folders if a template was added, removed or edited since the table was built.
+      if (myCategoryTable != null && roots.equals(myCategoryTableRoots) && myCategoryTableStamps.isUpToDate()) {
+        return myCategoryTable;
       }
+
+      FileStamps stamps = new FileStamps();
       myCategoryTable = TreeBasedTable.create();
-      for (File categoryDirectory : listFiles(getTemplateRootFolder())) {
-        for (File newTemplate : listFiles(categoryDirectory)) {
-          addTemplateToTable(newTemplate, false);
+      for (File categoryDirectory : listFiles(templateRootFolder, stamps)) {
+        for (File newTemplate : listFiles(categoryDirectory, stamps)) {
+          addTemplateToTable(newTemplate, false, stamps);
         }
       }
 
-      for (File rootDirectory : getUserDefinedTemplateRootFolders()) {
-        for (File categoryDirectory : listFiles(rootDirectory)) {
-          for (File newTemplate : listFiles(categoryDirectory)) {
-            addTemplateToTable(newTemplate, true);
+      for (File rootDirectory : userDefinedRootFolders) {
+        for (File categoryDirectory : listFiles(rootDirectory, stamps)) {
+          for (File newTemplate : listFiles(categoryDirectory, stamps)) {
+            addTemplateToTable(newTemplate, true, stamps);
           }
         }
       }
 
-      for (File rootDirectory : getAuxTemplateRootFolders()) {
-        for (File categoryDirectory : listFiles(rootDirectory)) {
-          for (File newTemplate : listFiles(categoryDirectory)) {
-            addTemplateToTable(newTemplate, false);
+      for (File rootDirectory : auxRootFolders) {
+        for (File categoryDirectory : listFiles(rootDirectory, stamps)) {
+          for (File newTemplate : listFiles(categoryDirectory, stamps)) {
+            addTemplateToTable(newTemplate, false, stamps);
           }
         }
       }
 
-      for (File aarDirectory : getTemplateDirectoriesFromAars(project)) {
-        for (File newTemplate : listFiles(aarDirectory)) {
-          addTemplateToTable(newTemplate, false);
+      for (File aarDirectory : aarDirectories) {
+        for (File newTemplate : listFiles(aarDirectory, stamps)) {
+          addTemplateToTable(newTemplate, false, stamps);
         }
       }
+      myCategoryTableRoots = roots;
+      myCategoryTableStamps = stamps;
     }
 
     return myCategoryTable;
   }
 
   @GuardedBy("CATEGORY_TABLE_LOCK")
-  private void addTemplateToTable(@NotNull File newTemplate, boolean userDefinedTemplate) {
+  private void addTemplateToTable(@NotNull File newTemplate, boolean userDefinedTemplate, @NotNull FileStamps stamps) {
+    stamps.exists(new File(newTemplate, TEMPLATE_XML_NAME));
     TemplateMetadata newMetadata = getTemplateMetadata(newTemplate, userDefinedTemplate);
     if (newMetadata != null) {
       String title = newMetadata.getTitle();
@@ -707,18 +759,15 @@ public class TemplateManager {
 
   @Nullable
   private TemplateMetadata getTemplateMetadata(@NotNull File templateRoot, boolean userDefinedTemplate) {
-    if (myTemplateMap != null) {
-      TemplateMetadata metadata = myTemplateMap.get(templateRoot);
-      if (metadata != null) {
-        return metadata;
-      }
-    }
-    else {
-      myTemplateMap = Maps.newHashMap();
+    File templateFile = new File(templateRoot, TEMPLATE_XML_NAME);
+    long lastModified = templateFile.lastModified();
+    long length = templateFile.length();
+    CachedMetadata cached = myTemplateMap.get(templateRoot);
+    if (cached != null && cached.myLastModified == lastModified && cached.myLength == length) {
+      return cached.myMetadata;
     }
 
     try {
-      File templateFile = new File(templateRoot, TEMPLATE_XML_NAME);
       if (templateFile.isFile()) {
         String xml = Files.toString(templateFile, Charsets.UTF_8);
         Document doc;
@@ -730,7 +779,7 @@ public class TemplateManager {
         }
         if (doc != null && doc.getDocumentElement() != null) {
           TemplateMetadata metadata = new TemplateMetadata(doc);
-          myTemplateMap.put(templateRoot, metadata);
+          myTemplateMap.put(templateRoot, new CachedMetadata(lastModified, length, metadata));
           return metadata;
         }
       }
@@ -772,4 +821,70 @@ public class TemplateManager {
   private static File[] listFiles(@NotNull File root) {
     return FileOpUtils.create().listFiles(root);
   }
+
+  @NotNull
+  private static File[] listFiles(@Nullable File root, @NotNull FileStamps stamps) {
+    if (root == null) {
+      return new File[0];
+    }
+    stamps.record(root);
+    return listFiles(root);
+  }
+
+  /**
+   * Last modification times of the directories and files a result was computed from. A directory's timestamp changes when
+   * a child is added or removed, and a file's timestamp when it is edited, so the result is still valid as long as none of
+   * the recorded timestamps has changed.
+   */
+  private static final class FileStamps {
+    private final Map<File, Long> myStamps = new HashMap<>();
+
+    void record(@NotNull File file) {
+      myStamps.put(file, file.lastModified());
+    }
+
+    @Nullable
+    File[] listFiles(@NotNull File directory) {
+      record(directory);
+      return directory.listFiles();
+    }
+
+    boolean exists(@NotNull File file) {
+      record(file);
+      return myStamps.get(file) != 0L || file.exists();
+    }
+
+    boolean isUpToDate() {
+      for (Map.Entry<File, Long> entry : myStamps.entrySet()) {
+        if (entry.getKey().lastModified() != entry.getValue()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class CachedMetadata {
+    private final long myLastModified;
+    private final long myLength;
+    @NotNull private final TemplateMetadata myMetadata;
+
+    CachedMetadata(long lastModified, long length, @NotNull TemplateMetadata metadata) {
+      myLastModified = lastModified;
+      myLength = length;
+      myMetadata = metadata;
+    }
+  }
+
+  private static final class CachedTemplates {
+    @NotNull private final List<File> myRoots;
+    @NotNull private final FileStamps myStamps;
+    @NotNull private final List<File> myTemplates;
+
+    CachedTemplates(@NotNull List<File> roots, @NotNull FileStamps stamps, @NotNull List<File> templates) {
+      myRoots = roots;
+      myStamps = stamps;
+      myTemplates = templates;
+    }
+  }
 }
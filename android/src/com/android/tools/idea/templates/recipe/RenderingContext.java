@@ -93,9 +93,11 @@ public class RenderingContext {
     myFindOnlyReferences = findOnlyReferences;
     myDryRun = dryRun;
     myShowErrors = showErrors;
+    // The loader of this rendering resolves the files referenced by the templates and recipes relative to the folders pushed
+    // while rendering. FreeMarker itself looks templates up by their path relative to the template root folder, which makes
+    // the parsed templates reusable across renderings.
     myLoader = new StudioTemplateLoader(initialTemplatePath);
-    myFreemarker = new FreemarkerConfiguration();
-    myFreemarker.setTemplateLoader(myLoader);
+    myFreemarker = FreemarkerConfiguration.getShared(myLoader.getTemplateRootFolder());
     mySourceFiles = outSourceFiles != null ? outSourceFiles : Lists.newArrayList();
     myTargetFiles = outTargetFiles != null ? outTargetFiles : Lists.newArrayList();
     myFilesToOpen = outOpenFiles != null ? outOpenFiles : Lists.newArrayList();
@@ -29,6 +29,7 @@ import com.android.resources.ResourceType;
 import com.android.tools.idea.AndroidPsiUtils;
 import com.android.tools.idea.configurations.Configuration;
 import com.android.tools.idea.configurations.ConfigurationManager;
+import com.android.tools.idea.rendering.GutterIconCache;
 import com.android.tools.idea.res.AppResourceRepository;
 import com.android.tools.idea.res.LocalResourceRepository;
 import com.android.tools.idea.res.ResourceHelper;
@@ -242,6 +243,8 @@ public class AndroidColorAnnotator implements Annotator {
       }
       File iconFile = pickBestBitmap(file);
       if (iconFile != null) {
+        // Render the icon in the background now, so that painting the gutter does not have to
+        GutterIconCache.getInstance().prefetch(iconFile.getPath(), resourceResolver);
         Annotation annotation = holder.createInfoAnnotation(element, null);
         annotation.setGutterIconRenderer(new com.android.tools.idea.rendering.GutterIconRenderer(resourceResolver, element, iconFile));
       }
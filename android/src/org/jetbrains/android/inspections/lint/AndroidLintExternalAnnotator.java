@@ -178,6 +178,14 @@ public class AndroidLintExternalAnnotator extends ExternalAnnotator<State, State
         return state; // Lint cannot run in dumb mode.
       }
 
+      LintEditorResultCache cache = LintEditorResultCache.getInstance(project);
+      String stamp = LintEditorResultCache.computeStamp(state);
+      List<ProblemData> cachedProblems = cache.get(state, stamp);
+      if (cachedProblems != null) {
+        state.getProblems().addAll(cachedProblems);
+        return state;
+      }
+
       List<VirtualFile> files = Collections.singletonList(mainFile);
       LintRequest request = new LintIdeRequest(client, project, files,
                                                Collections.singletonList(state.getModule()), true /* incremental */);
@@ -185,6 +193,7 @@ public class AndroidLintExternalAnnotator extends ExternalAnnotator<State, State
 
       LintDriver lint = new LintDriver(new LintIdeIssueRegistry(), client, request);
       lint.analyze();
+      cache.put(state, stamp);
     }
     finally {
       Disposer.dispose(client);
@@ -17,10 +17,13 @@ package com.android.tools.idea.editors.layoutInspector;
 
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.BinaryLightVirtualFile;
 import org.jetbrains.android.AndroidTestCase;
+import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
-import java.io.IOException;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
 import java.nio.file.Paths;
 
 public class LayoutFileDataTest extends AndroidTestCase {
@@ -37,4 +40,114 @@ public class LayoutFileDataTest extends AndroidTestCase {
     assertNotNull(fileData.getNode());
     assertEquals(3, fileData.getNode().getChildCount());
   }
+
+  public void testPreviewIsReadFromTheStreamedCapture() throws IOException {
+    Capture capture = readTestCapture();
+    BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_INT_ARGB);
+    image.setRGB(1, 1, 0xFF00FF00);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    assertTrue(ImageIO.write(image, "png", png));
+
+    LayoutFileData fileData = new LayoutFileData(capture.withPreview(png.toByteArray()).toFile());
+
+    assertNotNull(fileData.getNode());
+    assertEquals(3, fileData.getNode().getChildCount());
+    BufferedImage preview = fileData.getBufferedImage();
+    assertNotNull(preview);
+    assertEquals(3, preview.getWidth());
+    assertEquals(2, preview.getHeight());
+    assertEquals(0xFF00FF00, preview.getRGB(1, 1));
+    // The preview is only decoded once
+    assertSame(preview, fileData.getBufferedImage());
+  }
+
+  public void testPreviewIsNotReadWhenOpeningTheCapture() throws IOException {
+    // A capture whose preview cannot be decoded still opens, since the preview is only read when it is shown
+    LayoutFileData fileData = new LayoutFileData(readTestCapture().withPreview(new byte[]{1, 2, 3}).toFile());
+
+    assertNotNull(fileData.getNode());
+    assertNull(fileData.getBufferedImage());
+  }
+
+  public void testInvalidViewNode() {
+    try {
+      new LayoutFileData(readTestCapture().withNode(new byte[0]).toFile());
+      fail("Expected an IOException");
+    }
+    catch (IOException expected) {
+      assertEquals("Error parsing view node", expected.getMessage());
+    }
+  }
+
+  public void testContextReadsPreviewWhenRequested() throws IOException {
+    File testData = Paths.get(getTestDataPath(), "editors/layoutInspector/LayoutCapture.li").toFile();
+    int[] previewRequests = new int[1];
+    LayoutFileData fileData = new LayoutFileData(LocalFileSystem.getInstance().findFileByIoFile(testData)) {
+      @Override
+      public synchronized BufferedImage getBufferedImage() {
+        previewRequests[0]++;
+        return super.getBufferedImage();
+      }
+    };
+
+    LayoutInspectorContext context = new LayoutInspectorContext(fileData, getProject());
+    assertEquals(0, previewRequests[0]);
+
+    BufferedImage preview = context.getBufferedImage();
+    assertNotNull(preview);
+    assertSame(preview, context.getBufferedImage());
+    assertEquals(1, previewRequests[0]);
+  }
+
+  /**
+   * Reads the parts of the test capture, so that captures with other view nodes or previews can be written in the same format.
+   */
+  @NotNull
+  private Capture readTestCapture() throws IOException {
+    File testData = Paths.get(getTestDataPath(), "editors/layoutInspector/LayoutCapture.li").toFile();
+
+    try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(testData)))) {
+      String options = input.readUTF();
+      byte[] node = new byte[input.readInt()];
+      input.readFully(node);
+      byte[] preview = new byte[input.readInt()];
+      input.readFully(preview);
+      return new Capture(options, node, preview);
+    }
+  }
+
+  private static class Capture {
+    @NotNull private final String myOptions;
+    @NotNull private final byte[] myNode;
+    @NotNull private final byte[] myPreview;
+
+    Capture(@NotNull String options, @NotNull byte[] node, @NotNull byte[] preview) {
+      myOptions = options;
+      myNode = node;
+      myPreview = preview;
+    }
+
+    @NotNull
+    Capture withNode(@NotNull byte[] node) {
+      return new Capture(myOptions, node, myPreview);
+    }
+
+    @NotNull
+    Capture withPreview(@NotNull byte[] preview) {
+      return new Capture(myOptions, myNode, preview);
+    }
+
+    @NotNull
+    VirtualFile toFile() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+        output.writeUTF(myOptions);
+        output.writeInt(myNode.length);
+        output.write(myNode);
+        output.writeInt(myPreview.length);
+        output.write(myPreview);
+      }
+      return new BinaryLightVirtualFile("capture.li", bytes.toByteArray());
+    }
+  }
 }
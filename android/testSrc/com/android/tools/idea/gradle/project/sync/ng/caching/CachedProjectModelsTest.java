@@ -19,16 +19,19 @@ import com.intellij.openapi.project.Project;
 import com.intellij.testFramework.IdeaTestCase;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.ObjectInputStream;
+import java.io.FileOutputStream;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.Future;
 
 import static com.android.tools.idea.testing.FileSubject.file;
 import static com.google.common.truth.Truth.assertAbout;
 import static com.google.common.truth.Truth.assertThat;
+import static com.intellij.openapi.util.io.FileUtil.ensureExists;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
@@ -59,7 +62,8 @@ public class CachedProjectModelsTest extends IdeaTestCase {
     File cacheFilePath = CachedProjectModels.getCacheFilePath(project);
     assertAbout(file()).that(cacheFilePath).isFile();
 
-    CachedProjectModels deserialized = deserialize(cacheFilePath);
+    CachedProjectModels deserialized = new CachedProjectModels.Loader().loadFromDisk(project);
+    assertNotNull(deserialized);
     assertEquals(myCache, deserialized);
     assertThat(deserialized).isNotSameAs(myCache);
 
@@ -72,11 +76,78 @@ public class CachedProjectModelsTest extends IdeaTestCase {
     assertEquals(p2, deserializedP2);
   }
 
-  @NotNull
-  private static CachedProjectModels deserialize(@NotNull File path) throws Exception {
-    try (FileInputStream fis = new FileInputStream(path)) {
-      try (ObjectInputStream ois = new ObjectInputStream(fis)) {
-        return (CachedProjectModels)ois.readObject();
+  public void testLoadFromDiskWithCorruptModule() throws Exception {
+    CachedModuleModels module1 = myCache.addModule(myModule, ":module1");
+    Person p1 = new Person("Luke");
+    module1.addModel(p1);
+
+    CachedModuleModels module2 = myCache.addModule(myModule, ":module2");
+    module2.addModel(new Person("Leia"));
+
+    File cacheFilePath = new File(createTempDirectory(), "gradle_models.bin");
+    myCache.saveToDisk(cacheFilePath).get(10, SECONDS);
+
+    // Models are stored sorted by Gradle path: flipping the last byte of the file corrupts only ":module2".
+    byte[] contents = Files.readAllBytes(cacheFilePath.toPath());
+    contents[contents.length - 1] ^= 0xFF;
+    Files.write(cacheFilePath.toPath(), contents);
+
+    CachedProjectModels loaded = new CachedProjectModels.Loader().loadFromDisk(cacheFilePath);
+    assertNotNull(loaded);
+    assertNull(loaded.findCacheForModule(":module2"));
+
+    CachedModuleModels loadedModule1 = loaded.findCacheForModule(":module1");
+    assertNotNull(loadedModule1);
+    assertEquals(p1, loadedModule1.findModel(Person.class));
+  }
+
+  public void testLoadFromDiskWithUnsupportedFile() throws Exception {
+    File cacheFilePath = new File(createTempDirectory(), "gradle_models.bin");
+    Files.write(cacheFilePath.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    assertNull(new CachedProjectModels.Loader().loadFromDisk(cacheFilePath));
+  }
+
+  public void testLoadFromDiskWithCorruptIndex() throws Exception {
+    File cacheFilePath = new File(createTempDirectory(), "gradle_models.bin");
+
+    // More modules than the file can hold
+    writeIndex(cacheFilePath, Integer.MAX_VALUE);
+    assertNull(new CachedProjectModels.Loader().loadFromDisk(cacheFilePath));
+
+    // Negative length of a Gradle path
+    writeIndex(cacheFilePath, 1, -1, 0, 0, 0, 0, 0, 0);
+    assertNull(new CachedProjectModels.Loader().loadFromDisk(cacheFilePath));
+
+    // Gradle path longer than the file
+    writeIndex(cacheFilePath, 1, Integer.MAX_VALUE, 0, 0, 0, 0, 0, 0);
+    assertNull(new CachedProjectModels.Loader().loadFromDisk(cacheFilePath));
+
+    // Index truncated in the middle of an entry
+    CachedModuleModels module = myCache.addModule(myModule, ":module1");
+    module.addModel(new Person("Luke"));
+    myCache.saveToDisk(cacheFilePath).get(10, SECONDS);
+    byte[] contents = Files.readAllBytes(cacheFilePath.toPath());
+    Files.write(cacheFilePath.toPath(), Arrays.copyOf(contents, 30));
+    assertNull(new CachedProjectModels.Loader().loadFromDisk(cacheFilePath));
+  }
+
+  public void testLoadFromDiskDeletesLegacyCacheFile() throws Exception {
+    Project project = getProject();
+    File legacyCacheFilePath = CachedProjectModels.getLegacyCacheFilePath(project);
+    ensureExists(legacyCacheFilePath.getParentFile());
+    Files.write(legacyCacheFilePath.toPath(), new byte[]{1, 2, 3, 4});
+
+    assertNull(new CachedProjectModels.Loader().loadFromDisk(project));
+    assertAbout(file()).that(legacyCacheFilePath).doesNotExist();
+  }
+
+  private static void writeIndex(@NotNull File cacheFilePath, int moduleCount, int... values) throws Exception {
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(cacheFilePath))) {
+      out.writeInt(0x47534D43);
+      out.writeInt(CachedProjectModels.FORMAT_VERSION);
+      out.writeInt(moduleCount);
+      for (int value : values) {
+        out.writeInt(value);
       }
     }
   }
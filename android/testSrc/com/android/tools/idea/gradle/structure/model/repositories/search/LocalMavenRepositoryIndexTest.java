@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.gradle.structure.model.repositories.search;
+
+import com.android.tools.idea.gradle.structure.model.repositories.search.LocalMavenRepositoryIndex.IndexedArtifact;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.IdeaTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Tests for {@link LocalMavenRepositoryIndex}.
+ */
+public class LocalMavenRepositoryIndexTest extends IdeaTestCase {
+  private File myRepositoryRoot;
+  private File myIndexFile;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myRepositoryRoot = createTempDirectory();
+    myIndexFile = new File(createTempDirectory(), "index.idx");
+    addArtifact("com.android.support", "appcompat-v7", "26.1.0", "27.0.2");
+    addArtifact("com.android.support", "design", "27.0.2");
+    addArtifact("com.google.guava", "guava", "23.0");
+  }
+
+  public void testSearch() {
+    LocalMavenRepositoryIndex index = new LocalMavenRepositoryIndex(myRepositoryRoot.toPath(), myIndexFile);
+
+    List<IndexedArtifact> found = index.search("com.android.support", "appcompat");
+    assertThat(found).hasSize(1);
+    assertEquals("appcompat-v7", found.get(0).artifactId);
+    assertThat(found.get(0).versions).containsExactly("26.1.0", "27.0.2");
+
+    assertThat(index.search(null, "")).hasSize(3);
+    assertThat(index.search("com.android.*", "*")).hasSize(2);
+    assertThat(index.search("com.*.support", "d*n")).hasSize(1);
+    assertThat(index.search("com.android", "guava")).isEmpty();
+  }
+
+  public void testIndexIsPersisted() throws Exception {
+    LocalMavenRepositoryIndex index = new LocalMavenRepositoryIndex(myRepositoryRoot.toPath(), myIndexFile);
+    assertThat(index.search(null, "")).hasSize(3);
+    assertTrue(myIndexFile.isFile());
+
+    // A new index reads its entries from disk, even if the repository is not there anymore.
+    FileUtil.delete(myRepositoryRoot);
+    LocalMavenRepositoryIndex reloaded = new LocalMavenRepositoryIndex(myRepositoryRoot.toPath(), myIndexFile);
+    List<IndexedArtifact> found = reloaded.search("com.google.guava", "guava");
+    assertThat(found).hasSize(1);
+    assertThat(found.get(0).versions).containsExactly("23.0");
+  }
+
+  public void testRefreshPicksUpChanges() throws Exception {
+    LocalMavenRepositoryIndex index = new LocalMavenRepositoryIndex(myRepositoryRoot.toPath(), myIndexFile);
+    assertThat(index.search(null, "")).hasSize(3);
+
+    addArtifact("com.squareup.okio", "okio", "1.13.0");
+    File guava = new File(myRepositoryRoot, "com/google/guava/guava");
+    FileUtil.delete(guava);
+
+    index.refresh();
+    assertThat(index.search("com.squareup", "okio")).hasSize(1);
+    assertThat(index.search("com.google.guava", "guava")).isEmpty();
+  }
+
+  private void addArtifact(@NotNull String groupId, @NotNull String artifactId, @NotNull String... versions) throws Exception {
+    File artifactFolder = new File(myRepositoryRoot, groupId.replace('.', '/') + "/" + artifactId);
+    for (String version : versions) {
+      FileUtil.ensureExists(new File(artifactFolder, version));
+    }
+    String metadata = "<metadata>\n" +
+                      "  <groupId>" + groupId + "</groupId>\n" +
+                      "  <artifactId>" + artifactId + "</artifactId>\n" +
+                      "</metadata>";
+    FileUtil.writeToFile(new File(artifactFolder, "maven-metadata.xml"), metadata);
+  }
+}
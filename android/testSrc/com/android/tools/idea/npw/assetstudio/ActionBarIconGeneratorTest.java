@@ -17,13 +17,17 @@ package com.android.tools.idea.npw.assetstudio;
 
 import com.android.tools.idea.npw.assetstudio.ActionBarIconGenerator.ActionBarOptions;
 import com.android.tools.idea.npw.assetstudio.ActionBarIconGenerator.Theme;
+import com.google.common.util.concurrent.Futures;
 import com.intellij.openapi.util.Disposer;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 
+import static com.google.common.truth.Truth.assertThat;
+
 @RunWith(JUnit4.class)
 public class ActionBarIconGeneratorTest {
 
@@ -45,4 +49,31 @@ public class ActionBarIconGeneratorTest {
   public void testLight() throws Exception {
     checkGraphic("ic_action_light", Theme.HOLO_LIGHT);
   }
+
+  @Test
+  public void testTrimmedAndPaddedImageIsCached() throws Exception {
+    BufferedImage source = new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB);
+    source.setRGB(50, 50, 0xFF000000);
+    source.setRGB(149, 149, 0xFF000000);
+
+    ActionBarOptions options = new ActionBarOptions();
+    options.sourceImageFuture = Futures.immediateFuture(source);
+    options.isTrimmed = true;
+    options.paddingPercent = 10;
+
+    GraphicGeneratorContext context = new GraphicGeneratorContext(40);
+    try {
+      BufferedImage image = IconGenerator.getTrimmedAndPaddedImage(context, options);
+      assertThat(image).isNotNull();
+      assertThat(IconGenerator.getTrimmedAndPaddedImage(context, options.clone())).isSameAs(image);
+
+      options.paddingPercent = 20;
+      BufferedImage padded = IconGenerator.getTrimmedAndPaddedImage(context, options);
+      assertThat(padded).isNotSameAs(image);
+      assertThat(padded.getWidth()).isGreaterThan(image.getWidth());
+    }
+    finally {
+      Disposer.dispose(context);
+    }
+  }
 }
@@ -19,9 +19,14 @@ import com.android.tools.idea.io.TestFileUtils;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.*;
+import com.intellij.util.ui.UIUtil;
 import org.jetbrains.android.AndroidTestCase;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -99,4 +104,24 @@ public class GutterIconCacheTest extends AndroidTestCase {
     // Modifying the image should have invalidated the cache entry.
     assertThat(GutterIconCache.getInstance().isIconUpToDate(mySampleSvgPath.toString())).isFalse();
   }
+
+  public void testBitmapThumbnailsPersistedOnDisk() throws Exception {
+    File cacheDir = FileUtil.createTempDirectory("gutterIcons", null);
+    Path bitmapPath = mySampleSvgPath.resolveSibling("GutterIconCacheTest_bitmap.png");
+    ImageIO.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB), "png", bitmapPath.toFile());
+    String path = bitmapPath.toString();
+
+    GutterIconCache cache = new GutterIconCache(cacheDir);
+    assertThat(cache.getIcon(path, null)).isNotNull();
+    File thumbnailFile = cache.getThumbnailFile(path, UIUtil.isRetina());
+    assertThat(thumbnailFile).isNotNull();
+    assertThat(thumbnailFile.isFile()).isTrue();
+
+    // A fresh cache reads the thumbnail back from disk.
+    assertThat(new GutterIconCache(cacheDir).getIcon(path, null)).isNotNull();
+
+    // Changing the bitmap changes the key of its thumbnail.
+    ImageIO.write(new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB), "png", bitmapPath.toFile());
+    assertThat(cache.getThumbnailFile(path, UIUtil.isRetina())).isNotEqualTo(thumbnailFile);
+  }
 }
@@ -255,4 +255,80 @@ public class ImagePoolTest {
     image.drawImageTo(g, sample.getWidth(), sample.getHeight(), image.getWidth(), image.getHeight());
     ImageDiffUtil.assertImageSimilar("offsetSample", sampleImagePlusOffset, testImagePlusOffset, 0.0);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testByteBudget() {
+    // 50x50 images are allocated in the 500x500 bucket (1MB each for TYPE_INT_ARGB), so the pool can only keep two of them
+    ImagePool pool = new ImagePool(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, 2_500_000);
+    try {
+      ImagePool.ImageImpl image1 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePool.ImageImpl image2 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePool.ImageImpl image3 = pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      BufferedImage buffer2 = image2.myBuffer;
+      BufferedImage buffer3 = image3.myBuffer;
+      assertEquals(3, pool.getStats().getMisses());
+
+      image1.dispose();
+      image2.dispose();
+      image3.dispose();
+      // The least recently released image was dropped
+      ImagePool.Stats stats = pool.getStats();
+      assertEquals(1, stats.getEvictions());
+      assertEquals(2, stats.getPooledImages());
+      assertEquals(2_000_000, stats.getPooledBytes());
+
+      // The most recently released images are reused first
+      assertSame(buffer3, pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null).myBuffer);
+      assertSame(buffer2, pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null).myBuffer);
+      pool.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      stats = pool.getStats();
+      assertEquals(2, stats.getHits());
+      assertEquals(4, stats.getMisses());
+      assertEquals(0, stats.getPooledBytes());
+    }
+    finally {
+      pool.dispose();
+    }
+  }
+
+  @Test
+  public void testSharedBudget() {
+    // Two 1MB images fit in the budget shared by both pools
+    ImagePool.Budget budget = new ImagePool.Budget(2_500_000);
+    ImagePool pool1 = new ImagePool(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, budget);
+    ImagePool pool2 = new ImagePool(new int[]{50, 500, 1000}, (w, h) -> (type) -> 10, budget);
+    try {
+      ImagePool.ImageImpl image1 = pool1.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePool.ImageImpl image2 = pool1.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePool.ImageImpl image3 = pool2.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+
+      image1.dispose();
+      image2.dispose();
+      image3.dispose();
+      // Releasing to the second pool dropped the least recently released image of the first one
+      assertEquals(1, pool1.getStats().getEvictions());
+      assertEquals(1, pool1.getStats().getPooledImages());
+      assertEquals(1_000_000, pool1.getStats().getPooledBytes());
+      assertEquals(0, pool2.getStats().getEvictions());
+      assertEquals(1, pool2.getStats().getPooledImages());
+
+      // Disposing a pool gives its share of the budget back
+      pool2.dispose();
+      ImagePool.ImageImpl image4 = pool1.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      ImagePool.ImageImpl image5 = pool1.create(50, 50, BufferedImage.TYPE_INT_ARGB, null);
+      image4.dispose();
+      image5.dispose();
+      assertEquals(1, pool1.getStats().getEvictions());
+      assertEquals(2, pool1.getStats().getPooledImages());
+
+      // Everything is dropped when memory runs low
+      budget.evictAll();
+      assertEquals(0, pool1.getStats().getPooledImages());
+      assertEquals(0, pool1.getStats().getPooledBytes());
+    }
+    finally {
+      pool1.dispose();
+      pool2.dispose();
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package com.android.tools.idea.rendering;
 
 import com.android.resources.ResourceFolderType;
+import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
@@ -443,6 +444,81 @@ public class LayoutPsiPullParserTest extends AndroidTestCase {
     assertEquals(END_TAG, parser.nextTag());
   }
 
+  public void testSnapshotsReusedUntilModified() throws Exception {
+    @Language("XML")
+    String contents = "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                      "    android:layout_width=\"match_parent\"\n" +
+                      "    android:layout_height=\"match_parent\">\n" +
+                      "   <TextView android:text=\"first\" />\n" +
+                      "   <LinearLayout>\n" +
+                      "     <TextView android:text=\"second\" />\n" +
+                      "   </LinearLayout>\n" +
+                      "   <TextView android:text=\"third\" />\n" +
+                      "</LinearLayout>";
+    XmlFile xmlFile = (XmlFile)myFixture.addFileToProject("res/layout/cached.xml", contents);
+
+    TagSnapshot root = LayoutPsiPullParser.create(xmlFile, new RenderLogger("test", myModule)).myRoot;
+    assertSame(root, LayoutPsiPullParser.create(xmlFile, new RenderLogger("test", myModule)).myRoot);
+
+    XmlTag second = xmlFile.getRootTag().getSubTags()[1].getSubTags()[0];
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> second.setAttribute(ATTR_TEXT, ANDROID_URI, "edited"));
+
+    LayoutPsiPullParser parser = LayoutPsiPullParser.create(xmlFile, new RenderLogger("test", myModule));
+    TagSnapshot newRoot = parser.myRoot;
+    assertNotNull(newRoot);
+    // The edited tag and its parents are new snapshots, the siblings are reused
+    assertNotSame(root, newRoot);
+    assertNotSame(root.children.get(1), newRoot.children.get(1));
+    assertSame(root.children.get(0), newRoot.children.get(0));
+    assertSame(root.children.get(2), newRoot.children.get(2));
+    assertEquals("edited", newRoot.children.get(1).children.get(0).getAttribute(ATTR_TEXT, ANDROID_URI));
+
+    // The parser walks the siblings of the reused snapshots correctly
+    assertEquals(START_TAG, parser.nextTag());
+    assertEquals(START_TAG, parser.nextTag());
+    assertEquals("first", parser.getAttributeValue(ANDROID_URI, ATTR_TEXT));
+    assertEquals(END_TAG, parser.nextTag());
+    assertEquals(START_TAG, parser.nextTag());
+    assertEquals("LinearLayout", parser.getName());
+    assertEquals(START_TAG, parser.nextTag());
+    assertEquals("edited", parser.getAttributeValue(ANDROID_URI, ATTR_TEXT));
+    assertEquals(END_TAG, parser.nextTag());
+    assertEquals(END_TAG, parser.nextTag());
+    assertEquals(START_TAG, parser.nextTag());
+    assertEquals("third", parser.getAttributeValue(ANDROID_URI, ATTR_TEXT));
+    assertEquals(END_TAG, parser.nextTag());
+    assertEquals(END_TAG, parser.nextTag());
+  }
+
+  public void testSnapshotsRebuiltWhenNamespaceDeclared() throws Exception {
+    @Language("XML")
+    String contents = "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                      "    android:layout_width=\"match_parent\"\n" +
+                      "    android:layout_height=\"match_parent\">\n" +
+                      "   <TextView app:randomAttr=\"123\" />\n" +
+                      "</LinearLayout>";
+    XmlFile xmlFile = (XmlFile)myFixture.addFileToProject("res/layout/namespace.xml", contents);
+
+    TagSnapshot root = LayoutPsiPullParser.create(xmlFile, new RenderLogger("test", myModule)).myRoot;
+    assertNotNull(root);
+    assertNull(root.children.get(0).getAttribute("randomAttr", AUTO_URI));
+
+    // Adding the declaration changes the root tag only, but the namespace of the attributes of its children too
+    XmlTag rootTag = xmlFile.getRootTag();
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> rootTag.setAttribute("xmlns:app", AUTO_URI));
+
+    LayoutPsiPullParser parser = LayoutPsiPullParser.create(xmlFile, new RenderLogger("test", myModule));
+    TagSnapshot newRoot = parser.myRoot;
+    assertNotNull(newRoot);
+    assertNotSame(root, newRoot);
+    assertNotSame(root.children.get(0), newRoot.children.get(0));
+
+    assertEquals(START_TAG, parser.nextTag());
+    assertEquals(START_TAG, parser.nextTag());
+    assertEquals("TextView", parser.getName());
+    assertEquals("123", parser.getAttributeValue("http://schemas.android.com/apk/res/foo.bar", "randomAttr"));
+  }
+
   enum NextEventType { NEXT, NEXT_TOKEN, NEXT_TAG }
 
   private void compareParsers(PsiFile file, NextEventType nextEventType) throws Exception {
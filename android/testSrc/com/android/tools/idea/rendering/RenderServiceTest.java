@@ -19,9 +19,14 @@ import com.android.ide.common.rendering.api.ViewInfo;
 import com.google.common.util.concurrent.ListenableFuture;
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RenderServiceTest extends TestCase {
   public void testGetSafeBounds() {
@@ -79,4 +84,72 @@ public class RenderServiceTest extends TestCase {
     future.get();
     assertTrue(called.get());
   }
-}
\ No newline at end of file
+
+  public void testAsyncRenderActionPriorities() throws Exception {
+    CountDownLatch blockRenderThread = new CountDownLatch(1);
+    ListenableFuture<Void> blocker = RenderService.runAsyncRenderAction(() -> {
+      blockRenderThread.await();
+      return null;
+    });
+
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    ListenableFuture<Boolean> low = RenderService.runAsyncRenderAction(() -> order.add("low"), RenderService.RenderingPriority.LOW, null);
+    ListenableFuture<Boolean> normal =
+      RenderService.runAsyncRenderAction(() -> order.add("normal"), RenderService.RenderingPriority.NORMAL, null);
+    ListenableFuture<Boolean> high = RenderService.runAsyncRenderAction(() -> order.add("high"), RenderService.RenderingPriority.HIGH, null);
+
+    blockRenderThread.countDown();
+    blocker.get();
+    low.get();
+    normal.get();
+    high.get();
+    assertEquals(Arrays.asList("high", "normal", "low"), order);
+  }
+
+  public void testLowPriorityRenderActionIsNotStarved() throws Exception {
+    CountDownLatch blockRenderThread = new CountDownLatch(1);
+    ListenableFuture<Void> blocker = RenderService.runAsyncRenderAction(() -> {
+      blockRenderThread.await();
+      return null;
+    });
+
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    ListenableFuture<Boolean> low = RenderService.runAsyncRenderAction(() -> order.add("low"), RenderService.RenderingPriority.LOW, null);
+    List<ListenableFuture<Boolean>> highs = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      highs.add(RenderService.runAsyncRenderAction(() -> order.add("high"), RenderService.RenderingPriority.HIGH, null));
+    }
+
+    blockRenderThread.countDown();
+    blocker.get();
+    low.get();
+    for (ListenableFuture<Boolean> high : highs) {
+      high.get();
+    }
+    // The first high priority actions go ahead, but the low priority one runs before the later ones
+    int lowIndex = order.indexOf("low");
+    assertTrue(lowIndex > 0);
+    assertTrue(lowIndex < highs.size());
+  }
+
+  public void testSupersededRenderActionIsCancelled() throws Exception {
+    CountDownLatch blockRenderThread = new CountDownLatch(1);
+    ListenableFuture<Void> blocker = RenderService.runAsyncRenderAction(() -> {
+      blockRenderThread.await();
+      return null;
+    });
+
+    Object key = new Object();
+    AtomicInteger runs = new AtomicInteger();
+    ListenableFuture<Integer> first =
+      RenderService.runAsyncRenderAction(runs::incrementAndGet, RenderService.RenderingPriority.NORMAL, key);
+    ListenableFuture<Integer> second =
+      RenderService.runAsyncRenderAction(runs::incrementAndGet, RenderService.RenderingPriority.NORMAL, key);
+
+    blockRenderThread.countDown();
+    blocker.get();
+    assertEquals(1, second.get().intValue());
+    assertTrue(first.isCancelled());
+    assertEquals(1, runs.get());
+  }
+}
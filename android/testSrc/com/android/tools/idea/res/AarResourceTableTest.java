@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.res;
+
+import com.android.ide.common.rendering.api.ResourceValue;
+import com.android.ide.common.res2.ResourceItem;
+import com.android.ide.common.res2.ResourceSet;
+import com.android.resources.ResourceType;
+import com.android.tools.idea.log.LogWrapper;
+import com.android.tools.idea.projectsystem.FilenameConstants;
+import com.google.common.io.Files;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+import org.jetbrains.android.AndroidTestBase;
+
+import java.io.File;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.io.File.separatorChar;
+
+public class AarResourceTableTest extends TestCase {
+  private static final String LIBRARY_NAME = "com.test:test-library:1.0.0";
+
+  private File myResourceDir;
+  private File myTempDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myResourceDir = new File(AndroidTestBase.getTestDataPath() + separatorChar +
+                             "rendering" + separatorChar +
+                             FilenameConstants.EXPLODED_AAR + separatorChar +
+                             "my_aar_lib" + separatorChar +
+                             "res");
+    myTempDir = Files.createTempDir();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myTempDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testItemsAndValues() throws Exception {
+    AarResourceTable table = AarResourceTable.create(loadResourceSet());
+    List<ResourceItem> items = table.createItems(myResourceDir, null, LIBRARY_NAME);
+    assertThat(items).hasSize(table.getItemCount());
+
+    int hellos = 0;
+    for (ResourceItem item : items) {
+      assertThat(item.getSource()).isNotNull();
+      assertThat(item.getLibraryName()).isEqualTo(LIBRARY_NAME);
+      if (item.getType() == ResourceType.STRING && item.getName().equals("hello")) {
+        ResourceValue value = item.getResourceValue(false);
+        assertThat(value).isNotNull();
+        assertThat(value.getValue()).isAnyOf("bonjour", "hello", "hola");
+        hellos++;
+      }
+    }
+    assertThat(hellos).isEqualTo(3);
+  }
+
+  public void testSaveAndLoad() throws Exception {
+    AarResourceTable table = AarResourceTable.create(loadResourceSet());
+    File cacheFile = new File(myTempDir, "table.bin");
+    long timestamp = AarResourceTable.computeTimestamp(myResourceDir);
+    table.save(cacheFile, myResourceDir, timestamp);
+
+    AarResourceTable loaded = AarResourceTable.load(cacheFile, myResourceDir, timestamp);
+    assertThat(loaded).isNotNull();
+    assertThat(loaded.getItemCount()).isEqualTo(table.getItemCount());
+
+    List<ResourceItem> expected = table.createItems(myResourceDir, null, LIBRARY_NAME);
+    List<ResourceItem> actual = loaded.createItems(myResourceDir, null, LIBRARY_NAME);
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.get(i).getType()).isEqualTo(expected.get(i).getType());
+      assertThat(actual.get(i).getName()).isEqualTo(expected.get(i).getName());
+      assertThat(actual.get(i).getQualifiers()).isEqualTo(expected.get(i).getQualifiers());
+    }
+  }
+
+  public void testStaleOrCorruptCacheIsIgnored() throws Exception {
+    AarResourceTable table = AarResourceTable.create(loadResourceSet());
+    File cacheFile = new File(myTempDir, "table.bin");
+    long timestamp = AarResourceTable.computeTimestamp(myResourceDir);
+    table.save(cacheFile, myResourceDir, timestamp);
+
+    assertThat(AarResourceTable.load(cacheFile, myResourceDir, timestamp + 1)).isNull();
+    assertThat(AarResourceTable.load(cacheFile, myTempDir, timestamp)).isNull();
+
+    FileUtil.writeToFile(cacheFile, "not a resource table");
+    assertThat(AarResourceTable.load(cacheFile, myResourceDir, timestamp)).isNull();
+  }
+
+  private ResourceSet loadResourceSet() throws Exception {
+    ResourceSet resourceSet = new ResourceSet(myResourceDir.getName(), null, null, false);
+    resourceSet.addSource(myResourceDir);
+    resourceSet.setTrackSourcePositions(false);
+    resourceSet.loadFromFiles(new LogWrapper(Logger.getInstance(AarResourceTableTest.class)));
+    return resourceSet;
+  }
+}
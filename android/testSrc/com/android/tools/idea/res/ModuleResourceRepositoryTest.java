@@ -21,6 +21,7 @@ import com.android.ide.common.res2.ResourceItem;
 import com.android.ide.common.resources.configuration.FolderConfiguration;
 import com.android.resources.ResourceType;
 import com.android.tools.lint.detector.api.LintUtils;
+import com.google.common.collect.ListMultimap;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.vfs.VfsUtil;
@@ -350,6 +351,40 @@ public class ModuleResourceRepositoryTest extends AndroidTestCase {
     assertStringIs(resources, "title_layout_changes", "New Layout Changes", false);
   }
 
+  public void testIncrementalMergeMatchesFullMerge() {
+    VirtualFile values1 = myFixture.copyFileToProject(VALUES, "res/values/values.xml");
+    VirtualFile values2 = myFixture.copyFileToProject(VALUES_OVERLAY1, "res2/values/values.xml");
+    VirtualFile values3 = myFixture.copyFileToProject(VALUES_OVERLAY2, "res3/values/nameDoesNotMatter.xml");
+    myFixture.copyFileToProject(VALUES_OVERLAY2_NO, "res3/values-no/values.xml");
+    List<VirtualFile> roots = Arrays.asList(values1.getParent().getParent(), values2.getParent().getParent(), values3.getParent().getParent());
+    ModuleResourceRepository resources = ModuleResourceRepository.createForTest(myFacet, roots);
+    PsiFile psiValues3 = PsiManager.getInstance(getProject()).findFile(values3);
+    assertNotNull(psiValues3);
+    PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+    Document document = documentManager.getDocument(psiValues3);
+    assertNotNull(document);
+
+    // The first edit converts the file to Psi, which requires a rescan.
+    WriteCommandAction.runWriteCommandAction(null, () -> {
+      document.insertString(document.getText().indexOf("Very Different App Name"), "Not ");
+      documentManager.commitDocument(document);
+    });
+    UIUtil.dispatchAllInvocationEvents();
+    ListMultimap<String, ResourceItem> strings = resources.getMap(null, ResourceType.STRING, false);
+    assertNotNull(strings);
+
+    // Renaming an item only merges the old and new names again, in place.
+    WriteCommandAction.runWriteCommandAction(null, () -> {
+      document.insertString(document.getText().indexOf("app_name"), "r");
+      documentManager.commitDocument(document);
+    });
+    assertSame(strings, resources.getMap(null, ResourceType.STRING, false));
+    assertTrue(strings.containsKey("rapp_name"));
+
+    ModuleResourceRepository fullMerge = ModuleResourceRepository.createForTest(myFacet, roots);
+    assertEquals(fullMerge.getMap(null, ResourceType.STRING, false), strings);
+  }
+
   public void testHasResourcesOfType() {
     // Test hasResourcesOfType merging (which may be optimized to be lighter-weight than map merging).
     VirtualFile res1 = myFixture.copyFileToProject(LAYOUT, "res/layout/layout.xml").getParent().getParent();
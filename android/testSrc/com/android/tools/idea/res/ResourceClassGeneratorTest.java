@@ -182,6 +182,38 @@ public class ResourceClassGeneratorTest extends AndroidTestCase {
     //assertNotNull(clz.getField("center_vertical"));
   }
 
+  public void testBytecodeCache() throws Exception {
+    ResourceRepository repository = TestResourceRepository.createRes2(new Object[]{
+      "layout/layout1.xml", "<!--contents doesn't matter-->",
+
+      "values/strings.xml", "" +
+                            "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                            "<resources>\n" +
+                            "    <string name=\"show_all_apps\">All</string>\n" +
+                            "</resources>\n",});
+    LocalResourceRepository resources = new LocalResourceRepositoryDelegate("test", repository);
+    AppResourceRepository appResources = new AppResourceRepository(myFacet, Collections.singletonList(resources),
+                                                                   Collections.emptyList());
+    ResourceClassGenerator generator = ResourceClassGenerator.create(appResources);
+
+    byte[] strings = generator.generate("my.test.pkg.R$string");
+    assertNotNull(strings);
+    assertSame(strings, generator.generate("my.test.pkg.R$string"));
+
+    // Changes to other types don't regenerate the class.
+    appResources.invalidateCache(resources, null, ResourceType.LAYOUT);
+    assertSame(strings, generator.generate("my.test.pkg.R$string"));
+
+    appResources.invalidateCache(resources, null, ResourceType.STRING);
+    byte[] regenerated = generator.generate("my.test.pkg.R$string");
+    assertNotSame(strings, regenerated);
+    assertSame(regenerated, generator.generate("my.test.pkg.R$string"));
+
+    // Resetting the ids invalidates all the classes.
+    appResources.resetDynamicIds(false);
+    assertNotSame(regenerated, generator.generate("my.test.pkg.R$string"));
+  }
+
   public void testStyleableMerge() throws Exception {
     final ResourceRepository repositoryA = TestResourceRepository.createRes2(new Object[]{
       "values/styles.xml", "" +
@@ -3929,6 +3929,64 @@ public class ResourceFolderRepositoryTest extends AndroidTestCase {
     assertEquals(0, resourcesReloaded.getInitialScanState().numXmlReparsed);
   }
 
+  public void testScanAddsParsedFilesToMerger() {
+    VirtualFile values = myFixture.copyFileToProject(VALUES1, "res/values/myvalues.xml");
+    ResourceFolderRepository resources = createRepository();
+    assertEquals(1, resources.getInitialScanState().numXmlReparsed);
+
+    // The file parsed by the scan is the one written to the file cache, so it does not have to be parsed again
+    List<ResourceItem> items = resources.getResourceItem(ResourceType.STRING, "app_name");
+    assertNotNull(items);
+    ResourceFile parsedFile = items.get(0).getSource();
+    assertNotNull(parsedFile);
+    assertSame(parsedFile, resources.getInitialScanState().myResourceSet.getDataFile(VfsUtilCore.virtualToIoFile(values)));
+  }
+
+  public void testFileCacheUpdateKeepsLoadedFiles() {
+    myFixture.copyFileToProject(LAYOUT1, "res/layout/layout.xml");
+    myFixture.copyFileToProject(VALUES1, "res/values/myvalues.xml");
+    ResourceFolderRepository resources = createRepository();
+    resources.saveStateToFile();
+
+    // Files loaded from the cache and files parsed by the scan are written to the updated cache
+    myFixture.copyFileToProject(STRINGS, "res/values/strings.xml");
+    myFixture.copyFileToProject(STRINGS, "res/values-fr/strings.xml");
+    ResourceFolderRegistry.reset();
+    ResourceFolderRepository updated = createRepository();
+    assertEquals(4, updated.getInitialScanState().numXml);
+    assertEquals(2, updated.getInitialScanState().numXmlReparsed);
+    updated.saveStateToFile();
+
+    ResourceFolderRegistry.reset();
+    ResourceFolderRepository fromBlob = createRepository();
+    assertTrue(fromBlob.hasFreshFileCache());
+    assertEquals(4, fromBlob.getInitialScanState().numXml);
+    assertEquals(0, fromBlob.getInitialScanState().numXmlReparsed);
+    assertTrue(fromBlob.equalFilesItems(updated));
+  }
+
+  public void testInitialScanOrderMatchesFolderOrder() {
+    String[] folders = {"values", "values-de", "values-fr", "values-ja", "values-nb", "values-sv"};
+    for (String folder : folders) {
+      myFixture.copyFileToProject(STRINGS, "res/" + folder + "/strings.xml");
+    }
+    ResourceFolderRepository resources = createRepository();
+    assertEquals(folders.length, resources.getInitialScanState().numXmlReparsed);
+
+    // The files are parsed concurrently, but the items must still be in the order in which the folders are enumerated.
+    List<String> expected = new ArrayList<>();
+    for (VirtualFile folder : resources.getResourceDir().getChildren()) {
+      expected.add(folder.getName());
+    }
+    List<ResourceItem> items = resources.getResourceItem(ResourceType.STRING, "app_name");
+    assertNotNull(items);
+    List<String> actual = new ArrayList<>();
+    for (ResourceItem item : items) {
+      actual.add(item.getSource().getFile().getParentFile().getName());
+    }
+    assertEquals(expected, actual);
+  }
+
   public void testSerialization() throws Exception {
     myFixture.copyFileToProject(LAYOUT1, "res/layout/layout.xml");
     myFixture.copyFileToProject(LAYOUT1, "res/layout-xlarge-land/layout.xml");
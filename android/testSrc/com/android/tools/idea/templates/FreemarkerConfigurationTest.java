@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.templates;
+
+import com.google.common.io.Files;
+import com.intellij.openapi.util.io.FileUtil;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FreemarkerConfigurationTest extends TestCase {
+  private File myTempDir;
+  private File myRootFolder;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myTempDir = Files.createTempDir();
+    myRootFolder = new File(myTempDir, "templates");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myTempDir);
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testParsedTemplatesAreReusedUntilModified() throws Exception {
+    File file = new File(myRootFolder, "activities/Empty/root/hello.ftl");
+    FileUtil.writeToFile(file, "Hello <#include \"name.ftl\">");
+    File include = new File(file.getParentFile(), "name.ftl");
+    FileUtil.writeToFile(include, "${name}");
+
+    StudioTemplateLoader loader = new StudioTemplateLoader(file.getParentFile().getParentFile());
+    assertThat(loader.getTemplateRootFolder()).isEqualTo(myRootFolder);
+    String name = loader.findTemplate(file);
+
+    Configuration configuration = FreemarkerConfiguration.getShared(myRootFolder);
+    assertThat(FreemarkerConfiguration.getShared(myRootFolder)).isSameAs(configuration);
+    Template template = configuration.getTemplate(name);
+    assertThat(configuration.getTemplate(name)).isSameAs(template);
+    assertThat(process(template)).isEqualTo("Hello World");
+
+    FileUtil.writeToFile(include, "Android");
+    assertTrue(include.setLastModified(include.lastModified() + 2000));
+    assertThat(process(configuration.getTemplate(name))).isEqualTo("Hello Android");
+
+    FileUtil.writeToFile(file, "Goodbye <#include \"name.ftl\">");
+    assertTrue(file.setLastModified(file.lastModified() + 2000));
+    Template modified = configuration.getTemplate(name);
+    assertThat(modified).isNotSameAs(template);
+    assertThat(process(modified)).isEqualTo("Goodbye Android");
+  }
+
+  public void testConcurrentRenderingsDoNotShareFolders() throws Exception {
+    File first = new File(myRootFolder, "activities/First/root");
+    FileUtil.writeToFile(new File(first, "hello.ftl"), "First <#include \"name.ftl\">");
+    FileUtil.writeToFile(new File(first, "name.ftl"), "${name}");
+    File second = new File(myRootFolder, "activities/Second/root");
+    FileUtil.writeToFile(new File(second, "hello.ftl"), "Second <#include \"name.ftl\">");
+    FileUtil.writeToFile(new File(second, "name.ftl"), "${name}!");
+
+    StudioTemplateLoader firstLoader = new StudioTemplateLoader(first);
+    StudioTemplateLoader secondLoader = new StudioTemplateLoader(second);
+    String firstName = firstLoader.findTemplate(new File("hello.ftl"));
+    String secondName = secondLoader.findTemplate(new File("hello.ftl"));
+    Configuration configuration = FreemarkerConfiguration.getShared(myRootFolder);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        String name = i % 2 == 0 ? firstName : secondName;
+        results.add(executor.submit(() -> process(configuration.getTemplate(name))));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertThat(results.get(i).get()).isEqualTo(i % 2 == 0 ? "First World" : "Second World!");
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    // Looking up templates leaves the folders of the renderings alone
+    assertThat(firstLoader.getSourceFile(new File("name.ftl"))).isEqualTo(new File(first, "name.ftl"));
+    assertThat(secondLoader.getSourceFile(new File("name.ftl"))).isEqualTo(new File(second, "name.ftl"));
+    firstLoader.pushTemplateFolder(second);
+    assertThat(firstLoader.getSourceFile(new File("name.ftl"))).isEqualTo(new File(second, "name.ftl"));
+    assertThat(process(configuration.getTemplate(firstName))).isEqualTo("First World");
+    firstLoader.popTemplateFolder();
+    assertThat(firstLoader.getSourceFile(new File("name.ftl"))).isEqualTo(new File(first, "name.ftl"));
+  }
+
+  private static String process(Template template) throws Exception {
+    StringWriter out = new StringWriter();
+    template.process(Collections.singletonMap("name", "World"), out);
+    return out.toString();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jetbrains.android.inspections.lint;
+
+import com.android.tools.idea.lint.LintEditorResultCache;
+import com.android.tools.lint.checks.HardcodedValuesDetector;
+import com.android.tools.lint.checks.TypographyDetector;
+import com.google.common.collect.ImmutableSet;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.android.AndroidTestCase;
+import org.jetbrains.android.facet.AndroidRootUtil;
+
+import java.util.List;
+
+public class LintEditorResultCacheTest extends AndroidTestCase {
+  private static final String LAYOUT = "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"/>";
+
+  public void testReusesResultsForUnchangedFile() {
+    LintEditorResultCache cache = LintEditorResultCache.getInstance(getProject());
+    VirtualFile file = addLayout();
+
+    State state = createState(file, LAYOUT);
+    state.getProblems().add(new ProblemData(HardcodedValuesDetector.ISSUE, "Hardcoded string", new TextRange(0, 5), null, null));
+    String stamp = LintEditorResultCache.computeStamp(state);
+    assertNull(cache.get(state, stamp));
+    cache.put(state, stamp);
+
+    State next = createState(file, LAYOUT);
+    List<ProblemData> problems = cache.get(next, LintEditorResultCache.computeStamp(next));
+    assertNotNull(problems);
+    assertEquals(1, problems.size());
+    assertSame(HardcodedValuesDetector.ISSUE, problems.get(0).getIssue());
+  }
+
+  public void testContentAndIssueChangesInvalidate() {
+    LintEditorResultCache cache = LintEditorResultCache.getInstance(getProject());
+    VirtualFile file = addLayout();
+
+    State state = createState(file, LAYOUT);
+    cache.put(state, LintEditorResultCache.computeStamp(state));
+
+    State edited = createState(file, LAYOUT + "\n");
+    assertNull(cache.get(edited, LintEditorResultCache.computeStamp(edited)));
+
+    cache.put(state, LintEditorResultCache.computeStamp(state));
+    State moreIssues = new State(myModule, file, LAYOUT, ImmutableSet.of(HardcodedValuesDetector.ISSUE, TypographyDetector.DASHES));
+    assertNull(cache.get(moreIssues, LintEditorResultCache.computeStamp(moreIssues)));
+  }
+
+  public void testConfigurationChangesInvalidate() {
+    LintEditorResultCache cache = LintEditorResultCache.getInstance(getProject());
+    VirtualFile file = addLayout();
+
+    State state = createState(file, LAYOUT);
+    cache.put(state, LintEditorResultCache.computeStamp(state));
+    myFixture.addFileToProject("lint.xml", "<lint><issue id=\"HardcodedText\" severity=\"error\"/></lint>");
+    assertNull(cache.get(state, LintEditorResultCache.computeStamp(state)));
+
+    cache.put(state, LintEditorResultCache.computeStamp(state));
+    VirtualFile manifest = AndroidRootUtil.getPrimaryManifestFile(myFacet);
+    assertNotNull(manifest);
+    Document document = FileDocumentManager.getInstance().getDocument(manifest);
+    assertNotNull(document);
+    WriteCommandAction.runWriteCommandAction(getProject(), () -> document.insertString(document.getTextLength(), "\n"));
+    assertNull(cache.get(state, LintEditorResultCache.computeStamp(state)));
+  }
+
+  public void testDirtyResultsAreNotCached() {
+    LintEditorResultCache cache = LintEditorResultCache.getInstance(getProject());
+    VirtualFile file = addLayout();
+
+    State state = createState(file, LAYOUT);
+    String stamp = LintEditorResultCache.computeStamp(state);
+    state.markDirty();
+    cache.put(state, stamp);
+    assertNull(cache.get(state, stamp));
+  }
+
+  private VirtualFile addLayout() {
+    PsiFile psiFile = myFixture.addFileToProject("res/layout/layout.xml", LAYOUT);
+    return psiFile.getVirtualFile();
+  }
+
+  private State createState(VirtualFile file, String content) {
+    return new State(myModule, file, content, ImmutableSet.of(HardcodedValuesDetector.ISSUE));
+  }
+}
@@ -16,14 +16,18 @@
 package com.android.tools.idea.common.scene;
 
 import java.util.Arrays;
+import java.util.HashMap;
 
 /**
- * This class provides efficient detection of many objects
+ * This class provides efficient detection of many objects.
+ * The bounds of the objects are kept in a uniform grid so that {@link #find(int, int)} only tests the objects near the point.
  */
 public class ScenePicker {
   private final static int MAX_DATA_SIZE = 10;
   private final static int INITAL_OBJECT_STORE = 30;
   private final static double EPSILON = 0.00001;
+  private final static int CELL_SHIFT = 6; // 64 pixel cells
+  private final static int MAX_CELLS_PER_OBJECT = 16;
   private double[] mObjectData = new double[100];
   private int mObjectDataUsed = 0;
   private int[] mObjectOffset = new int[INITAL_OBJECT_STORE];
@@ -33,6 +37,13 @@ public class ScenePicker {
   HitElementListener mHitElementListener;
 
   private int mObjectCount = 0;
+
+  // Uniform grid of the object bounds. Cells are kept between frames and emptied lazily by bumping mGeneration,
+  // objects spanning too many cells are kept in mLargeObjects and always tested.
+  private final HashMap<Long, Cell> mCells = new HashMap<>();
+  private int mGeneration = 0;
+  private int[] mLargeObjects = new int[INITAL_OBJECT_STORE];
+  private int mLargeObjectCount = 0;
   private final static int OBJECT_LINE = 0;
   private final static int OBJECT_POINT = 1;
   private final static int OBJECT_CURVE = 2;
@@ -60,17 +71,34 @@ public class ScenePicker {
    * @param y location y
    */
   public void find(int x, int y) {
-    for (int i = 0; i < mObjectCount; i++) {
-      int p = i * 4;
-      int x1 = mRect[p++];
-      int y1 = mRect[p++];
-      int x2 = mRect[p++];
-      int y2 = mRect[p];
-      if (inRect(x, y, x1, y1, x2, y2)) {
-        SelectionEngine selector = myEngines[mTypes[i]];
-        if (selector.inRange(i, x, y)) {
-          mHitElementListener.over(mObjects[i], selector.distance());
-        }
+    Cell cell = mCells.get(cellKey(x >> CELL_SHIFT, y >> CELL_SHIFT));
+    int[] cellObjects = cell != null && cell.mGeneration == mGeneration ? cell.mObjects : null;
+    int cellCount = cellObjects != null ? cell.mCount : 0;
+    // Both lists are sorted by object index; merge them so that objects are reported in the order they were added
+    int c = 0;
+    int l = 0;
+    while (c < cellCount || l < mLargeObjectCount) {
+      int i;
+      if (l == mLargeObjectCount || (c < cellCount && cellObjects[c] < mLargeObjects[l])) {
+        i = cellObjects[c++];
+      }
+      else {
+        i = mLargeObjects[l++];
+      }
+      check(i, x, y);
+    }
+  }
+
+  private void check(int i, int x, int y) {
+    int p = i * 4;
+    int x1 = mRect[p++];
+    int y1 = mRect[p++];
+    int x2 = mRect[p++];
+    int y2 = mRect[p];
+    if (inRect(x, y, x1, y1, x2, y2)) {
+      SelectionEngine selector = myEngines[mTypes[i]];
+      if (selector.inRange(i, x, y)) {
+        mHitElementListener.over(mObjects[i], selector.distance());
       }
     }
   }
@@ -114,9 +142,63 @@ public class ScenePicker {
   public void reset() {
     mObjectCount = 0;
     mObjectDataUsed = 0;
+    mLargeObjectCount = 0;
+    mGeneration++; // empties all the cells without reallocating them
     Arrays.fill(mObjects, null);// delete references
   }
 
+  private static long cellKey(int column, int row) {
+    return ((long)column << 32) | (row & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Register the object being added in all the grid cells its bounds overlap
+   */
+  private void index(int object, int x1, int y1, int x2, int y2) {
+    int column1 = x1 >> CELL_SHIFT;
+    int row1 = y1 >> CELL_SHIFT;
+    int column2 = x2 >> CELL_SHIFT;
+    int row2 = y2 >> CELL_SHIFT;
+    if ((long)(column2 - column1 + 1) * (row2 - row1 + 1) > MAX_CELLS_PER_OBJECT) {
+      if (mLargeObjectCount == mLargeObjects.length) {
+        mLargeObjects = Arrays.copyOf(mLargeObjects, mLargeObjects.length * 2);
+      }
+      mLargeObjects[mLargeObjectCount++] = object;
+      return;
+    }
+    for (int column = column1; column <= column2; column++) {
+      for (int row = row1; row <= row2; row++) {
+        Long key = cellKey(column, row);
+        Cell cell = mCells.get(key);
+        if (cell == null) {
+          cell = new Cell();
+          mCells.put(key, cell);
+        }
+        cell.add(object, mGeneration);
+      }
+    }
+  }
+
+  /**
+   * The indexes of the objects overlapping one cell of the grid, in the order they were added
+   */
+  private static class Cell {
+    int[] mObjects = new int[4];
+    int mCount;
+    int mGeneration;
+
+    void add(int object, int generation) {
+      if (mGeneration != generation) {
+        mGeneration = generation;
+        mCount = 0;
+      }
+      if (mCount == mObjects.length) {
+        mObjects = Arrays.copyOf(mObjects, mObjects.length * 2);
+      }
+      mObjects[mCount++] = object;
+    }
+  }
+
   /**
    * resize tables as the number of objects grow
    */
@@ -223,6 +305,7 @@ public class ScenePicker {
       mRect[off++] = y1;
       mRect[off++] = x2;
       mRect[off] = y2;
+      index(mObjectCount, x1, y1, x2, y2);
     }
 
     boolean inRange(int object, int x, int y) {
@@ -32,6 +32,7 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.ide.PooledThreadExecutor;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -91,7 +92,7 @@ public class ThumbnailManager extends AndroidFacetScopedService {
           myRenderModStamps.put(file, configuration, modStamp);
           result.complete(image);
         }
-        catch (InterruptedException | ExecutionException e) {
+        catch (InterruptedException | ExecutionException | CancellationException e) {
           result.completeExceptionally(e);
         }
       }, PooledThreadExecutor.INSTANCE);
@@ -110,6 +111,7 @@ public class ThumbnailManager extends AndroidFacetScopedService {
     RenderTask task = renderService.createTask(file, configuration, logger, surface);
     if (task != null) {
       task.setDecorations(false);
+      task.setPriority(RenderService.RenderingPriority.LOW);
     }
     return task;
   }
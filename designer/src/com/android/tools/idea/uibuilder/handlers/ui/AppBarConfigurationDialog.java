@@ -61,6 +61,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
 
 import static com.android.SdkConstants.*;
@@ -703,7 +704,12 @@ public class AppBarConfigurationDialog extends JDialog {
     if (task != null) {
       task.setRenderingMode(SessionParams.RenderingMode.NORMAL);
       task.setFolderType(ResourceFolderType.LAYOUT);
-      result = Futures.getUnchecked(task.render());
+      try {
+        result = Futures.getUnchecked(task.render());
+      }
+      catch (CancellationException ignored) {
+        // The render was superseded before it started, there is no preview to show.
+      }
       task.dispose();
     }
 
@@ -15,7 +15,12 @@
  */
 package com.android.tools.idea.uibuilder.mockup.colorextractor;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -29,6 +34,9 @@ import java.util.List;
  * by:  Martin Ester, Hans-Peter Kriegel, Jörg Sander, Xiaowei Xu
  *
  * http://www2.cs.uh.edu/~ceick/7363/Papers/dbscan.pdf
+ *
+ * Neighbors are looked up in a uniform grid of cells of size eps, so each region query
+ * only visits the points of the adjacent cells instead of the whole input.
  */
 @SuppressWarnings("ForLoopReplaceableByForEach")
 public class DBSCANClusterer implements Clusterer{
@@ -47,6 +55,7 @@ public class DBSCANClusterer implements Clusterer{
   private List<List<double[]>> myClusters = new ArrayList<>();
 
   private PointType[] myPointTypes;
+  @Nullable private GridIndex myIndex;
   ProgressListener listener;
 
   /**
@@ -76,6 +85,7 @@ public class DBSCANClusterer implements Clusterer{
   public List<List<double[]>> cluster(double[][] input) {
     List<double[]> cluster = new ArrayList<>();
     myPointTypes = new PointType[input.length];
+    myIndex = GridIndex.create(input, myEps);
 
     for (int i = 0; i < input.length; i++) {
       if (myPointTypes[i] == null) { // If point is unclassified
@@ -89,6 +99,7 @@ public class DBSCANClusterer implements Clusterer{
         }
       }
     }
+    myIndex = null;
     return myClusters;
   }
 
@@ -123,8 +134,8 @@ public class DBSCANClusterer implements Clusterer{
 
       // We now expand the search to all the neighbors,
       // if they have also have neighbors, they become core point
-      while (!seeds.isEmpty()) {
-        int currentP = seeds.get(0);
+      for (int seedIndex = 0; seedIndex < seeds.size(); seedIndex++) {
+        int currentP = seeds.get(seedIndex);
         List<Integer> result = regionQuery(input, currentP);
 
         if (result.size() >= myMinPts) {
@@ -142,7 +153,6 @@ public class DBSCANClusterer implements Clusterer{
             }
           }
         }
-        seeds.remove(0);
       }
       return true;
     }
@@ -165,8 +175,14 @@ public class DBSCANClusterer implements Clusterer{
   private List<Integer> regionQuery(double[][] input, int pointIndex) {
     List<Integer> seeds = new ArrayList<>();
     double[] current = input[pointIndex];
+    float epsSquare = myEps * myEps;
+    if (myIndex != null) {
+      myIndex.query(input, current, epsSquare, seeds);
+      // Keep the order of a linear scan so the clusters don't depend on the index
+      Collections.sort(seeds);
+      return seeds;
+    }
     for (int i = 0; i < input.length; i++) {
-      float epsSquare = myEps * myEps;
       if (input[i] != current && distance(input[i], current) <= epsSquare) {
         seeds.add(i);
       }
@@ -183,8 +199,122 @@ public class DBSCANClusterer implements Clusterer{
   private static double distance(double[] neighbor, double[] point) {
     double squares = 0;
     for (int i = 0; i < Math.min(neighbor.length, point.length); i++) {
-      squares += Math.pow(neighbor[i] - point[i], 2);
+      double delta = neighbor[i] - point[i];
+      squares += delta * delta;
     }
     return squares;
   }
+
+  /**
+   * Uniform grid over points of up to 3 dimensions. Cells have a size of eps, so all the points
+   * at a distance less or equal to eps from a point are in its cell or in one of the adjacent cells.
+   */
+  private static final class GridIndex {
+    private static final int MAX_DIMENSION = 3;
+    private static final int BITS_PER_DIMENSION = 21;
+    private static final long CELL_MASK = (1L << BITS_PER_DIMENSION) - 1;
+    private static final int CELL_OFFSET = 1 << (BITS_PER_DIMENSION - 1);
+    // Cells are made slightly larger than eps so rounding errors can't put two neighbors two cells apart
+    private static final double CELL_MARGIN = 1.001;
+
+    private final double myCellSize;
+    private final int myDimension;
+    private final HashMap<Long, int[]> myCells;
+
+    private GridIndex(double cellSize, int dimension, @NotNull HashMap<Long, int[]> cells) {
+      myCellSize = cellSize;
+      myDimension = dimension;
+      myCells = cells;
+    }
+
+    /**
+     * Creates the index of input, or returns null if the points can't be indexed (mixed or too many
+     * dimensions, or coordinates too far apart for the cell size) in which case the caller should
+     * scan all the points.
+     */
+    @Nullable
+    static GridIndex create(@NotNull double[][] input, float eps) {
+      if (eps <= 0 || input.length == 0) {
+        return null;
+      }
+      double cellSize = eps * CELL_MARGIN;
+      int dimension = input[0].length;
+      if (dimension == 0 || dimension > MAX_DIMENSION) {
+        return null;
+      }
+      long[] keys = new long[input.length];
+      HashMap<Long, Integer> counts = new HashMap<>();
+      for (int i = 0; i < input.length; i++) {
+        if (input[i].length != dimension) {
+          return null;
+        }
+        long key = 0;
+        for (int d = 0; d < dimension; d++) {
+          double cell = Math.floor(input[i][d] / cellSize);
+          // Keep one cell of margin so the neighbor cells can be encoded too
+          if (!(Math.abs(cell) < CELL_OFFSET - 1)) {
+            return null;
+          }
+          key |= encode((int)cell, d);
+        }
+        keys[i] = key;
+        counts.merge(key, 1, Integer::sum);
+      }
+
+      HashMap<Long, int[]> cells = new HashMap<>(counts.size() * 2);
+      HashMap<Long, Integer> sizes = new HashMap<>(counts.size() * 2);
+      for (int i = 0; i < input.length; i++) {
+        Long key = keys[i];
+        int[] cell = cells.get(key);
+        if (cell == null) {
+          cell = new int[counts.get(key)];
+          cells.put(key, cell);
+        }
+        int size = sizes.getOrDefault(key, 0);
+        cell[size] = i;
+        sizes.put(key, size + 1);
+      }
+      return new GridIndex(cellSize, dimension, cells);
+    }
+
+    private static long encode(int cell, int dimension) {
+      return ((cell + CELL_OFFSET) & CELL_MASK) << (BITS_PER_DIMENSION * dimension);
+    }
+
+    /**
+     * Adds to result the indexes of the points at a squared distance less or equal to epsSquare from current
+     */
+    void query(@NotNull double[][] input, @NotNull double[] current, float epsSquare, @NotNull List<Integer> result) {
+      int[] cell = new int[MAX_DIMENSION];
+      for (int d = 0; d < myDimension; d++) {
+        cell[d] = (int)Math.floor(current[d] / myCellSize);
+      }
+      int dx = 1;
+      int dy = myDimension > 1 ? 1 : 0;
+      int dz = myDimension > 2 ? 1 : 0;
+      for (int x = -dx; x <= dx; x++) {
+        for (int y = -dy; y <= dy; y++) {
+          for (int z = -dz; z <= dz; z++) {
+            long key = encode(cell[0] + x, 0);
+            if (myDimension > 1) {
+              key |= encode(cell[1] + y, 1);
+            }
+            if (myDimension > 2) {
+              key |= encode(cell[2] + z, 2);
+            }
+            int[] points = myCells.get(key);
+            if (points == null) {
+              continue;
+            }
+            for (int i = 0; i < points.length; i++) {
+              double[] neighbor = input[points[i]];
+              if (neighbor != current && distance(neighbor, current) <= epsSquare) {
+                result.add(points[i]);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
 }
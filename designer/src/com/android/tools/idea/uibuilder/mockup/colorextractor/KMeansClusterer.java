@@ -15,115 +15,205 @@
  */
 package com.android.tools.idea.uibuilder.mockup.colorextractor;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
 
 /**
  * Use tge KMeans to clusterize a set of points into k clusters
+ *
+ * The initial centers are chosen with the k-means++ seeding and the points are kept in a flat
+ * array of coordinates. Each pass assigns the points to their closest center in parallel chunks
+ * and the algorithm stops as soon as a pass doesn't move any point to another cluster.
  */
 @SuppressWarnings("ForLoopReplaceableByForEach")
 public final class KMeansClusterer implements Clusterer {
 
   public static final int PASS_NUMBER = 100;
+  private static final int DIMENSION = 3;
+  private static final int CHUNK_SIZE = 4096;
+  // Fixed seed so that extracting the colors of an image always gives the same result
+  private static final long SEED = 42;
+
   private final int myK;
+  @Nullable private final ProgressListener myListener;
   private int myInputDataSize;
-  private double[][] myData;
-  private double[][] myOutputColors;
+  private double[] myData;
+  private int[] myAssignments;
+  private double[] myCenters;
+  private int myCenterCount;
 
   public KMeansClusterer(int k) {
+    this(k, null);
+  }
+
+  /**
+   * @param k        number of clusters
+   * @param listener listener to publish the progress of the algorithm
+   */
+  public KMeansClusterer(int k, @Nullable ProgressListener listener) {
     myK = k;
-    myOutputColors = new double[myK][3];
+    myListener = listener;
   }
 
   @Override
   public List<List<double[]>> cluster(double[][] points) {
-    myData = points;
     myInputDataSize = points.length;
+    myData = new double[myInputDataSize * DIMENSION];
+    for (int i = 0; i < myInputDataSize; i++) {
+      System.arraycopy(points[i], 0, myData, i * DIMENSION, DIMENSION);
+    }
+    myAssignments = new int[myInputDataSize];
+    // No point belongs to a cluster yet, so that the first pass counts every point as moved
+    Arrays.fill(myAssignments, -1);
     getInitialColors();
     for (int i = 0; i < PASS_NUMBER; i++) {
-      int dist = pass();
-      if (dist == 0) break;
+      int moved = pass();
+      notifyProgress((i + 1) / (float)PASS_NUMBER);
+      if (moved == 0) break;
     }
-    List<List<double[]>> clusters = new ArrayList<>(myOutputColors.length);
-    for (int i = 0; i < myOutputColors.length; i++) {
+    notifyProgress(1);
+
+    List<List<double[]>> clusters = new ArrayList<>(myCenterCount);
+    for (int i = 0; i < myCenterCount; i++) {
       ArrayList<double[]> cluster = new ArrayList<>(1);
-      cluster.add(myOutputColors[i]);
+      double[] center = new double[DIMENSION];
+      System.arraycopy(myCenters, i * DIMENSION, center, 0, DIMENSION);
+      cluster.add(center);
       clusters.add(cluster);
     }
+    myData = null;
+    myAssignments = null;
     return clusters;
   }
 
+  /**
+   * Assigns every point to its closest center and moves the centers to the mean of their points.
+   *
+   * @return the number of points that changed cluster
+   */
   int pass() {
-    // Reset center and count
-    double[][] centers = new double[myK][3];
-    int[] count = new int[myK];
-
-    for (int pointIndex = 0; pointIndex < myInputDataSize; pointIndex++) {
-      double minDist = Double.MAX_VALUE;
-      int closestColor = 0;
-
-      // Foreach point in the input data, find the output color which is the closest
-      for (int outputIndex = 0; outputIndex < myOutputColors.length; outputIndex++) {
-        double distance = distance(myOutputColors[outputIndex], myData[pointIndex]);
-        if (distance < minDist) {
-          minDist = distance;
-          closestColor = outputIndex;
+    int chunkCount = (myInputDataSize + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    // Each chunk accumulates its own sums: [sum of coordinates..., count] per center
+    double[][] partialSums = new double[chunkCount][];
+    int[] moved = new int[chunkCount];
+    IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+      double[] sums = new double[myCenterCount * (DIMENSION + 1)];
+      int end = Math.min(myInputDataSize, (chunk + 1) * CHUNK_SIZE);
+      for (int pointIndex = chunk * CHUNK_SIZE; pointIndex < end; pointIndex++) {
+        int closestColor = closestCenter(pointIndex);
+        if (myAssignments[pointIndex] != closestColor) {
+          myAssignments[pointIndex] = closestColor;
+          moved[chunk]++;
         }
+        int offset = closestColor * (DIMENSION + 1);
+        for (int d = 0; d < DIMENSION; d++) {
+          sums[offset + d] += myData[pointIndex * DIMENSION + d];
+        }
+        sums[offset + DIMENSION]++;
       }
+      partialSums[chunk] = sums;
+    });
 
-      // Add the value to compute the new center (find the average)
-      centers[closestColor][0] += myData[pointIndex][0];
-      centers[closestColor][1] += myData[pointIndex][1];
-      centers[closestColor][2] += myData[pointIndex][2];
-      count[closestColor]++;
+    double[] sums = new double[myCenterCount * (DIMENSION + 1)];
+    int totalMoved = 0;
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      for (int i = 0; i < sums.length; i++) {
+        sums[i] += partialSums[chunk][i];
+      }
+      totalMoved += moved[chunk];
     }
 
-    int dist = 0;
-
     // Update each output color to the new center
-    for (int j = 0; j < myOutputColors.length; j++) {
-      if (count[j] == 0) continue;
-      int l = (int)centers[j][0] / count[j];
-      int a = (int)centers[j][1] / count[j];
-      int b = (int)centers[j][2] / count[j];
-      double[] oldColor = new double[3];
-      System.arraycopy(myOutputColors[j], 0, oldColor, 0, 3);
-
-      myOutputColors[j][0] = l;
-      myOutputColors[j][1] = a;
-      myOutputColors[j][2] = b;
-      dist += distance(oldColor, myOutputColors[j]);
+    for (int j = 0; j < myCenterCount; j++) {
+      double count = sums[j * (DIMENSION + 1) + DIMENSION];
+      if (count == 0) continue;
+      for (int d = 0; d < DIMENSION; d++) {
+        myCenters[j * DIMENSION + d] = sums[j * (DIMENSION + 1) + d] / count;
+      }
     }
-    return dist;
+    return totalMoved;
   }
 
-  private static double distance(double[] neighbor, double[] point) {
+  private int closestCenter(int pointIndex) {
+    double minDist = Double.MAX_VALUE;
+    int closestColor = 0;
+    for (int outputIndex = 0; outputIndex < myCenterCount; outputIndex++) {
+      double distance = distance(myCenters, outputIndex, myData, pointIndex);
+      if (distance < minDist) {
+        minDist = distance;
+        closestColor = outputIndex;
+      }
+    }
+    return closestColor;
+  }
+
+  /**
+   * Squared euclidean distance between the point at index a of as and the point at index b of bs
+   */
+  private static double distance(@NotNull double[] as, int a, @NotNull double[] bs, int b) {
     double squares = 0;
-    for (int i = 0; i < Math.min(neighbor.length, point.length); i++) {
-      squares += Math.pow(neighbor[i] - point[i], 2);
+    for (int d = 0; d < DIMENSION; d++) {
+      double delta = as[a * DIMENSION + d] - bs[b * DIMENSION + d];
+      squares += delta * delta;
     }
     return squares;
   }
 
+  /**
+   * Choose the initial centers using the k-means++ seeding: each new center is picked randomly
+   * with a probability proportional to its squared distance to the closest center already chosen.
+   */
   void getInitialColors() {
-    HashSet<double[]> set = new HashSet<>();
-    for (int step = 256; step > 0; step /= 2) {
-      for (int i = 0; i < myInputDataSize; i += step) {
-        double[] v = myData[i];
-        set.add(v);
-        if (set.size() == myK) {
+    myCenters = new double[Math.max(myK, 0) * DIMENSION];
+    myCenterCount = 0;
+    if (myInputDataSize == 0 || myK <= 0) {
+      return;
+    }
+    Random random = new Random(SEED);
+    double[] closestDistances = new double[myInputDataSize];
+    addCenter(random.nextInt(myInputDataSize), closestDistances);
+    while (myCenterCount < myK) {
+      double total = 0;
+      for (int i = 0; i < myInputDataSize; i++) {
+        total += closestDistances[i];
+      }
+      if (total == 0) {
+        // All the points are already centers
+        break;
+      }
+      double target = random.nextDouble() * total;
+      int next = myInputDataSize - 1;
+      for (int i = 0; i < myInputDataSize; i++) {
+        target -= closestDistances[i];
+        if (target < 0) {
+          next = i;
           break;
         }
       }
-      if (set.size() == myK) {
-        break;
+      addCenter(next, closestDistances);
+    }
+  }
+
+  private void addCenter(int pointIndex, @NotNull double[] closestDistances) {
+    int center = myCenterCount++;
+    System.arraycopy(myData, pointIndex * DIMENSION, myCenters, center * DIMENSION, DIMENSION);
+    for (int i = 0; i < myInputDataSize; i++) {
+      double distance = distance(myCenters, center, myData, i);
+      if (center == 0 || distance < closestDistances[i]) {
+        closestDistances[i] = distance;
       }
     }
-    double[][] c = set.toArray(new double[set.size()][3]);
-    if (myOutputColors.length < set.size()) {
-      myOutputColors = new double[set.size()][3];
+  }
+
+  private void notifyProgress(float progress) {
+    if (myListener != null) {
+      myListener.progress(progress);
     }
-    System.arraycopy(c, 0, myOutputColors, 0, c.length);
   }
 }
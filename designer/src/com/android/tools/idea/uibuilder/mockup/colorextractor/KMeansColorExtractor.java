@@ -53,7 +53,7 @@ public class KMeansColorExtractor extends DoublesColorExtractor {
                                      List<double[]> clusterInput,
                                      Clusterer.ProgressListener listener) {
     List<ExtractedColor> extractedColors;
-    List<List<double[]>> clusters = new KMeansClusterer(myK).cluster(clusterInput.toArray(new double[clusterInput.size()][POINT_DIMENSION]));
+    List<List<double[]>> clusters = new KMeansClusterer(myK, listener).cluster(clusterInput.toArray(new double[clusterInput.size()][POINT_DIMENSION]));
     extractedColors = new ArrayList<>(clusters.size());
 
     ColorSpace labColorSpace = Colors.getLabColorSpace();
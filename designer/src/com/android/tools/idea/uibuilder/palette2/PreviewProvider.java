@@ -56,6 +56,7 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.RasterFormatException;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -214,7 +215,7 @@ public class PreviewProvider implements Disposable {
     try {
       return renderTask.render().get(renderTimeoutSeconds, TimeUnit.SECONDS);
     }
-    catch (InterruptedException | ExecutionException | TimeoutException e) {
+    catch (InterruptedException | ExecutionException | TimeoutException | CancellationException e) {
       Logger.getInstance(PreviewProvider.class).debug(e);
     }
 
@@ -249,6 +250,9 @@ public class PreviewProvider implements Disposable {
       RenderService renderService = RenderService.getInstance(facet);
       RenderLogger logger = renderService.createLogger();
       myRenderTask = renderService.createTask(null, configuration, logger, null);
+      if (myRenderTask != null) {
+        myRenderTask.setPriority(RenderService.RenderingPriority.LOW);
+      }
     }
 
     return myRenderTask;
@@ -66,10 +66,13 @@ import javax.swing.Timer;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -101,6 +104,18 @@ public class LayoutlibSceneManager extends SceneManager {
   @GuardedBy("myRenderingQueueLock")
   private MergingUpdateQueue myRenderingQueue;
   private static final int RENDER_DELAY_MS = 10;
+  // Set when an inflate has been queued and not started yet. That inflate is followed by a render, so renders completing in the
+  // meantime are stale and their results are dropped.
+  private final AtomicBoolean myIsInflatePending = new AtomicBoolean();
+  // Scene renders go ahead of the LOW priority palette previews and thumbnails. Renders the user is waiting for while interacting
+  // with the surface are raised to HIGH through myNextRenderPriority.
+  private static final RenderService.RenderingPriority RENDER_TASK_PRIORITY = RenderService.RenderingPriority.NORMAL;
+  // Priority requested for the next render. Interaction driven requests raise it; it's reset once the render has been submitted.
+  private final AtomicReference<RenderService.RenderingPriority> myNextRenderPriority =
+    new AtomicReference<>(RenderService.RenderingPriority.NORMAL);
+  // The animate flag of the queued layout passes, or null if there is none. A layout pass merged into a render or an inflate
+  // still owes its listeners the layout complete notification, which is sent once that render or inflate is done.
+  private final AtomicReference<Boolean> myPendingLayoutAnimate = new AtomicReference<>();
   private RenderTask myRenderTask;
   // Protects all accesses to the myRenderTask reference. RenderTask calls to render and layout do not need to be protected
   // since RenderTask is able to handle those safely.
@@ -386,6 +401,7 @@ public class LayoutlibSceneManager extends SceneManager {
         if (myRenderingQueue != null) {
           myRenderingQueue.cancelAllUpdates();
         }
+        myIsInflatePending.set(false);
       }
     }
 
@@ -401,7 +417,7 @@ public class LayoutlibSceneManager extends SceneManager {
         requestLayoutAndRender(animate);
       }
       else {
-        layout(animate);
+        requestLayout(animate);
       }
     }
   }
@@ -439,24 +455,48 @@ public class LayoutlibSceneManager extends SceneManager {
     }
   }
 
-  private void requestRender(@Nullable Runnable callback, @Nullable LayoutEditorRenderResult.Trigger trigger) {
+  private void requestRender(@Nullable Runnable callback,
+                             @Nullable LayoutEditorRenderResult.Trigger trigger,
+                             @NotNull RenderService.RenderingPriority priority) {
     if (callback != null) {
       synchronized (myRenderCallbacks) {
         myRenderCallbacks.add(callback);
       }
     }
-    // This update is low priority so the model updates take precedence
-    getRenderingQueue().queue(new Update("model.render", LOW_PRIORITY) {
-      @Override
-      public void run() {
-        render(trigger);
-      }
+    myNextRenderPriority.accumulateAndGet(priority, LayoutlibSceneManager::getHigherPriority);
+    getRenderingQueue().queue(new RenderUpdate(trigger));
+  }
 
-      @Override
-      public boolean canEat(Update update) {
-        return this.equals(update);
-      }
-    });
+  /**
+   * Returns the more urgent of the two priorities.
+   */
+  @VisibleForTesting
+  @NotNull
+  static RenderService.RenderingPriority getHigherPriority(@NotNull RenderService.RenderingPriority a,
+                                                          @NotNull RenderService.RenderingPriority b) {
+    return a.compareTo(b) <= 0 ? a : b;
+  }
+
+  /**
+   * Returns the priority the next render is submitted with, the priority of the render task or a higher one if a queued request
+   * asked for it, and resets the requested priority for the renders that follow.
+   */
+  @VisibleForTesting
+  @NotNull
+  RenderService.RenderingPriority takeNextRenderPriority() {
+    return getHigherPriority(RENDER_TASK_PRIORITY, myNextRenderPriority.getAndSet(RenderService.RenderingPriority.NORMAL));
+  }
+
+  /**
+   * Sends the layout complete notification of the layout passes that were merged into a render or an inflate. The passes are
+   * taken before that render or inflate starts, so that a layout requested while it runs still gets its own pass.
+   *
+   * @param animate the animate flag of the merged layout passes, or null if there was none
+   */
+  private void notifyMergedLayoutComplete(@Nullable Boolean animate) {
+    if (animate != null) {
+      getModel().notifyListenersModelLayoutComplete(animate);
+    }
   }
 
   private class ConfigurationChangeListener implements ConfigurationListener {
@@ -475,7 +515,7 @@ public class LayoutlibSceneManager extends SceneManager {
 
   @Override
   public void requestRender() {
-    requestRender(null, getTriggerFromChangeType(getModel().getLastChangeType()));
+    requestRender(null, getTriggerFromChangeType(getModel().getLastChangeType()), RenderService.RenderingPriority.NORMAL);
   }
 
   /**
@@ -483,14 +523,27 @@ public class LayoutlibSceneManager extends SceneManager {
    * not exposed at SceneManager level since it only makes sense for the Layout editor.
    */
   public void requestUserInitatedRender() {
-    requestRender(null, LayoutEditorRenderResult.Trigger.USER);
+    requestRender(null, LayoutEditorRenderResult.Trigger.USER, RenderService.RenderingPriority.NORMAL);
   }
 
+  /**
+   * Requests a layout and render pass. These are issued while the user interacts with the surface (drag, resize, scroll) so they
+   * go ahead of other render actions.
+   */
   @Override
   public void requestLayoutAndRender(boolean animate) {
     requestRender(() -> {
       getModel().notifyListenersModelLayoutComplete(animate);
-    }, getTriggerFromChangeType(getModel().getLastChangeType()));
+    }, getTriggerFromChangeType(getModel().getLastChangeType()), RenderService.RenderingPriority.HIGH);
+  }
+
+  /**
+   * Asynchronously runs a layout pass, without rendering. The pass is skipped if a render or an inflate is already queued since
+   * they update the layout too.
+   */
+  public void requestLayout(boolean animate) {
+    myPendingLayoutAnimate.accumulateAndGet(animate, (current, requested) -> current != null && current || requested);
+    getRenderingQueue().queue(new LayoutUpdate());
   }
 
   /**
@@ -506,42 +559,109 @@ public class LayoutlibSceneManager extends SceneManager {
       }
     }
 
-    getRenderingQueue().queue(new Update("model.update", HIGH_PRIORITY) {
-      @Override
-      public void run() {
-        NlModel model = getModel();
-        Project project = model.getModule().getProject();
-        if (project.isOpen()) {
-          DumbService dumbService = DumbService.getInstance(project);
-          if (dumbService.isDumb()) {
-            // During unit testing, the rendering queue runs on the Event Thread. Calling waitForSmartMode will throw an exception
-            // when called on the Event Thread.
-            // For now, we just check if we are in dumb mode (for testing we won't be) and when call waitForSmartMode.
-            dumbService.waitForSmartMode();
+    myIsInflatePending.set(true);
+    getRenderingQueue().queue(new ModelUpdate());
+  }
+
+  /**
+   * Inflates the model and updates the view hierarchy. Since the inflate is followed by a render, it replaces any queued render
+   * or layout pass; the callbacks of replaced renders run after that render, and the listeners of replaced layout passes are
+   * notified once the hierarchy has been updated.
+   */
+  private class ModelUpdate extends Update {
+    ModelUpdate() {
+      super("model.update", HIGH_PRIORITY);
+    }
+
+    @Override
+    public void run() {
+      myIsInflatePending.set(false);
+      Boolean mergedLayoutAnimate = myPendingLayoutAnimate.getAndSet(null);
+      NlModel model = getModel();
+      Project project = model.getModule().getProject();
+      if (project.isOpen()) {
+        DumbService dumbService = DumbService.getInstance(project);
+        if (dumbService.isDumb()) {
+          // During unit testing, the rendering queue runs on the Event Thread. Calling waitForSmartMode will throw an exception
+          // when called on the Event Thread.
+          // For now, we just check if we are in dumb mode (for testing we won't be) and when call waitForSmartMode.
+          dumbService.waitForSmartMode();
+        }
+        if (model.getVirtualFile().isValid() && !model.getFacet().isDisposed()) {
+          try {
+            updateModel();
           }
-          if (model.getVirtualFile().isValid() && !model.getFacet().isDisposed()) {
-            try {
-              updateModel();
-            }
-            catch (Throwable e) {
-              Logger.getInstance(NlModel.class).error(e);
-            }
+          catch (Throwable e) {
+            Logger.getInstance(NlModel.class).error(e);
           }
         }
+      }
+      notifyMergedLayoutComplete(mergedLayoutAnimate);
 
-        synchronized (myProgressLock) {
-          if (myCurrentIndicator != null) {
-            myCurrentIndicator.stop();
-            myCurrentIndicator = null;
-          }
+      synchronized (myProgressLock) {
+        if (myCurrentIndicator != null) {
+          myCurrentIndicator.stop();
+          myCurrentIndicator = null;
         }
       }
+    }
+
+    @Override
+    public boolean canEat(Update update) {
+      return equals(update) || update instanceof RenderUpdate || update instanceof LayoutUpdate;
+    }
+  }
+
+  /**
+   * Renders the model. Pending renders are merged into one; the merged render uses the highest priority that was requested.
+   * A render also replaces the queued layout passes, and notifies their listeners once it's done.
+   */
+  private class RenderUpdate extends Update {
+    @Nullable private final LayoutEditorRenderResult.Trigger myTrigger;
+
+    RenderUpdate(@Nullable LayoutEditorRenderResult.Trigger trigger) {
+      // This update is low priority so the model updates take precedence
+      super("model.render", LOW_PRIORITY);
+      myTrigger = trigger;
+    }
 
-      @Override
-      public boolean canEat(Update update) {
-        return equals(update);
+    @Override
+    public void run() {
+      Boolean mergedLayoutAnimate = myPendingLayoutAnimate.getAndSet(null);
+      try {
+        render(myTrigger);
       }
-    });
+      finally {
+        notifyMergedLayoutComplete(mergedLayoutAnimate);
+      }
+    }
+
+    @Override
+    public boolean canEat(Update update) {
+      return equals(update) || update instanceof LayoutUpdate;
+    }
+  }
+
+  /**
+   * Layout only pass, used when the surface does not display the rendered image.
+   */
+  private class LayoutUpdate extends Update {
+    LayoutUpdate() {
+      super("model.layout", LOW_PRIORITY);
+    }
+
+    @Override
+    public void run() {
+      Boolean animate = myPendingLayoutAnimate.getAndSet(null);
+      if (animate != null) {
+        layout(animate);
+      }
+    }
+
+    @Override
+    public boolean canEat(Update update) {
+      return equals(update);
+    }
   }
 
   @NotNull
@@ -592,6 +712,9 @@ public class LayoutlibSceneManager extends SceneManager {
         getModel().notifyListenersModelLayoutComplete(animate);
       }
     }
+    catch (CancellationException ignored) {
+      // A newer layout pass superseded this one before it started; it will update the hierarchy instead.
+    }
     catch (InterruptedException | ExecutionException e) {
       Logger.getInstance(NlModel.class).warn("Unable to run layout()", e);
     }
@@ -716,6 +839,7 @@ public class LayoutlibSceneManager extends SceneManager {
       myRenderTask = renderService.createTask(getModel().getFile(), configuration, logger, getDesignSurface());
       setupRenderTask(myRenderTask);
       if (myRenderTask != null) {
+        myRenderTask.setPriority(RENDER_TASK_PRIORITY);
         myRenderTask.getLayoutlibCallback()
           .setAdaptiveIconMaskPath(getDesignSurface().getAdaptiveIconShape().getPathDescription());
         result = myRenderTask.inflate();
@@ -821,10 +945,22 @@ public class LayoutlibSceneManager extends SceneManager {
       if (elapsedFrameTimeMs != -1) {
         myRenderTask.setElapsedFrameTimeNanos(TimeUnit.MILLISECONDS.toNanos(elapsedFrameTimeMs));
       }
+      myRenderTask.setPriority(takeNextRenderPriority());
       futureResult = myRenderTask.render();
     }
 
-    RenderResult result = Futures.getUnchecked(futureResult);
+    RenderResult result;
+    try {
+      result = Futures.getUnchecked(futureResult);
+    }
+    catch (CancellationException ignored) {
+      // A newer render superseded this one before it started; it will update the render result instead.
+      return;
+    }
+    if (myIsInflatePending.get()) {
+      // The model changed while rendering and the queued inflate will render it again, this result is already stale.
+      return;
+    }
     // When the layout was inflated in this same call, we do not have to update the hierarchy again
     if (result != null && !inflated) {
       updateHierarchy(result);
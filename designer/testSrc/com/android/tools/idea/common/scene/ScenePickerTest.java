@@ -342,4 +342,44 @@ public class ScenePickerTest extends TestCase {
       scenePicker.find((int)x, (int)y);
     }
   }
+
+  public void testGridMatchesLinearScan() {
+    ScenePicker scenePicker = new ScenePicker();
+    java.util.List<Object> hits = new java.util.ArrayList<>();
+    scenePicker.setSelectListener((obj, dist) -> hits.add(obj));
+
+    for (int frame = 0; frame < 2; frame++) {
+      scenePicker.reset();
+      // a large background rectangle, overlapping widgets and anchors spread over many cells
+      scenePicker.addRect(0, 0, -10, -10, 2000, 2000);
+      for (int i = 1; i <= 200; i++) {
+        int x = (i * 37 + frame * 5) % 1000;
+        int y = (i * 53) % 1000;
+        scenePicker.addRect(i, 2, x, y, x + 40, y + 30);
+        scenePicker.addCircle(1000 + i, 4, x, y + 15, 3);
+      }
+
+      for (int y = -20; y < 1100; y += 13) {
+        for (int x = -20; x < 1100; x += 17) {
+          hits.clear();
+          scenePicker.find(x, y);
+          java.util.List<Object> expected = new java.util.ArrayList<>();
+          if (x >= -10 && y >= -10 && x <= 2000 && y <= 2000) {
+            expected.add(0);
+          }
+          for (int i = 1; i <= 200; i++) {
+            int rx = (i * 37 + frame * 5) % 1000;
+            int ry = (i * 53) % 1000;
+            if (x >= rx - 1 && y >= ry - 1 && x <= rx + 41 && y <= ry + 31) {
+              expected.add(i);
+            }
+            if (Math.hypot(rx - x, ry + 15 - y) - 3 <= 4) {
+              expected.add(1000 + i);
+            }
+          }
+          assertEquals("(" + x + ", " + y + ")", expected, hits);
+        }
+      }
+    }
+  }
 }
@@ -43,6 +43,11 @@ public class SyncLayoutlibSceneManager extends LayoutlibSceneManager {
     runAfterCommandIfNecessary(() -> render(getTriggerFromChangeType(getModel().getLastChangeType())));
   }
 
+  @Override
+  public void requestLayout(boolean animate) {
+    runAfterCommandIfNecessary(() -> layout(animate));
+  }
+
   @Override
   protected void requestModelUpdate() {
     runAfterCommandIfNecessary(this::updateModel);
@@ -18,6 +18,7 @@ package com.android.tools.idea.uibuilder.mockup.colorextractor;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -65,4 +66,28 @@ public class DBSCANClustererTest {
     assertNotNull(cluster3);
     assertEquals(4, cluster3.size());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testClusterManyPoints() throws Exception {
+    // Three dense blobs of 1000 points plus far away noise
+    Random random = new Random(1);
+    double[][] centers = new double[][]{{0, 0, 0}, {50, -50, 20}, {-40, 60, -60}};
+    double[][] data = new double[3003][];
+    for (int i = 0; i < 3000; i++) {
+      double[] center = centers[i % 3];
+      data[i] = new double[]{center[0] + random.nextDouble() * 5, center[1] + random.nextDouble() * 5, center[2] + random.nextDouble() * 5};
+    }
+    data[3000] = new double[]{100, 100, 100};
+    data[3001] = new double[]{-100, 100, 100};
+    data[3002] = new double[]{100, -100, -100};
+
+    float[] lastProgress = new float[1];
+    DBSCANClusterer clusterer = new DBSCANClusterer(2, 5, progress -> lastProgress[0] = progress);
+    List<List<double[]>> clusters = clusterer.cluster(data);
+    assertEquals(3, clusters.size());
+    for (List<double[]> cluster : clusters) {
+      assertEquals(1000, cluster.size());
+    }
+    assertEquals(3000 / 3003f, lastProgress[0], 0.0001);
+  }
+}
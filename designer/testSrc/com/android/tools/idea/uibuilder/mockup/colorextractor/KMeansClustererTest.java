@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.mockup.colorextractor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KMeansClustererTest {
+
+  private static final double[][] CENTERS = new double[][]{{20, 0, 0}, {50, -50, 20}, {80, 60, -60}};
+
+  @Test
+  public void testFindsCenters() throws Exception {
+    Random random = new Random(1);
+    double[][] data = new double[30000][];
+    for (int i = 0; i < data.length; i++) {
+      double[] center = CENTERS[i % CENTERS.length];
+      data[i] = new double[]{center[0] + random.nextGaussian(), center[1] + random.nextGaussian(), center[2] + random.nextGaussian()};
+    }
+
+    List<Float> progress = new ArrayList<>();
+    List<List<double[]>> clusters = new KMeansClusterer(3, progress::add).cluster(data);
+    assertEquals(3, clusters.size());
+    for (double[] expected : CENTERS) {
+      boolean found = false;
+      for (List<double[]> cluster : clusters) {
+        double[] center = cluster.get(0);
+        found |= Math.abs(center[0] - expected[0]) < 0.5 && Math.abs(center[1] - expected[1]) < 0.5 && Math.abs(center[2] - expected[2]) < 0.5;
+      }
+      assertTrue(found);
+    }
+    assertEquals(1f, progress.get(progress.size() - 1), 0);
+  }
+
+  @Test
+  public void testConverges() throws Exception {
+    Random random = new Random(1);
+    double[][] data = new double[20000][];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = new double[]{random.nextDouble() * 100, random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100};
+    }
+
+    List<Float> progress = new ArrayList<>();
+    List<List<double[]>> clusters = new KMeansClusterer(8, progress::add).cluster(data);
+    assertEquals(8, clusters.size());
+
+    // One progress update per pass, plus the final one. Uniform points need several passes to settle,
+    // and the passes stop before the maximum once no point changes cluster.
+    int passes = progress.size() - 1;
+    assertTrue(passes > 1);
+    assertTrue(passes < KMeansClusterer.PASS_NUMBER);
+
+    // Converged: every center is the mean of the points closest to it
+    double[][] sums = new double[clusters.size()][4];
+    for (double[] point : data) {
+      int closest = 0;
+      double minDistance = Double.MAX_VALUE;
+      for (int j = 0; j < clusters.size(); j++) {
+        double[] center = clusters.get(j).get(0);
+        double distance = 0;
+        for (int d = 0; d < 3; d++) {
+          distance += (point[d] - center[d]) * (point[d] - center[d]);
+        }
+        if (distance < minDistance) {
+          minDistance = distance;
+          closest = j;
+        }
+      }
+      for (int d = 0; d < 3; d++) {
+        sums[closest][d] += point[d];
+      }
+      sums[closest][3]++;
+    }
+    for (int j = 0; j < clusters.size(); j++) {
+      double[] center = clusters.get(j).get(0);
+      assertTrue(sums[j][3] > 0);
+      for (int d = 0; d < 3; d++) {
+        assertEquals(sums[j][d] / sums[j][3], center[d], 1e-6);
+      }
+    }
+  }
+
+  @Test
+  public void testFewerPointsThanClusters() throws Exception {
+    double[][] data = new double[][]{{1, 1, 1}, {1, 1, 1}, {5, 5, 5}};
+    List<List<double[]>> clusters = new KMeansClusterer(10).cluster(data);
+    assertEquals(2, clusters.size());
+  }
+}
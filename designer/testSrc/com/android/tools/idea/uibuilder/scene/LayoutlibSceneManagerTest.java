@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.uibuilder.scene;
+
+import com.android.tools.idea.common.fixtures.ModelBuilder;
+import com.android.tools.idea.common.model.ModelListener;
+import com.android.tools.idea.common.model.NlModel;
+import com.android.tools.idea.rendering.RenderService;
+import com.google.common.collect.ImmutableList;
+import com.google.wireless.android.sdk.stats.LayoutEditorRenderResult;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.util.ui.update.MergingUpdateQueue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.android.SdkConstants.LINEAR_LAYOUT;
+import static com.android.SdkConstants.TEXT_VIEW;
+import static com.android.tools.idea.rendering.RenderService.RenderingPriority.*;
+
+public class LayoutlibSceneManagerTest extends SceneTest {
+  private final List<String> myEvents = new ArrayList<>();
+  private RecordingSceneManager myManager;
+  private ModelListener myListener;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myManager = new RecordingSceneManager(myModel);
+    myListener = (model, animate) -> myEvents.add("layout complete " + animate);
+    myModel.addListener(myListener);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      myModel.removeListener(myListener);
+      Disposer.dispose(myManager);
+      myManager = null;
+      myListener = null;
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testHigherPriority() {
+    assertEquals(HIGH, LayoutlibSceneManager.getHigherPriority(HIGH, LOW));
+    assertEquals(HIGH, LayoutlibSceneManager.getHigherPriority(NORMAL, HIGH));
+    assertEquals(NORMAL, LayoutlibSceneManager.getHigherPriority(NORMAL, LOW));
+    assertEquals(LOW, LayoutlibSceneManager.getHigherPriority(LOW, LOW));
+  }
+
+  public void testBackgroundRenderStaysNormal() {
+    runQueued(() -> myManager.requestRender());
+    runQueued(() -> myManager.requestUserInitatedRender());
+    assertEquals(ImmutableList.of("render NORMAL", "render NORMAL"), myEvents);
+  }
+
+  public void testInteractiveRenderIsHigh() {
+    runQueued(() -> myManager.requestLayoutAndRender(false));
+    assertEquals(ImmutableList.of("render HIGH"), myEvents);
+  }
+
+  public void testPriorityIsResetAfterRender() {
+    runQueued(() -> myManager.requestLayoutAndRender(false));
+    runQueued(() -> myManager.requestRender());
+    assertEquals(ImmutableList.of("render HIGH", "render NORMAL"), myEvents);
+  }
+
+  public void testLayoutOnly() {
+    runQueued(() -> myManager.requestLayout(true));
+    assertEquals(ImmutableList.of("layout true"), myEvents);
+  }
+
+  public void testLayoutPassesAreMerged() {
+    runQueued(() -> {
+      myManager.requestLayout(false);
+      myManager.requestLayout(true);
+      myManager.requestLayout(false);
+    });
+    assertEquals(ImmutableList.of("layout true"), myEvents);
+  }
+
+  public void testRenderNotifiesMergedLayout() {
+    runQueued(() -> {
+      myManager.requestLayout(true);
+      myManager.requestRender();
+    });
+    assertEquals(ImmutableList.of("render NORMAL", "layout complete true"), myEvents);
+  }
+
+  public void testRenderNotifiesLayoutQueuedBeforeIt() {
+    runQueued(() -> {
+      myManager.requestRender();
+      myManager.requestLayout(false);
+    });
+    assertEquals(ImmutableList.of("render NORMAL", "layout complete false"), myEvents);
+  }
+
+  public void testRendersAreMerged() {
+    runQueued(() -> {
+      myManager.requestRender();
+      myManager.requestLayoutAndRender(false);
+      myManager.requestUserInitatedRender();
+    });
+    // The merged render keeps the highest priority that was requested
+    assertEquals(ImmutableList.of("render HIGH"), myEvents);
+  }
+
+  public void testInflateNotifiesMergedLayout() {
+    runQueued(() -> {
+      myManager.requestLayout(true);
+      myManager.requestRender();
+      myManager.requestModelUpdate();
+    });
+    assertEquals(ImmutableList.of("inflate", "layout complete true"), myEvents);
+  }
+
+  /**
+   * Queues the requests made by the given runnable while the queue is suspended, and then runs the merged updates.
+   */
+  private void runQueued(@NotNull Runnable requests) {
+    MergingUpdateQueue queue = myManager.getRenderingQueue();
+    queue.setPassThrough(false);
+    queue.suspend();
+    requests.run();
+    queue.resume();
+    queue.flush();
+  }
+
+  @Override
+  @NotNull
+  public ModelBuilder createModel() {
+    return model("linear.xml",
+                 component(LINEAR_LAYOUT)
+                   .withBounds(0, 0, 1000, 1000)
+                   .matchParentWidth()
+                   .matchParentHeight()
+                   .children(
+                     component(TEXT_VIEW)
+                       .withBounds(100, 100, 100, 100)
+                       .width("100dp")
+                       .height("100dp")
+                   ));
+  }
+
+  /**
+   * {@link LayoutlibSceneManager} that records the passes run by the rendering queue instead of running them.
+   */
+  private class RecordingSceneManager extends LayoutlibSceneManager {
+    RecordingSceneManager(@NotNull NlModel model) {
+      super(model, model.getSurface());
+    }
+
+    @Override
+    protected void render(@Nullable LayoutEditorRenderResult.Trigger trigger) {
+      RenderService.RenderingPriority priority = takeNextRenderPriority();
+      myEvents.add("render " + priority);
+    }
+
+    @Override
+    public void layout(boolean animate) {
+      myEvents.add("layout " + animate);
+    }
+
+    @Override
+    protected void updateModel() {
+      myEvents.add("inflate");
+    }
+  }
+}
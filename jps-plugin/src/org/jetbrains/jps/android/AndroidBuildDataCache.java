@@ -1,6 +1,7 @@
 package org.jetbrains.jps.android;
 
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.containers.HashMap;
 import com.intellij.util.containers.HashSet;
 import org.jetbrains.android.util.ResourceEntry;
@@ -15,6 +16,8 @@ import org.jetbrains.jps.model.module.JpsModule;
 import org.jetbrains.jps.model.module.JpsModuleDependency;
 
 import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
@@ -25,6 +28,7 @@ public class AndroidBuildDataCache {
 
   private final Map<JpsModule, MyAndroidDeps> myModule2AndroidDeps = new HashMap<JpsModule, MyAndroidDeps>();
   private final Map<String, List<ResourceEntry>> myParsedValueResourceFiles = new HashMap<String, List<ResourceEntry>>();
+  private final Map<String, String> myContentHashes = Collections.synchronizedMap(new HashMap<String, String>());
 
   @NotNull
   public static AndroidBuildDataCache getInstance() {
@@ -50,6 +54,45 @@ public class AndroidBuildDataCache {
     return entries;
   }
 
+  /**
+   * Returns a hash of the contents of {@code file}. Hashes are computed once per build; this method may be called from
+   * several threads.
+   */
+  @NotNull
+  public String getContentHash(@NotNull File file) throws IOException {
+    final String path = FileUtil.toCanonicalPath(file.getPath());
+    String hash = myContentHashes.get(path);
+
+    if (hash == null) {
+      hash = computeContentHash(file);
+      myContentHashes.put(path, hash);
+    }
+    return hash;
+  }
+
+  @NotNull
+  private static String computeContentHash(@NotNull File file) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    final InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+    try {
+      final byte[] buffer = new byte[8192];
+      int read;
+      while ((read = inputStream.read(buffer)) > 0) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    finally {
+      inputStream.close();
+    }
+    return StringUtil.toHexString(digest.digest());
+  }
+
   @NotNull
   private static List<ResourceEntry> parseValueResourceFile(@NotNull File valueResXmlFile)
     throws IOException {
@@ -384,11 +384,39 @@ public class AndroidDexBuilder extends AndroidTargetBuilder<BuildRootDescriptor,
           });
         }
       }
-      outputConsumer.registerOutputFile(outFile, srcFiles);
+      // runDex may be called from several threads by the pre-dex builder
+      synchronized (outputConsumer) {
+        outputConsumer.registerOutputFile(outFile, srcFiles);
+      }
     }
     return success;
   }
 
+  /**
+   * Returns a string identifying the dx tool and the options {@link #runDex} passes to it for a single jar (no multi-dex),
+   * or null if the build tools cannot be found. Two jars with the same content, dexed with the same fingerprint, produce
+   * the same output.
+   */
+  @Nullable
+  static String getDexFingerprint(@NotNull AndroidPlatform platform, @NotNull JpsProject project) {
+    BuildToolInfo buildToolInfo = platform.getTarget().getBuildToolInfo();
+    if (buildToolInfo == null) {
+      return null;
+    }
+    final File dxJar = new File(FileUtil.toSystemDependentName(buildToolInfo.getPath(BuildToolInfo.PathId.DX_JAR)));
+    final StringBuilder builder = new StringBuilder();
+    builder.append(dxJar.getPath()).append(':').append(dxJar.length()).append(':').append(dxJar.lastModified());
+
+    final JpsAndroidDexCompilerConfiguration configuration =
+      JpsAndroidExtensionService.getInstance().getDexCompilerConfiguration(project);
+    if (configuration != null) {
+      builder.append(":optimize=").append(configuration.isOptimize())
+        .append(":forceJumbo=").append(configuration.isForceJumbo())
+        .append(":coreLibrary=").append(configuration.isCoreLibrary());
+    }
+    return builder.toString();
+  }
+
   @Nullable
   private static String getJavaExecutable(@NotNull AndroidPlatform platform, @NotNull CompileContext context, @NotNull String builderName) {
     final JpsSdk<JpsSimpleElement<JpsAndroidSdkProperties>> sdk = platform.getSdk();
@@ -0,0 +1,104 @@
+package org.jetbrains.jps.android;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs independent jobs of a builder, each of which usually starts its own tool process (dx, aidl, llvm-rs-cc), on a small
+ * number of threads.
+ */
+public class AndroidParallelExecutor {
+  /** Upper bound on the number of jobs run at the same time, since each tool process may use a large heap. */
+  static final int MAX_PARALLEL_JOBS = 4;
+
+  private AndroidParallelExecutor() {
+  }
+
+  /**
+   * Runs {@code jobs} on up to {@link #MAX_PARALLEL_JOBS} threads and waits for all of them. A job that fails does not stop
+   * the others; its exception is returned in its result, so that the caller can report every failure.
+   *
+   * @return the results in the order of {@code jobs}, so that outputs and messages can be processed on the calling thread
+   * in a deterministic order
+   */
+  @NotNull
+  public static <T> List<Result<T>> execute(@NotNull List<? extends Callable<T>> jobs) {
+    final List<Result<T>> results = new ArrayList<Result<T>>(jobs.size());
+    final int threadCount = Math.min(jobs.size(), Math.min(MAX_PARALLEL_JOBS, Runtime.getRuntime().availableProcessors()));
+
+    if (threadCount <= 1) {
+      for (Callable<T> job : jobs) {
+        results.add(execute(job));
+      }
+      return results;
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+    try {
+      final List<Future<Result<T>>> futures = new ArrayList<Future<Result<T>>>(jobs.size());
+
+      for (final Callable<T> job : jobs) {
+        futures.add(executor.submit(new Callable<Result<T>>() {
+          @Override
+          public Result<T> call() {
+            return execute(job);
+          }
+        }));
+      }
+      for (Future<Result<T>> future : futures) {
+        try {
+          results.add(future.get());
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          results.add(new Result<T>(null, e));
+        }
+        catch (ExecutionException e) {
+          // execute(Callable) only lets errors through
+          throw (Error)e.getCause();
+        }
+      }
+      return results;
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @NotNull
+  private static <T> Result<T> execute(@NotNull Callable<T> job) {
+    try {
+      return new Result<T>(job.call(), null);
+    }
+    catch (Exception e) {
+      return new Result<T>(null, e);
+    }
+  }
+
+  public static class Result<T> {
+    private final T myValue;
+    private final Exception myError;
+
+    Result(@Nullable T value, @Nullable Exception error) {
+      myValue = value;
+      myError = error;
+    }
+
+    @Nullable
+    public T getValue() {
+      return myValue;
+    }
+
+    /**
+     * Returns the exception the job failed with, or {@code null} if it completed normally.
+     */
+    @Nullable
+    public Exception getError() {
+      return myError;
+    }
+  }
+}
@@ -26,6 +26,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Eugene.Kudelevsky
@@ -33,6 +35,7 @@ import java.util.List;
 public class AndroidPreDexBuilder extends AndroidTargetBuilder<AndroidPreDexBuildTarget.MyRootDescriptor, AndroidPreDexBuildTarget> {
 
   @NonNls private static final String BUILDER_NAME = "Android Pre Dex";
+  @NonNls private static final String PRE_DEX_CACHE_DIRECTORY_NAME = "pre_dexed_libs_cache";
 
   protected AndroidPreDexBuilder() {
     super(Collections.singletonList(AndroidPreDexBuildTarget.MyTargetType.INSTANCE));
@@ -93,21 +96,21 @@ public class AndroidPreDexBuilder extends AndroidTargetBuilder<AndroidPreDexBuil
     }
     if (!filesToPreDex.isEmpty()) {
       final File outputDir = target.getOutputFile(context);
+      final List<PreDexJob> jobs = new ArrayList<PreDexJob>(filesToPreDex.size());
 
       for (Pair<File, String> pair : filesToPreDex) {
-        context.checkCanceled();
-
         final File srcFile = pair.getFirst();
         final String moduleName = pair.getSecond();
         final String srcFilePath = srcFile.getAbsolutePath();
         final File outputFile;
+        final String progressText;
 
         if (moduleName != null) {
-          context.processMessage(new ProgressMessage("Pre-dex [" + moduleName + "]"));
+          progressText = "Pre-dex [" + moduleName + "]";
           outputFile = new File(new File(outputDir, moduleName), srcFile.getName());
         }
         else {
-          context.processMessage(new ProgressMessage("Pre-dex: " + srcFile.getName()));
+          progressText = "Pre-dex: " + srcFile.getName();
           final String outputFileName = getOutputFileNameForExternalJar(srcFile);
 
           if (outputFileName == null) {
@@ -121,14 +124,91 @@ public class AndroidPreDexBuilder extends AndroidTargetBuilder<AndroidPreDexBuil
         if (AndroidJpsUtil.createDirIfNotExist(outputFile.getParentFile(), context, BUILDER_NAME) == null) {
           return false;
         }
+        jobs.add(new PreDexJob(srcFile, outputFile, progressText));
+      }
 
-        if (!AndroidDexBuilder.runDex(platform, outputFile.getPath(), new String[]{srcFilePath}, context,
-          project, outputConsumer, BUILDER_NAME, srcFile.getName(), null)) {
-          return false;
+      // Outputs are not reused across builds in tests, since the expected logs list every dx invocation
+      final File cacheDir = AndroidBuildTestingManager.getTestingManager() == null
+                            ? new File(AndroidJpsUtil.getDirectoryForIntermediateArtifacts(
+                                context.getProjectDescriptor().dataManager.getDataPaths()), PRE_DEX_CACHE_DIRECTORY_NAME)
+                            : null;
+      return preDex(jobs, platform, project, context, outputConsumer, cacheDir);
+    }
+    return true;
+  }
+
+  /**
+   * Pre-dexes the given jars. Each jar is dexed by its own dx process and the jars do not depend on each other, so they are
+   * processed by {@link AndroidParallelExecutor}.
+   */
+  private static boolean preDex(@NotNull List<PreDexJob> jobs,
+                                @NotNull final AndroidPlatform platform,
+                                @NotNull final JpsProject project,
+                                @NotNull final CompileContext context,
+                                @NotNull final BuildOutputConsumer outputConsumer,
+                                @Nullable File cacheDir) throws IOException, ProjectBuildException {
+    final String fingerprint = cacheDir != null ? AndroidDexBuilder.getDexFingerprint(platform, project) : null;
+    final AndroidPreDexCache cache = fingerprint != null ? new AndroidPreDexCache(cacheDir, fingerprint) : null;
+    final AndroidPreDexCache.Dexer dexer = new AndroidPreDexCache.Dexer() {
+      @Override
+      public boolean dex(@NotNull File srcFile, @NotNull File outputFile) throws IOException {
+        return AndroidDexBuilder.runDex(platform, outputFile.getPath(), new String[]{srcFile.getAbsolutePath()}, context,
+                                        project, outputConsumer, BUILDER_NAME, srcFile.getName(), null);
+      }
+
+      @Override
+      public void outputRestored(@NotNull File srcFile, @NotNull File outputFile) throws IOException {
+        synchronized (outputConsumer) {
+          outputConsumer.registerOutputFile(outputFile, Collections.singletonList(srcFile.getAbsolutePath()));
+        }
+      }
+    };
+    final AtomicBoolean failed = new AtomicBoolean();
+    final List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(jobs.size());
+
+    for (final PreDexJob job : jobs) {
+      tasks.add(new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          // Like a sequential loop, stop starting new dx processes once one of them failed
+          if (failed.get()) {
+            return false;
+          }
+          context.checkCanceled();
+          context.processMessage(new ProgressMessage(job.myProgressText));
+
+          final boolean success = cache != null
+                                  ? cache.preDex(job.mySrcFile, job.myOutputFile, dexer)
+                                  : dexer.dex(job.mySrcFile, job.myOutputFile);
+          if (!success) {
+            failed.set(true);
+          }
+          return success;
         }
+      });
+    }
+    final List<AndroidParallelExecutor.Result<Boolean>> results = AndroidParallelExecutor.execute(tasks);
+
+    if (cache != null) {
+      cache.prune();
+    }
+    boolean success = true;
+
+    for (AndroidParallelExecutor.Result<Boolean> result : results) {
+      final Exception error = result.getError();
+
+      if (error instanceof ProjectBuildException) {
+        throw (ProjectBuildException)error;
       }
+      if (error instanceof IOException) {
+        throw (IOException)error;
+      }
+      if (error != null) {
+        throw new ProjectBuildException(error);
+      }
+      success &= Boolean.TRUE.equals(result.getValue());
     }
-    return true;
+    return success;
   }
 
   public static boolean canBePreDexed(@NotNull File file) {
@@ -140,4 +220,16 @@ public class AndroidPreDexBuilder extends AndroidTargetBuilder<AndroidPreDexBuil
   public String getPresentableName() {
     return BUILDER_NAME;
   }
+
+  private static class PreDexJob {
+    @NotNull final File mySrcFile;
+    @NotNull final File myOutputFile;
+    @NotNull final String myProgressText;
+
+    PreDexJob(@NotNull File srcFile, @NotNull File outputFile, @NotNull String progressText) {
+      mySrcFile = srcFile;
+      myOutputFile = outputFile;
+      myProgressText = progressText;
+    }
+  }
 }
@@ -0,0 +1,133 @@
+package org.jetbrains.jps.android;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jps.incremental.ProjectBuildException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-dexed jars kept across builds, so that a library used by several modules, or by the same module before a rebuild, is
+ * only dexed once. Entries are keyed by the content hash of the jar and by a fingerprint of the dx options. Entries that
+ * have not been used for {@link #MAX_UNUSED_TIME_MS} are removed by {@link #prune()}.
+ */
+class AndroidPreDexCache {
+  private static final Logger LOG = Logger.getInstance("#org.jetbrains.jps.android.AndroidPreDexCache");
+
+  @NonNls private static final String ENTRY_EXTENSION = ".jar";
+  @NonNls private static final String TEMP_FILE_EXTENSION = ".tmp";
+
+  static final long MAX_UNUSED_TIME_MS = TimeUnit.DAYS.toMillis(30);
+
+  /** Temporary files older than this were left by a build that was killed while storing an entry. */
+  private static final long MAX_TEMP_FILE_AGE_MS = TimeUnit.DAYS.toMillis(1);
+
+  private final File myDirectory;
+  private final String myFingerprintHash;
+
+  AndroidPreDexCache(@NotNull File directory, @NotNull String fingerprint) {
+    myDirectory = directory;
+    myFingerprintHash = Integer.toHexString(fingerprint.hashCode());
+  }
+
+  /**
+   * Writes the pre-dexed {@code srcFile} to {@code outputFile}. The output is copied from the cache if the same jar was dexed
+   * with the same options before, and {@code dexer} is only run otherwise.
+   *
+   * @return false if {@code dexer} failed
+   */
+  boolean preDex(@NotNull File srcFile, @NotNull File outputFile, @NotNull Dexer dexer) throws IOException, ProjectBuildException {
+    final File entry = getEntry(srcFile);
+
+    if (restore(entry, outputFile)) {
+      dexer.outputRestored(srcFile, outputFile);
+      return true;
+    }
+    if (!dexer.dex(srcFile, outputFile)) {
+      return false;
+    }
+    if (outputFile.isFile()) {
+      store(outputFile, entry);
+    }
+    return true;
+  }
+
+  /**
+   * Deletes the entries that have not been used for {@link #MAX_UNUSED_TIME_MS}, whatever dx options they were created with.
+   */
+  void prune() {
+    final File[] files = myDirectory.listFiles();
+
+    if (files == null) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+
+    for (File file : files) {
+      final String name = file.getName();
+      final long maxAge = name.endsWith(TEMP_FILE_EXTENSION) ? MAX_TEMP_FILE_AGE_MS
+                          : name.endsWith(ENTRY_EXTENSION) ? MAX_UNUSED_TIME_MS
+                          : -1;
+
+      if (maxAge >= 0 && file.isFile() && now - file.lastModified() > maxAge && !FileUtil.delete(file)) {
+        LOG.info("Cannot delete stale pre-dex cache entry " + file.getPath());
+      }
+    }
+  }
+
+  @NotNull
+  private File getEntry(@NotNull File srcFile) throws IOException {
+    return new File(myDirectory, AndroidBuildDataCache.getInstance().getContentHash(srcFile) + "-" + myFingerprintHash + ENTRY_EXTENSION);
+  }
+
+  private static boolean restore(@NotNull File entry, @NotNull File outputFile) {
+    if (!entry.isFile()) {
+      return false;
+    }
+    try {
+      FileUtil.copy(entry, outputFile);
+    }
+    catch (IOException e) {
+      // The entry may have been pruned by a concurrent build
+      LOG.info("Cannot restore pre-dexed file " + outputFile.getPath() + " from " + entry.getPath(), e);
+      return false;
+    }
+    // Entries are pruned by the time they were last used, not created
+    entry.setLastModified(System.currentTimeMillis());
+    return true;
+  }
+
+  private static void store(@NotNull File outputFile, @NotNull File entry) {
+    try {
+      FileUtil.createDirectory(entry.getParentFile());
+      // Copy to a temporary file first, so that a concurrent build never picks up a partially written jar
+      final File tempFile = FileUtil.createTempFile(entry.getParentFile(), entry.getName(), TEMP_FILE_EXTENSION, true, false);
+      FileUtil.copy(outputFile, tempFile);
+
+      if (!tempFile.renameTo(entry)) {
+        FileUtil.delete(tempFile);
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot cache pre-dexed file " + outputFile.getPath(), e);
+    }
+  }
+
+  interface Dexer {
+    /**
+     * Runs dx on {@code srcFile}.
+     *
+     * @return false if dx failed
+     */
+    boolean dex(@NotNull File srcFile, @NotNull File outputFile) throws IOException, ProjectBuildException;
+
+    /**
+     * Called instead of {@link #dex} when {@code outputFile} was copied from the cache.
+     */
+    void outputRestored(@NotNull File srcFile, @NotNull File outputFile) throws IOException;
+  }
+}
@@ -58,6 +58,7 @@ import org.jetbrains.jps.service.JpsServiceManager;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 /**
  * @author Eugene.Kudelevsky
@@ -689,6 +690,8 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     }
 
     boolean success = true;
+    final List<AidlJob> jobs = new ArrayList<AidlJob>();
+    final Map<JpsModule, String[]> sourceRootPathsMap = new HashMap<JpsModule, String[]>();
 
     for (Map.Entry<File, ModuleBuildTarget> entry : files.entrySet()) {
       final File file = entry.getKey();
@@ -718,8 +721,13 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
       final IAndroidTarget target = moduleData.getPlatform().getTarget();
 
       try {
-        final File[] sourceRoots = AndroidJpsUtil.getSourceRootsForModuleAndDependencies(buildTarget.getModule());
-        final String[] sourceRootPaths = AndroidJpsUtil.toPaths(sourceRoots);
+        // All the files of a module are compiled against the same source roots
+        String[] sourceRootPaths = sourceRootPathsMap.get(buildTarget.getModule());
+        if (sourceRootPaths == null) {
+          final File[] sourceRoots = AndroidJpsUtil.getSourceRootsForModuleAndDependencies(buildTarget.getModule());
+          sourceRootPaths = AndroidJpsUtil.toPaths(sourceRoots);
+          sourceRootPathsMap.put(buildTarget.getModule(), sourceRootPaths);
+        }
         final String packageName = computePackageForFile(context, file);
 
         if (packageName == null) {
@@ -731,26 +739,48 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
 
         final File outputFile = new File(aidlOutputDirectory, packageName.replace('.', File.separatorChar) +
                                                               File.separator + FileUtil.getNameWithoutExtension(file) + ".java");
-        final String outputFilePath = outputFile.getPath();
-        final Map<AndroidCompilerMessageKind, List<String>> messages =
-          AndroidIdl.execute(target, filePath, outputFilePath, sourceRootPaths);
-
-        addMessages(context, messages, filePath, ANDROID_IDL_COMPILER);
-
-        if (!messages.get(AndroidCompilerMessageKind.ERROR).isEmpty()) {
-          success = false;
-        }
-        else if (outputFile.exists()) {
-          final SourceToOutputMapping sourceToOutputMap = context.getProjectDescriptor().dataManager.getSourceToOutputMap(buildTarget);
-          sourceToOutputMap.setOutput(filePath, outputFilePath);
-          FSOperations.markDirty(context, CompilationRound.CURRENT, outputFile);
-        }
+        jobs.add(new AidlJob(file, buildTarget, target, outputFile, sourceRootPaths));
       }
       catch (final IOException e) {
         AndroidJpsUtil.reportExceptionError(context, filePath, e, ANDROID_IDL_COMPILER);
         success = false;
       }
     }
+
+    final List<AndroidParallelExecutor.Result<Map<AndroidCompilerMessageKind, List<String>>>> results =
+      AndroidParallelExecutor.execute(jobs);
+
+    for (int i = 0; i < jobs.size(); i++) {
+      final AidlJob job = jobs.get(i);
+      final AndroidParallelExecutor.Result<Map<AndroidCompilerMessageKind, List<String>>> result = results.get(i);
+      final String filePath = job.myFile.getPath();
+      final Exception error = result.getError();
+
+      if (error != null) {
+        AndroidJpsUtil.reportExceptionError(context, filePath, error, ANDROID_IDL_COMPILER);
+        success = false;
+        continue;
+      }
+      final Map<AndroidCompilerMessageKind, List<String>> messages = result.getValue();
+      assert messages != null;
+      addMessages(context, messages, filePath, ANDROID_IDL_COMPILER);
+
+      if (!messages.get(AndroidCompilerMessageKind.ERROR).isEmpty()) {
+        success = false;
+      }
+      else if (job.myOutputFile.exists()) {
+        try {
+          final SourceToOutputMapping sourceToOutputMap =
+            context.getProjectDescriptor().dataManager.getSourceToOutputMap(job.myBuildTarget);
+          sourceToOutputMap.setOutput(filePath, job.myOutputFile.getPath());
+          FSOperations.markDirty(context, CompilationRound.CURRENT, job.myOutputFile);
+        }
+        catch (final IOException e) {
+          AndroidJpsUtil.reportExceptionError(context, filePath, e, ANDROID_IDL_COMPILER);
+          success = false;
+        }
+      }
+    }
     return success;
   }
 
@@ -762,89 +792,187 @@ public class AndroidSourceGeneratingBuilder extends ModuleLevelBuilder {
     }
 
     boolean success = true;
+    final List<RenderscriptJob> jobs = new ArrayList<RenderscriptJob>();
 
-    for (Map.Entry<File, ModuleBuildTarget> entry : files.entrySet()) {
-      final File file = entry.getKey();
-      final ModuleBuildTarget buildTarget = entry.getValue();
-
-      final MyModuleData moduleData = moduleDataMap.get(buildTarget.getModule());
-      if (!LOG.assertTrue(moduleData != null)) {
-        context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR,
-                                                   AndroidJpsBundle.message("android.jps.internal.error")));
-        success = false;
-        continue;
-      }
-
-      final BuildDataManager dataManager = context.getProjectDescriptor().dataManager;
-      final File generatedSourcesDir = AndroidJpsUtil.getGeneratedSourcesStorage(buildTarget.getModule(), dataManager);
-      final File rsOutputDirectory = new File(generatedSourcesDir, AndroidJpsUtil.RENDERSCRIPT_GENERATED_SOURCE_ROOT_NAME);
-      if (!rsOutputDirectory.exists() && !rsOutputDirectory.mkdirs()) {
-        context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR, AndroidJpsBundle
-          .message("android.jps.cannot.create.directory", rsOutputDirectory.getPath())));
-        success = false;
-        continue;
-      }
+    try {
+      for (Map.Entry<File, ModuleBuildTarget> entry : files.entrySet()) {
+        final File file = entry.getKey();
+        final ModuleBuildTarget buildTarget = entry.getValue();
+
+        final MyModuleData moduleData = moduleDataMap.get(buildTarget.getModule());
+        if (!LOG.assertTrue(moduleData != null)) {
+          context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR,
+                                                     AndroidJpsBundle.message("android.jps.internal.error")));
+          success = false;
+          continue;
+        }
 
-      final File generatedResourcesDir = AndroidJpsUtil.getGeneratedResourcesStorage(buildTarget.getModule(), dataManager);
-      final File rawDir = new File(generatedResourcesDir, "raw");
+        final BuildDataManager dataManager = context.getProjectDescriptor().dataManager;
+        final File generatedSourcesDir = AndroidJpsUtil.getGeneratedSourcesStorage(buildTarget.getModule(), dataManager);
+        final File rsOutputDirectory = new File(generatedSourcesDir, AndroidJpsUtil.RENDERSCRIPT_GENERATED_SOURCE_ROOT_NAME);
+        if (!rsOutputDirectory.exists() && !rsOutputDirectory.mkdirs()) {
+          context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR, AndroidJpsBundle
+            .message("android.jps.cannot.create.directory", rsOutputDirectory.getPath())));
+          success = false;
+          continue;
+        }
 
-      if (!rawDir.exists() && !rawDir.mkdirs()) {
-        context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR,
-                                                   AndroidJpsBundle.message("android.jps.cannot.create.directory", rawDir.getPath())));
-        success = false;
-        continue;
-      }
+        final File generatedResourcesDir = AndroidJpsUtil.getGeneratedResourcesStorage(buildTarget.getModule(), dataManager);
+        final File rawDir = new File(generatedResourcesDir, "raw");
 
-      final AndroidPlatform platform = moduleData.getPlatform();
-      final IAndroidTarget target = platform.getTarget();
-      final String sdkLocation = platform.getSdk().getHomePath();
-      final String filePath = file.getPath();
+        if (!rawDir.exists() && !rawDir.mkdirs()) {
+          context.processMessage(new CompilerMessage(ANDROID_RENDERSCRIPT_COMPILER, BuildMessage.Kind.ERROR,
+                                                     AndroidJpsBundle.message("android.jps.cannot.create.directory", rawDir.getPath())));
+          success = false;
+          continue;
+        }
 
-      File tmpOutputDirectory = null;
+        final AndroidPlatform platform = moduleData.getPlatform();
+        final IAndroidTarget target = platform.getTarget();
+        final String sdkLocation = platform.getSdk().getHomePath();
+        final String filePath = file.getPath();
 
-      try {
-        tmpOutputDirectory = FileUtil.createTempDirectory("generated-rs-temp", null);
-        final String depFolderPath = getDependencyFolder(context, file, tmpOutputDirectory);
+        try {
+          // Each file gets its own temporary output directory, so that its outputs can be told apart from the others'
+          final File tmpOutputDirectory = FileUtil.createTempDirectory("generated-rs-temp", null);
+          final String depFolderPath = getDependencyFolder(context, file, tmpOutputDirectory);
+          jobs.add(new RenderscriptJob(file, buildTarget, sdkLocation, target, rsOutputDirectory, rawDir, tmpOutputDirectory,
+                                       depFolderPath));
+        }
+        catch (IOException e) {
+          AndroidJpsUtil.reportExceptionError(context, filePath, e, ANDROID_RENDERSCRIPT_COMPILER);
+          success = false;
+        }
+      }
 
-        final Map<AndroidCompilerMessageKind, List<String>> messages =
-          AndroidRenderscript.execute(sdkLocation, target, filePath, tmpOutputDirectory.getPath(), depFolderPath, rawDir.getPath());
+      final List<AndroidParallelExecutor.Result<Map<AndroidCompilerMessageKind, List<String>>>> results =
+        AndroidParallelExecutor.execute(jobs);
 
-        addMessages(context, messages, filePath, ANDROID_RENDERSCRIPT_COMPILER);
+      for (int i = 0; i < jobs.size(); i++) {
+        final RenderscriptJob job = jobs.get(i);
+        final AndroidParallelExecutor.Result<Map<AndroidCompilerMessageKind, List<String>>> result = results.get(i);
+        final String filePath = job.myFile.getPath();
+        final Exception error = result.getError();
 
-        if (!messages.get(AndroidCompilerMessageKind.ERROR).isEmpty()) {
+        if (error != null) {
+          AndroidJpsUtil.reportExceptionError(context, filePath, error, ANDROID_RENDERSCRIPT_COMPILER);
           success = false;
+          continue;
         }
-        else {
-          final List<File> newFiles = new ArrayList<File>();
-          AndroidCommonUtils.moveAllFiles(tmpOutputDirectory, rsOutputDirectory, newFiles);
+        final Map<AndroidCompilerMessageKind, List<String>> messages = result.getValue();
+        assert messages != null;
+
+        try {
+          addMessages(context, messages, filePath, ANDROID_RENDERSCRIPT_COMPILER);
 
-          final File bcFile = new File(rawDir, FileUtil.getNameWithoutExtension(file) + ".bc");
-          if (bcFile.exists()) {
-            newFiles.add(bcFile);
+          if (!messages.get(AndroidCompilerMessageKind.ERROR).isEmpty()) {
+            success = false;
           }
-          final List<String> newFilePaths = Arrays.asList(AndroidJpsUtil.toPaths(newFiles.toArray(new File[newFiles.size()])));
+          else {
+            final List<File> newFiles = new ArrayList<File>();
+            AndroidCommonUtils.moveAllFiles(job.myTmpOutputDirectory, job.myRsOutputDirectory, newFiles);
 
-          final SourceToOutputMapping sourceToOutputMap = dataManager.getSourceToOutputMap(buildTarget);
-          sourceToOutputMap.setOutputs(filePath, newFilePaths);
+            final File bcFile = new File(job.myRawDir, FileUtil.getNameWithoutExtension(job.myFile) + ".bc");
+            if (bcFile.exists()) {
+              newFiles.add(bcFile);
+            }
+            final List<String> newFilePaths = Arrays.asList(AndroidJpsUtil.toPaths(newFiles.toArray(new File[newFiles.size()])));
+
+            final SourceToOutputMapping sourceToOutputMap =
+              context.getProjectDescriptor().dataManager.getSourceToOutputMap(job.myBuildTarget);
+            sourceToOutputMap.setOutputs(filePath, newFilePaths);
 
-          for (File newFile : newFiles) {
-            FSOperations.markDirty(context, CompilationRound.CURRENT, newFile);
+            for (File newFile : newFiles) {
+              FSOperations.markDirty(context, CompilationRound.CURRENT, newFile);
+            }
           }
         }
-      }
-      catch (IOException e) {
-        AndroidJpsUtil.reportExceptionError(context, filePath, e, ANDROID_RENDERSCRIPT_COMPILER);
-        success = false;
-      }
-      finally {
-        if (tmpOutputDirectory != null) {
-          FileUtil.delete(tmpOutputDirectory);
+        catch (IOException e) {
+          AndroidJpsUtil.reportExceptionError(context, filePath, e, ANDROID_RENDERSCRIPT_COMPILER);
+          success = false;
         }
       }
     }
+    finally {
+      for (RenderscriptJob job : jobs) {
+        FileUtil.delete(job.myTmpOutputDirectory);
+      }
+    }
     return success;
   }
 
+  /**
+   * A single aidl or llvm-rs-cc invocation. Invocations are independent of each other, so they are run by
+   * {@link AndroidParallelExecutor}, and their results are then processed on the calling thread in the order of the jobs.
+   */
+  private interface ToolJob extends Callable<Map<AndroidCompilerMessageKind, List<String>>> {
+    @NotNull
+    @Override
+    Map<AndroidCompilerMessageKind, List<String>> call() throws IOException;
+  }
+
+  private static class AidlJob implements ToolJob {
+    final File myFile;
+    final ModuleBuildTarget myBuildTarget;
+    final IAndroidTarget myTarget;
+    final File myOutputFile;
+    final String[] mySourceRootPaths;
+
+    AidlJob(@NotNull File file,
+            @NotNull ModuleBuildTarget buildTarget,
+            @NotNull IAndroidTarget target,
+            @NotNull File outputFile,
+            @NotNull String[] sourceRootPaths) {
+      myFile = file;
+      myBuildTarget = buildTarget;
+      myTarget = target;
+      myOutputFile = outputFile;
+      mySourceRootPaths = sourceRootPaths;
+    }
+
+    @NotNull
+    @Override
+    public Map<AndroidCompilerMessageKind, List<String>> call() throws IOException {
+      return AndroidIdl.execute(myTarget, myFile.getPath(), myOutputFile.getPath(), mySourceRootPaths);
+    }
+  }
+
+  private static class RenderscriptJob implements ToolJob {
+    final File myFile;
+    final ModuleBuildTarget myBuildTarget;
+    final String mySdkLocation;
+    final IAndroidTarget myTarget;
+    final File myRsOutputDirectory;
+    final File myRawDir;
+    final File myTmpOutputDirectory;
+    final String myDepFolderPath;
+
+    RenderscriptJob(@NotNull File file,
+                    @NotNull ModuleBuildTarget buildTarget,
+                    @NotNull String sdkLocation,
+                    @NotNull IAndroidTarget target,
+                    @NotNull File rsOutputDirectory,
+                    @NotNull File rawDir,
+                    @NotNull File tmpOutputDirectory,
+                    @Nullable String depFolderPath) {
+      myFile = file;
+      myBuildTarget = buildTarget;
+      mySdkLocation = sdkLocation;
+      myTarget = target;
+      myRsOutputDirectory = rsOutputDirectory;
+      myRawDir = rawDir;
+      myTmpOutputDirectory = tmpOutputDirectory;
+      myDepFolderPath = depFolderPath;
+    }
+
+    @NotNull
+    @Override
+    public Map<AndroidCompilerMessageKind, List<String>> call() throws IOException {
+      return AndroidRenderscript.execute(mySdkLocation, myTarget, myFile.getPath(), myTmpOutputDirectory.getPath(), myDepFolderPath,
+                                         myRawDir.getPath());
+    }
+  }
+
   private static MyExitStatus runAaptCompiler(@NotNull final CompileContext context,
                                               @NotNull Map<JpsModule, MyModuleData> moduleDataMap)
     throws IOException {
@@ -0,0 +1,6 @@
+#pragma version(1)
+#pragma rs java_package_name(com.example.simple)
+
+void root(const uchar4 *in, uchar4 *out) {
+    *out = *in;
+}
@@ -42,9 +42,10 @@ abstract class AndroidBuildTestingCommandExecutor implements AndroidBuildTesting
     myPathPatterns.add(Pair.create(id, Pattern.compile("(" + regex + ").*")));
   }
 
+  // Synchronized so that the entries of processes started in parallel (e.g. by the pre-dex builder) are not interleaved
   @NotNull
   @Override
-  public Process createProcess(@NotNull String[] args, @NotNull Map<? extends String, ? extends String> environment) {
+  public synchronized Process createProcess(@NotNull String[] args, @NotNull Map<? extends String, ? extends String> environment) {
     startNewEntry();
     final String[] argsToLog = processArgs(args);
     logString(StringUtil.join(argsToLog, "\n"));
@@ -74,7 +75,7 @@ abstract class AndroidBuildTestingCommandExecutor implements AndroidBuildTesting
   }
 
   @Override
-  public void log(@NotNull String s) {
+  public synchronized void log(@NotNull String s) {
     startNewEntry();
     final String[] args = s.split("\\n");
     logString(StringUtil.join(processArgs(args), "\n"));
@@ -6,9 +6,11 @@ import com.intellij.openapi.application.ex.PathManagerEx;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.ArrayUtilRt;
+import com.intellij.util.Processor;
 import com.intellij.util.io.TestFileSystemBuilder;
 import com.intellij.util.io.TestFileSystemItem;
 import org.jetbrains.android.util.AndroidBuildTestingManager;
@@ -24,6 +26,7 @@ import org.jetbrains.jps.builders.CompileScopeTestBuilder;
 import org.jetbrains.jps.builders.JpsBuildTestCase;
 import org.jetbrains.jps.incremental.java.JavaBuilder;
 import org.jetbrains.jps.incremental.messages.BuildMessage;
+import org.jetbrains.jps.incremental.messages.CompilerMessage;
 import org.jetbrains.jps.maven.model.JpsMavenExtensionService;
 import org.jetbrains.jps.maven.model.impl.*;
 import org.jetbrains.jps.model.JpsElement;
@@ -45,10 +48,13 @@ import org.jetbrains.jps.util.JpsPathUtil;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -1240,6 +1246,48 @@ public class AndroidBuilderTest extends JpsBuildTestCase {
     checkBuildLog(executor, "expected_log_4");
   }
 
+  public void testParallelToolJobs() throws Exception {
+    final MyExecutor executor = new MyExecutor("com.example.simple");
+    setUpSimpleAndroidStructure(new String[]{"src"}, executor, null);
+
+    final BuildResult result = buildAndroidProject();
+    result.assertFailed();
+
+    // The aidl and llvm-rs-cc processes are run in parallel, and a failing one does not prevent the others from running
+    final String log = executor.getLog();
+
+    for (String fileName : new String[]{"IFirst.aidl", "ISecond.aidl", "IThird.aidl", "IBroken.aidl", "ICrashing.aidl",
+      "first.rs", "second.rs", "broken.rs"}) {
+      assertTrue(fileName + " was not compiled", log.contains("/com/example/simple/" + fileName));
+    }
+    final List<String> generatedFiles = new ArrayList<String>();
+
+    FileUtil.processFilesRecursively(myDataStorageRoot, new Processor<File>() {
+      @Override
+      public boolean process(File file) {
+        if (file.isFile()) {
+          generatedFiles.add(file.getName());
+        }
+        return true;
+      }
+    });
+    assertContainsElements(generatedFiles, "IFirst.java", "ISecond.java", "IThird.java", "ScriptC_first.java", "ScriptC_second.java",
+                           "first.bc", "second.bc");
+    assertDoesntContain(generatedFiles, "IBroken.java", "ICrashing.java", "ScriptC_broken.java", "broken.bc");
+
+    // Every failure is reported against its own file
+    final Set<String> filesWithErrors = new HashSet<String>();
+
+    for (BuildMessage message : result.getMessages(BuildMessage.Kind.ERROR)) {
+      final String sourcePath = message instanceof CompilerMessage ? ((CompilerMessage)message).getSourcePath() : null;
+
+      if (sourcePath != null) {
+        filesWithErrors.add(new File(sourcePath).getName());
+      }
+    }
+    assertEquals(new HashSet<String>(Arrays.asList("IBroken.aidl", "ICrashing.aidl", "broken.rs")), filesWithErrors);
+  }
+
   private void checkMakeUpToDate(MyExecutor executor) {
     executor.clear();
     buildAndroidProject().assertUpToDate();
@@ -1458,6 +1506,10 @@ public class AndroidBuilderTest extends JpsBuildTestCase {
         return new MyProcess(0, "", "");
       }
 
+      if (args[0].endsWith(SdkConstants.FN_AIDL) || args[0].endsWith(SdkConstants.FN_RENDERSCRIPT)) {
+        return createToolProcess(args);
+      }
+
       if (args[0].endsWith(SdkConstants.FN_AAPT)) {
         if ("package".equals(args[1])) {
           if ("-m".equals(args[2])) {
@@ -1488,6 +1540,42 @@ public class AndroidBuilderTest extends JpsBuildTestCase {
       return new MyProcess(0, "", "");
     }
 
+    /**
+     * Emulates aidl and llvm-rs-cc: a file whose name ends with "broken" has a compilation error, a file whose name ends with
+     * "crashing" makes the tool exit without any output, and the other files are compiled.
+     */
+    @NotNull
+    private static Process createToolProcess(@NotNull String[] args) throws IOException {
+      final boolean aidl = args[0].endsWith(SdkConstants.FN_AIDL);
+      final String srcPath = aidl ? args[args.length - 2] : args[args.length - 1];
+      final String name = FileUtil.getNameWithoutExtension(new File(srcPath));
+
+      if (StringUtil.endsWithIgnoreCase(name, "broken")) {
+        return new MyProcess(1, "", srcPath + ":4: syntax error");
+      }
+      if (StringUtil.endsWithIgnoreCase(name, "crashing")) {
+        return new MyProcess(1, "", "");
+      }
+      if (aidl) {
+        createTextFile(args[args.length - 1], "package com.example.simple;\n" +
+                                              "public interface " + name + " {}");
+      }
+      else {
+        createTextFile(getArgValue(args, "-p") + "/com/example/simple/ScriptC_" + name + ".java",
+                       "package com.example.simple;\n" +
+                       "public class ScriptC_" + name + " {}");
+        createTextFile(getArgValue(args, "-o") + "/" + name + ".bc", "bitcode_content");
+      }
+      return new MyProcess(0, "", "");
+    }
+
+    @NotNull
+    private static String getArgValue(@NotNull String[] args, @NotNull String option) {
+      final int idx = ArrayUtilRt.find(args, option);
+      assertTrue(idx >= 0 && idx + 1 < args.length);
+      return args[idx + 1];
+    }
+
     private static String getAaptOutputDirFromArgs(@NotNull String[] args) {
       for (int i = 0; i < args.length; i++) {
         final String arg = args[i];
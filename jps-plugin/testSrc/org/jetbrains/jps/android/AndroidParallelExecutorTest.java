@@ -0,0 +1,109 @@
+package org.jetbrains.jps.android;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AndroidParallelExecutorTest extends TestCase {
+  public void testResultsAreInJobOrder() {
+    final List<Callable<Integer>> jobs = new ArrayList<Callable<Integer>>();
+
+    for (int i = 0; i < 20; i++) {
+      final int value = i;
+      jobs.add(new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          // Later jobs finish first
+          Thread.sleep(20 - value);
+          return value;
+        }
+      });
+    }
+    final List<AndroidParallelExecutor.Result<Integer>> results = AndroidParallelExecutor.execute(jobs);
+    assertEquals(jobs.size(), results.size());
+
+    for (int i = 0; i < results.size(); i++) {
+      assertNull(results.get(i).getError());
+      assertEquals(Integer.valueOf(i), results.get(i).getValue());
+    }
+  }
+
+  public void testNumberOfConcurrentJobsIsBounded() {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final List<Callable<Void>> jobs = new ArrayList<Callable<Void>>();
+
+    for (int i = 0; i < 16; i++) {
+      jobs.add(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final int count = running.incrementAndGet();
+          int max;
+
+          while ((max = maxRunning.get()) < count && !maxRunning.compareAndSet(max, count)) {
+          }
+          Thread.sleep(10);
+          running.decrementAndGet();
+          return null;
+        }
+      });
+    }
+    AndroidParallelExecutor.execute(jobs);
+
+    final int expectedMax = Math.min(AndroidParallelExecutor.MAX_PARALLEL_JOBS, Runtime.getRuntime().availableProcessors());
+    assertTrue(maxRunning.get() >= 1);
+    assertTrue(maxRunning.get() <= expectedMax);
+  }
+
+  public void testFailureDoesNotStopOtherJobs() {
+    final AtomicInteger completed = new AtomicInteger();
+    final List<Callable<String>> jobs = new ArrayList<Callable<String>>();
+
+    for (int i = 0; i < 8; i++) {
+      final int index = i;
+      jobs.add(new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          if (index == 1) {
+            throw new IOException("Cannot run tool on file1");
+          }
+          if (index == 5) {
+            throw new IllegalStateException("file5");
+          }
+          completed.incrementAndGet();
+          return "file" + index;
+        }
+      });
+    }
+    final List<AndroidParallelExecutor.Result<String>> results = AndroidParallelExecutor.execute(jobs);
+
+    assertEquals(6, completed.get());
+    assertEquals(8, results.size());
+
+    for (int i = 0; i < results.size(); i++) {
+      final AndroidParallelExecutor.Result<String> result = results.get(i);
+
+      if (i == 1) {
+        assertTrue(result.getError() instanceof IOException);
+        assertEquals("Cannot run tool on file1", result.getError().getMessage());
+        assertNull(result.getValue());
+      }
+      else if (i == 5) {
+        assertTrue(result.getError() instanceof IllegalStateException);
+        assertNull(result.getValue());
+      }
+      else {
+        assertNull(result.getError());
+        assertEquals("file" + i, result.getValue());
+      }
+    }
+  }
+
+  public void testNoJobs() {
+    assertTrue(AndroidParallelExecutor.execute(new ArrayList<Callable<Object>>()).isEmpty());
+  }
+}
@@ -0,0 +1,158 @@
+package org.jetbrains.jps.android;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AndroidPreDexCacheTest extends TestCase {
+  private File myRoot;
+  private File myCacheDir;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    AndroidBuildDataCache.clean();
+    myRoot = FileUtil.createTempDirectory("pre-dex-cache-test", null);
+    myCacheDir = new File(myRoot, "pre_dexed_libs_cache");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    try {
+      FileUtil.delete(myRoot);
+      AndroidBuildDataCache.clean();
+    }
+    finally {
+      super.tearDown();
+    }
+  }
+
+  public void testCacheHitSkipsDex() throws Exception {
+    // Two copies of the same library, e.g. in the libs folders of two modules
+    final File jar1 = createFile("app/libs/lib.jar", "classes");
+    final File jar2 = createFile("lib/libs/lib.jar", "classes");
+    final AndroidPreDexCache cache = new AndroidPreDexCache(myCacheDir, "dx 1.0");
+    final RecordingDexer dexer = new RecordingDexer();
+
+    assertTrue(cache.preDex(jar1, new File(myRoot, "out/app/lib.jar"), dexer));
+    assertTrue(cache.preDex(jar2, new File(myRoot, "out/lib/lib.jar"), dexer));
+
+    assertEquals(1, dexer.myDexed.size());
+    assertEquals(jar1, dexer.myDexed.get(0));
+    assertEquals(1, dexer.myRestored.size());
+    assertEquals(jar2, dexer.myRestored.get(0));
+    assertEquals("dexed classes", FileUtil.loadFile(new File(myRoot, "out/lib/lib.jar")));
+  }
+
+  public void testChangedJarIsDexedAgain() throws Exception {
+    final File jar = createFile("libs/lib.jar", "classes");
+    final RecordingDexer dexer = new RecordingDexer();
+    assertTrue(new AndroidPreDexCache(myCacheDir, "dx 1.0").preDex(jar, new File(myRoot, "out/lib.jar"), dexer));
+
+    FileUtil.writeToFile(jar, "changed classes");
+    AndroidBuildDataCache.clean();
+    assertTrue(new AndroidPreDexCache(myCacheDir, "dx 1.0").preDex(jar, new File(myRoot, "out/lib.jar"), dexer));
+
+    assertEquals(2, dexer.myDexed.size());
+    assertTrue(dexer.myRestored.isEmpty());
+    assertEquals("dexed changed classes", FileUtil.loadFile(new File(myRoot, "out/lib.jar")));
+  }
+
+  public void testChangedDexOptionsDexAgain() throws Exception {
+    final File jar = createFile("libs/lib.jar", "classes");
+    final RecordingDexer dexer = new RecordingDexer();
+
+    assertTrue(new AndroidPreDexCache(myCacheDir, "dx 1.0").preDex(jar, new File(myRoot, "out/lib.jar"), dexer));
+    assertTrue(new AndroidPreDexCache(myCacheDir, "dx 1.0 --forceJumbo").preDex(jar, new File(myRoot, "out/lib.jar"), dexer));
+
+    assertEquals(2, dexer.myDexed.size());
+    assertTrue(dexer.myRestored.isEmpty());
+  }
+
+  public void testFailedDexIsNotCached() throws Exception {
+    final File jar = createFile("libs/lib.jar", "classes");
+    final AndroidPreDexCache cache = new AndroidPreDexCache(myCacheDir, "dx 1.0");
+    final RecordingDexer dexer = new RecordingDexer();
+    dexer.myFail = true;
+
+    assertFalse(cache.preDex(jar, new File(myRoot, "out/lib.jar"), dexer));
+    dexer.myFail = false;
+    assertTrue(cache.preDex(jar, new File(myRoot, "out/lib.jar"), dexer));
+
+    assertEquals(2, dexer.myDexed.size());
+    assertTrue(dexer.myRestored.isEmpty());
+  }
+
+  public void testPruneDeletesUnusedEntries() throws Exception {
+    final File usedJar = createFile("libs/used.jar", "used classes");
+    final File unusedJar = createFile("libs/unused.jar", "unused classes");
+    final AndroidPreDexCache cache = new AndroidPreDexCache(myCacheDir, "dx 1.0");
+    final RecordingDexer dexer = new RecordingDexer();
+
+    assertTrue(cache.preDex(usedJar, new File(myRoot, "out/used.jar"), dexer));
+    assertTrue(cache.preDex(unusedJar, new File(myRoot, "out/unused.jar"), dexer));
+    final File leftOverTempFile = createFile("pre_dexed_libs_cache/entry.jar123.tmp", "partial");
+    final File otherFile = createFile("pre_dexed_libs_cache/README", "not an entry");
+
+    final long longAgo = System.currentTimeMillis() - AndroidPreDexCache.MAX_UNUSED_TIME_MS - 1000;
+    final File[] entries = myCacheDir.listFiles();
+    assertNotNull(entries);
+
+    for (File entry : entries) {
+      assertTrue(entry.setLastModified(longAgo));
+    }
+    // Using an entry makes it recent again
+    assertTrue(cache.preDex(usedJar, new File(myRoot, "out/used.jar"), dexer));
+    cache.prune();
+
+    assertFalse(leftOverTempFile.exists());
+    assertTrue(otherFile.exists());
+    assertEquals(2, dexer.myDexed.size());
+    assertTrue(cache.preDex(usedJar, new File(myRoot, "out/used.jar"), dexer));
+    assertTrue(cache.preDex(unusedJar, new File(myRoot, "out/unused.jar"), dexer));
+    assertEquals(3, dexer.myDexed.size());
+    assertEquals(unusedJar, dexer.myDexed.get(2));
+  }
+
+  public void testPruneWithoutCacheDirectory() {
+    new AndroidPreDexCache(myCacheDir, "dx 1.0").prune();
+    assertFalse(myCacheDir.exists());
+  }
+
+  @NotNull
+  private File createFile(@NotNull String relativePath, @NotNull String content) throws IOException {
+    final File file = new File(myRoot, relativePath);
+    FileUtil.writeToFile(file, content);
+    return file;
+  }
+
+  /**
+   * Writes "dexed " followed by the content of the jar instead of running dx.
+   */
+  private static class RecordingDexer implements AndroidPreDexCache.Dexer {
+    final List<File> myDexed = new ArrayList<File>();
+    final List<File> myRestored = new ArrayList<File>();
+    boolean myFail;
+
+    @Override
+    public boolean dex(@NotNull File srcFile, @NotNull File outputFile) throws IOException {
+      myDexed.add(srcFile);
+
+      if (myFail) {
+        return false;
+      }
+      FileUtil.writeToFile(outputFile, "dexed " + FileUtil.loadFile(srcFile));
+      return true;
+    }
+
+    @Override
+    public void outputRestored(@NotNull File srcFile, @NotNull File outputFile) {
+      myRestored.add(srcFile);
+    }
+  }
+}
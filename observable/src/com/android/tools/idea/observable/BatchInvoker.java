@@ -15,13 +15,12 @@
  */
 package com.android.tools.idea.observable;
 
-import com.google.common.collect.Queues;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
 import javax.swing.*;
-import java.util.Queue;
+import java.util.*;
 
 /**
  * A utility class which invokes some logic and, if multiple invocation requests come in at the
@@ -33,6 +32,13 @@ import java.util.Queue;
  * Doing this will allow us to avoid doing expensive updates on redundant, intermediate changes,
  * e.g. if you have five values in a complex mathematical calculation, and all values change in
  * the same frame, you only want to run the calculation once.
+ *
+ * A runnable enqueued while a batch is running joins that batch, unless it already ran in it. The
+ * invoker also learns which runnables cause which other runnables to be enqueued (e.g. a binding
+ * whose destination is the source of another binding), and runs the runnables of a batch in that
+ * dependency order. This way, once the dependencies are known, a graph of updates settles in a
+ * single pass, with each runnable running once, instead of running some runnables again in
+ * follow-up cycles.
  */
 public final class BatchInvoker {
   /**
@@ -59,15 +65,38 @@ public final class BatchInvoker {
   private final Strategy myStrategy;
 
   /**
-   * A current batch of runnables that are either running or will run soon.
+   * A current batch of runnables that will run soon. While a batch is running, a runnable is
+   * removed from this set right before it runs.
+   */
+  private final Set<Runnable> myRunnables = new LinkedHashSet<>();
+
+  /**
+   * The runnables of {@link #myRunnables} in the order they will run, while a batch is running.
    */
-  private final Queue<Runnable> myRunnables = Queues.newArrayDeque();
+  private final Queue<PendingRunnable> myRunQueue = new PriorityQueue<>();
+
+  /**
+   * The runnables which already ran in the current batch.
+   */
+  private final Set<Runnable> myRanRunnables = new HashSet<>();
 
   /**
    * A deferred batch of runnables, for those that are added by {@link #enqueue(Runnable)} while a
-   * batch is already running. These will run immediately after the current batch finishes.
+   * batch is already running, after they already ran in that batch. These will run immediately
+   * after the current batch finishes.
    */
-  private final Queue<Runnable> myDeferredRunnables = Queues.newArrayDeque();
+  private final Set<Runnable> myDeferredRunnables = new LinkedHashSet<>();
+
+  private final DependencyGraph myDependencies = new DependencyGraph();
+
+  /**
+   * The depths of the runnables in {@link #myDependencies} when the current batch started.
+   */
+  @NotNull private Map<Runnable, Integer> myDepths = Collections.emptyMap();
+
+  @Nullable private Runnable myRunningRunnable;
+
+  private int myEnqueueCount;
 
   private boolean myUpdateInProgress;
 
@@ -86,39 +115,65 @@ public final class BatchInvoker {
    */
   public void enqueue(@NotNull Runnable runnable) {
     if (myUpdateInProgress) {
-      if (!myDeferredRunnables.contains(runnable)) {
+      if (myRunningRunnable != null) {
+        myDependencies.addEdge(myRunningRunnable, runnable);
+      }
+      // A runnable which hasn't run yet in the current batch will see the latest changes when it
+      // runs, so it only needs to be deferred if it already ran.
+      if (myRanRunnables.contains(runnable)) {
         myDeferredRunnables.add(runnable);
       }
+      else if (myRunnables.add(runnable)) {
+        schedule(runnable);
+      }
       return;
     }
 
     // Prepare to run an update if we're the first update request. Any other requests that are made
     // before the update runs will get lumped in with it.
     boolean shouldInvoke = myRunnables.isEmpty();
-    if (!myRunnables.contains(runnable)) {
-      myRunnables.add(runnable);
-    }
+    myRunnables.add(runnable);
 
     if (shouldInvoke) {
       enqueueInvoke();
     }
   }
 
+  /**
+   * Forgets what was learned about the dependencies of the given runnable. Call this when a
+   * runnable will not be enqueued anymore, e.g. when the binding it updates is released.
+   */
+  public void forget(@NotNull Runnable runnable) {
+    myDependencies.remove(runnable);
+  }
+
   private void enqueueInvoke() {
     myStrategy.invoke(() -> {
       int cycleCount = 0;
       RuntimeException runnableExceptionChain = null;
       while (true) {
         myUpdateInProgress = true;
+        myDepths = myDependencies.getDepths();
+        myEnqueueCount = 0;
         for (Runnable runnable : myRunnables) {
+          schedule(runnable);
+        }
+        while (!myRunQueue.isEmpty()) {
+          Runnable runnable = myRunQueue.poll().myRunnable;
+          myRunnables.remove(runnable);
+          myRanRunnables.add(runnable);
+          myRunningRunnable = runnable;
           try {
             runnable.run();
           }
           catch (RuntimeException ex) {
             runnableExceptionChain = addExceptionCause(ex, runnableExceptionChain);
           }
+          finally {
+            myRunningRunnable = null;
+          }
         }
-        myRunnables.clear();
+        myRanRunnables.clear();
 
         myUpdateInProgress = false;
 
@@ -143,6 +198,32 @@ public final class BatchInvoker {
     });
   }
 
+  private void schedule(@NotNull Runnable runnable) {
+    myRunQueue.add(new PendingRunnable(runnable, myDepths.getOrDefault(runnable, 0), myEnqueueCount++));
+  }
+
+  /**
+   * A runnable of the running batch. Runnables run by increasing dependency depth, and in the order
+   * they were enqueued for the same depth.
+   */
+  private static final class PendingRunnable implements Comparable<PendingRunnable> {
+    @NotNull private final Runnable myRunnable;
+    private final int myDepth;
+    private final int myOrder;
+
+    PendingRunnable(@NotNull Runnable runnable, int depth, int order) {
+      myRunnable = runnable;
+      myDepth = depth;
+      myOrder = order;
+    }
+
+    @Override
+    public int compareTo(@NotNull PendingRunnable other) {
+      int result = Integer.compare(myDepth, other.myDepth);
+      return result != 0 ? result : Integer.compare(myOrder, other.myOrder);
+    }
+  }
+
   /**
    * A strategy on how to handle invoking a batch of runnables.
    *
@@ -179,6 +260,88 @@ public final class BatchInvoker {
     }
   }
 
+  /**
+   * The dependencies between runnables, learned as runnables run: an edge from A to B means that
+   * running A caused B to be enqueued. Runnables run by increasing depth in this graph, so that a
+   * runnable runs after the ones it depends on. Edges closing a cycle don't affect the order.
+   */
+  private static final class DependencyGraph {
+    /**
+     * The graph is only a hint for ordering runnables, so it is simply cleared if it gets too large,
+     * e.g. because a client enqueues new lambdas instead of reusing runnables.
+     */
+    private static final int MAX_EDGE_COUNT = 10_000;
+
+    private final Map<Runnable, Set<Runnable>> mySuccessors = new HashMap<>();
+    private int myEdgeCount;
+    @Nullable private Map<Runnable, Integer> myDepths;
+
+    void addEdge(@NotNull Runnable from, @NotNull Runnable to) {
+      if (from.equals(to)) {
+        return;
+      }
+      if (myEdgeCount >= MAX_EDGE_COUNT) {
+        mySuccessors.clear();
+        myEdgeCount = 0;
+      }
+      if (mySuccessors.computeIfAbsent(from, k -> new LinkedHashSet<>()).add(to)) {
+        myEdgeCount++;
+        myDepths = null;
+      }
+    }
+
+    void remove(@NotNull Runnable runnable) {
+      Set<Runnable> successors = mySuccessors.remove(runnable);
+      if (successors != null) {
+        myEdgeCount -= successors.size();
+        myDepths = null;
+      }
+      for (Set<Runnable> otherSuccessors : mySuccessors.values()) {
+        if (otherSuccessors.remove(runnable)) {
+          myEdgeCount--;
+          myDepths = null;
+        }
+      }
+    }
+
+    /**
+     * Computes the length of the longest path leading to each runnable, visiting the graph in
+     * topological order. Runnables which are part of a cycle get the depth computed from their
+     * predecessors outside the cycle.
+     */
+    @NotNull
+    Map<Runnable, Integer> getDepths() {
+      if (myDepths != null) {
+        return myDepths;
+      }
+      Map<Runnable, Integer> inDegrees = new HashMap<>();
+      for (Set<Runnable> successors : mySuccessors.values()) {
+        for (Runnable successor : successors) {
+          inDegrees.merge(successor, 1, Integer::sum);
+        }
+      }
+      Map<Runnable, Integer> depths = new HashMap<>();
+      Deque<Runnable> ready = new ArrayDeque<>();
+      for (Runnable runnable : mySuccessors.keySet()) {
+        if (!inDegrees.containsKey(runnable)) {
+          ready.add(runnable);
+        }
+      }
+      while (!ready.isEmpty()) {
+        Runnable runnable = ready.poll();
+        int depth = depths.getOrDefault(runnable, 0);
+        for (Runnable successor : mySuccessors.getOrDefault(runnable, Collections.emptySet())) {
+          depths.merge(successor, depth + 1, Math::max);
+          if (inDegrees.merge(successor, -1, Integer::sum) == 0) {
+            ready.add(successor);
+          }
+        }
+      }
+      myDepths = depths;
+      return depths;
+    }
+  }
+
   private static RuntimeException addExceptionCause(@NotNull RuntimeException ex, @Nullable RuntimeException cause) {
     if (cause != null) {
       Throwable tail = ex;
@@ -178,6 +178,7 @@ public final class BindingsManager {
     public void dispose() {
       mySrc.removeListener(this);
       myEnabled.removeListener(this);
+      myInvoker.forget(new DestUpdater<>(myDest, mySrc));
     }
   }
 
@@ -210,6 +211,8 @@ public final class BindingsManager {
     public void dispose() {
       myLhs.removeListener(myLeftChangedListener);
       myRhs.removeListener(myRightChangedListener);
+      myInvoker.forget(new DestUpdater<>(myRhs, myLhs));
+      myInvoker.forget(new DestUpdater<>(myLhs, myRhs));
     }
   }
 
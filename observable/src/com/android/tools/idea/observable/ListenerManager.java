@@ -244,6 +244,7 @@ public final class ListenerManager {
       for (ObservableValue<?> value : myValues) {
         value.removeListener(this);
       }
+      myInvoker.forget(this);
     }
 
     /**
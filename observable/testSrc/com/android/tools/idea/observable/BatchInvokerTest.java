@@ -99,6 +99,56 @@ public final class BatchInvokerTest {
     assertThat(intWrapper.value).isEqualTo(3);
   }
 
+  @Test
+  public void runnablesEnqueuedDuringBatchJoinIt() throws Exception {
+    TestInvokeStrategy testStrategy = new TestInvokeStrategy();
+    BatchInvoker invoker = new BatchInvoker(testStrategy);
+    IntWrapper intWrapper = new IntWrapper();
+
+    // A chain much longer than the maximum number of cycles still settles in a single batch
+    Runnable next = new AddToValue(0, intWrapper, 1);
+    for (int i = 1; i < 100; i++) {
+      DeferRunnable deferRunnable = new DeferRunnable(invoker);
+      deferRunnable.setRunnable(next);
+      next = new CompositeRunnable(new AddToValue(i, intWrapper, 1), deferRunnable);
+    }
+
+    invoker.enqueue(next);
+    testStrategy.updateOneStep();
+    assertThat(intWrapper.value).isEqualTo(100);
+    assertThat(testStrategy.myBatchQueue).isEmpty();
+  }
+
+  @Test
+  public void runnablesRunAfterTheRunnablesEnqueuingThem() throws Exception {
+    TestInvokeStrategy testStrategy = new TestInvokeStrategy();
+    BatchInvoker invoker = new BatchInvoker(testStrategy);
+    IntWrapper intWrapper = new IntWrapper();
+
+    AddToValue dependent = new AddToValue(0, intWrapper, 1);
+    DeferRunnable dependency = new DeferRunnable(invoker);
+    dependency.setRunnable(dependent);
+
+    // The first time, the dependent runnable runs again because the dependency enqueues it after it already ran
+    invoker.enqueue(dependent);
+    invoker.enqueue(dependency);
+    testStrategy.updateOneStep();
+    assertThat(intWrapper.value).isEqualTo(2);
+
+    // Afterwards, the dependency runs first, and the dependent runnable only runs once
+    invoker.enqueue(dependent);
+    invoker.enqueue(dependency);
+    testStrategy.updateOneStep();
+    assertThat(intWrapper.value).isEqualTo(3);
+
+    // Until the invoker is told to forget about it
+    invoker.forget(dependency);
+    invoker.enqueue(dependent);
+    invoker.enqueue(dependency);
+    testStrategy.updateOneStep();
+    assertThat(intWrapper.value).isEqualTo(5);
+  }
+
   @Test
   public void infiniteCycleThrowsException() throws Exception {
     BatchInvoker invoker = new BatchInvoker(BatchInvoker.INVOKE_IMMEDIATELY_STRATEGY);
@@ -184,6 +234,38 @@ public final class BatchInvokerTest {
     }
   }
 
+  /**
+   * Runs two runnables, and is equal to other composite runnables running equal runnables.
+   */
+  private static final class CompositeRunnable implements Runnable {
+    @NotNull private final Runnable myFirst;
+    @NotNull private final Runnable mySecond;
+
+    public CompositeRunnable(@NotNull Runnable first, @NotNull Runnable second) {
+      myFirst = first;
+      mySecond = second;
+    }
+
+    @Override
+    public void run() {
+      myFirst.run();
+      mySecond.run();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      CompositeRunnable that = (CompositeRunnable)o;
+      return myFirst.equals(that.myFirst) && mySecond.equals(that.mySecond);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(myFirst, mySecond);
+    }
+  }
+
   /**
    * A runnable which assigns another runnable to a target invoker. This will let us unit test
    * deferred behavior and infinite loop scenarios.
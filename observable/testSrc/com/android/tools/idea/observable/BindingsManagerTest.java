@@ -18,12 +18,14 @@ package com.android.tools.idea.observable;
 import com.android.tools.idea.observable.core.BoolValueProperty;
 import com.android.tools.idea.observable.core.IntValueProperty;
 import com.android.tools.idea.observable.core.StringValueProperty;
+import com.android.tools.idea.observable.expressions.Expression;
 import com.android.tools.idea.observable.expressions.list.MapExpression;
 import com.android.tools.idea.observable.collections.ObservableList;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -283,4 +285,77 @@ public final class BindingsManagerTest {
     srcProperty.set(50);
     assertThat(destProperty.get()).isEqualTo(50);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void deepBindingChainsSettleInOneBatch() {
+    TestInvokeStrategy testStrategy = new TestInvokeStrategy();
+    BindingsManager bindings = new BindingsManager(testStrategy);
+    AtomicInteger evaluationCount = new AtomicInteger();
+
+    IntValueProperty[] chain = new IntValueProperty[200];
+    chain[0] = new IntValueProperty(0);
+    for (int i = 1; i < chain.length; i++) {
+      chain[i] = new IntValueProperty();
+      bindings.bind(chain[i], chain[i - 1].transform(value -> {
+        evaluationCount.incrementAndGet();
+        return value + 1;
+      }));
+    }
+    testStrategy.updateAllSteps();
+    assertThat(chain[chain.length - 1].get()).isEqualTo(chain.length - 1);
+
+    evaluationCount.set(0);
+    chain[0].set(1000);
+    testStrategy.updateOneStep();
+    assertThat(testStrategy.myBatchQueue).isEmpty();
+    assertThat(chain[chain.length - 1].get()).isEqualTo(1000 + chain.length - 1);
+    assertThat(evaluationCount.get()).isEqualTo(chain.length - 1);
+  }
+
+  @Test
+  public void wideBindingGraphsEvaluateEachBindingOncePerBatch() {
+    TestInvokeStrategy testStrategy = new TestInvokeStrategy();
+    BindingsManager bindings = new BindingsManager(testStrategy);
+    AtomicInteger totalEvaluationCount = new AtomicInteger();
+
+    // total = source + sum(source * i), where each product is a bound property
+    IntValueProperty source = new IntValueProperty(1);
+    IntValueProperty[] products = new IntValueProperty[100];
+    for (int i = 0; i < products.length; i++) {
+      products[i] = new IntValueProperty();
+    }
+    IntValueProperty total = new IntValueProperty();
+    ObservableValue<?>[] totalInputs = new ObservableValue<?>[products.length + 1];
+    totalInputs[0] = source;
+    System.arraycopy(products, 0, totalInputs, 1, products.length);
+    bindings.bind(total, new Expression<Integer>(totalInputs) {
+      @NotNull
+      @Override
+      public Integer get() {
+        totalEvaluationCount.incrementAndGet();
+        int sum = source.get();
+        for (IntValueProperty product : products) {
+          sum += product.get();
+        }
+        return sum;
+      }
+    });
+    for (int i = 0; i < products.length; i++) {
+      int factor = i;
+      bindings.bind(products[i], source.transform(value -> value * factor));
+    }
+    testStrategy.updateAllSteps();
+    assertThat(total.get()).isEqualTo(1 + 4950);
+
+    // Although the total is bound before the products, the products are updated first since the
+    // invoker learned that updating them invalidates the total, so the total is evaluated once
+    for (int value = 2; value <= 4; value++) {
+      totalEvaluationCount.set(0);
+      source.set(value);
+      testStrategy.updateOneStep();
+      assertThat(testStrategy.myBatchQueue).isEmpty();
+      assertThat(total.get()).isEqualTo(value + value * 4950);
+      assertThat(totalEvaluationCount.get()).isEqualTo(1);
+    }
+  }
+}
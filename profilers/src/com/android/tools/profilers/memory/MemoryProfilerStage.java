@@ -586,6 +586,27 @@ public class MemoryProfilerStage extends Stage implements CodeNavigator.Listener
     setProfilerMode(ProfilerMode.EXPANDED);
   }
 
+  /**
+   * Selects a {@link DiffCaptureObject} showing what changed from the capture of {@code before} to the capture of {@code after},
+   * typically two heap dumps. Captures which are still ongoing cannot be compared.
+   */
+  public void selectCaptureDiff(@NotNull CaptureDurationData<? extends CaptureObject> before,
+                                @NotNull CaptureDurationData<? extends CaptureObject> after,
+                                @Nullable Executor joiner) {
+    if (before.getDuration() == Long.MAX_VALUE || after.getDuration() == Long.MAX_VALUE) {
+      return;
+    }
+
+    CaptureEntry<? extends CaptureObject> beforeEntry = before.getCaptureEntry();
+    CaptureEntry<? extends CaptureObject> afterEntry = after.getCaptureEntry();
+    CaptureEntry<CaptureObject> diffEntry =
+      new CaptureEntry<>(Arrays.asList(beforeEntry, afterEntry),
+                         () -> new DiffCaptureObject(beforeEntry.getCaptureObject(), afterEntry.getCaptureObject()));
+    // The selection range is set from the start time of the earlier capture to the end time of the later one, the duration only
+    // tells that the diff is not ongoing.
+    selectCaptureDuration(new CaptureDurationData<>(0, false, false, diffEntry), joiner);
+  }
+
   @Nullable
   public CaptureObject getSelectedCapture() {
     return mySelection.getCaptureObject();
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import com.android.tools.profiler.proto.MemoryProfiler.AllocationStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Compares two captures (typically two heap dumps of the same process) class by class. Instances are aligned by heap,
+ * class name and allocation site, and only per-class totals are kept while the instances of both captures are streamed, so
+ * the memory used by the diff depends on the number of classes rather than on the number of objects.
+ */
+public final class CaptureDiff {
+  private static final Comparator<ClassDelta> DELTA_ORDER =
+    Comparator.comparingLong(ClassDelta::getRetainedSizeDelta).reversed()
+      .thenComparing(Comparator.comparingInt(ClassDelta::getInstanceCountDelta).reversed())
+      .thenComparing(delta -> delta.getClassEntry().getClassName());
+
+  @NotNull private final Map<Key, ClassDelta> myDeltas;
+
+  private CaptureDiff(@NotNull Map<Key, ClassDelta> deltas) {
+    myDeltas = deltas;
+  }
+
+  /**
+   * Computes the difference going from {@code before} to {@code after}. Both captures must be done loading.
+   */
+  @NotNull
+  public static CaptureDiff compute(@NotNull CaptureObject before, @NotNull CaptureObject after) {
+    assert before.isDoneLoading() && after.isDoneLoading();
+
+    Map<Key, ClassDelta> deltas = new HashMap<>();
+    before.getInstances().forEach(instance -> getDelta(deltas, instance).addBefore(instance));
+    after.getInstances().forEach(instance -> getDelta(deltas, instance).addAfter(instance));
+
+    List<Map.Entry<Key, ClassDelta>> changed = new ArrayList<>(deltas.size());
+    for (Map.Entry<Key, ClassDelta> entry : deltas.entrySet()) {
+      if (entry.getValue().hasChanged()) {
+        changed.add(entry);
+      }
+    }
+    changed.sort((entry1, entry2) -> DELTA_ORDER.compare(entry1.getValue(), entry2.getValue()));
+
+    Map<Key, ClassDelta> result = new LinkedHashMap<>(changed.size());
+    for (Map.Entry<Key, ClassDelta> entry : changed) {
+      result.put(entry.getKey(), entry.getValue());
+    }
+    return new CaptureDiff(result);
+  }
+
+  @NotNull
+  private static ClassDelta getDelta(@NotNull Map<Key, ClassDelta> deltas, @NotNull InstanceObject instance) {
+    return deltas.computeIfAbsent(createKey(instance), k -> new ClassDelta(k.myHeapId, instance.getClassEntry(), k.myAllocationStack));
+  }
+
+  @NotNull
+  private static Key createKey(@NotNull InstanceObject instance) {
+    return new Key(instance.getHeapId(), instance.getClassEntry().getClassName(), instance.getAllocationCallStack());
+  }
+
+  /**
+   * Returns the classes whose instance count or sizes changed, the ones whose retained size grew the most first.
+   */
+  @NotNull
+  public List<ClassDelta> getDeltas() {
+    return Collections.unmodifiableList(new ArrayList<>(myDeltas.values()));
+  }
+
+  /**
+   * Returns the change of the class, allocation site and heap of {@code instance}, which can be from either capture, or null if
+   * they did not change.
+   */
+  @Nullable
+  public ClassDelta getDelta(@NotNull InstanceObject instance) {
+    return myDeltas.get(createKey(instance));
+  }
+
+  /**
+   * Returns the classes which have more instances or a larger retained size in the later capture.
+   */
+  @NotNull
+  public List<ClassDelta> getGrowth() {
+    List<ClassDelta> growth = new ArrayList<>();
+    for (ClassDelta delta : myDeltas.values()) {
+      if (delta.getInstanceCountDelta() > 0 || delta.getRetainedSizeDelta() > 0) {
+        growth.add(delta);
+      }
+    }
+    return growth;
+  }
+
+  /**
+   * Totals of the instances of one class, allocated at one site, in one heap, in both captures.
+   */
+  public static final class ClassDelta {
+    private final int myHeapId;
+    @NotNull private final ClassDb.ClassEntry myClassEntry;
+    @Nullable private final AllocationStack myAllocationStack;
+
+    private int myInstanceCountBefore;
+    private int myInstanceCountAfter;
+    private long myShallowSizeBefore;
+    private long myShallowSizeAfter;
+    private long myRetainedSizeBefore;
+    private long myRetainedSizeAfter;
+
+    private ClassDelta(int heapId, @NotNull ClassDb.ClassEntry classEntry, @Nullable AllocationStack allocationStack) {
+      myHeapId = heapId;
+      myClassEntry = classEntry;
+      myAllocationStack = allocationStack;
+    }
+
+    private void addBefore(@NotNull InstanceObject instance) {
+      myInstanceCountBefore++;
+      myShallowSizeBefore += validOrZero(instance.getShallowSize());
+      myRetainedSizeBefore += validOrZero(instance.getRetainedSize());
+    }
+
+    private void addAfter(@NotNull InstanceObject instance) {
+      myInstanceCountAfter++;
+      myShallowSizeAfter += validOrZero(instance.getShallowSize());
+      myRetainedSizeAfter += validOrZero(instance.getRetainedSize());
+    }
+
+    private static long validOrZero(long size) {
+      return size == MemoryObject.INVALID_VALUE ? 0 : size;
+    }
+
+    private boolean hasChanged() {
+      return myInstanceCountBefore != myInstanceCountAfter
+             || myShallowSizeBefore != myShallowSizeAfter
+             || myRetainedSizeBefore != myRetainedSizeAfter;
+    }
+
+    public int getHeapId() {
+      return myHeapId;
+    }
+
+    @NotNull
+    public ClassDb.ClassEntry getClassEntry() {
+      return myClassEntry;
+    }
+
+    @Nullable
+    public AllocationStack getAllocationStack() {
+      return myAllocationStack;
+    }
+
+    public int getInstanceCountBefore() {
+      return myInstanceCountBefore;
+    }
+
+    public int getInstanceCountAfter() {
+      return myInstanceCountAfter;
+    }
+
+    public int getInstanceCountDelta() {
+      return myInstanceCountAfter - myInstanceCountBefore;
+    }
+
+    public long getShallowSizeDelta() {
+      return myShallowSizeAfter - myShallowSizeBefore;
+    }
+
+    public long getRetainedSizeDelta() {
+      return myRetainedSizeAfter - myRetainedSizeBefore;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %+d instances, %+d bytes shallow, %+d bytes retained", myClassEntry.getClassName(),
+                           getInstanceCountDelta(), getShallowSizeDelta(), getRetainedSizeDelta());
+    }
+  }
+
+  private static final class Key {
+    private final int myHeapId;
+    @NotNull private final String myClassName;
+    @Nullable private final AllocationStack myAllocationStack;
+
+    private Key(int heapId, @NotNull String className, @Nullable AllocationStack allocationStack) {
+      myHeapId = heapId;
+      myClassName = className;
+      myAllocationStack = allocationStack;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key)obj;
+      return myHeapId == other.myHeapId
+             && myClassName.equals(other.myClassName)
+             && Objects.equals(myAllocationStack, other.myAllocationStack);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(myHeapId, myClassName, myAllocationStack);
+    }
+  }
+}
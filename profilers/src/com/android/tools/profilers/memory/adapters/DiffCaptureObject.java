@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import com.android.tools.adtui.model.Range;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import sun.reflect.generics.reflectiveObjects.NotImplementedException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.android.tools.profilers.memory.adapters.CaptureObject.ClassifierAttribute.*;
+
+/**
+ * Shows what changed between two captures, typically two heap dumps of the same process. Only the instances of the classes that
+ * changed according to {@link CaptureDiff} are listed. The instances of the later capture are added as allocations and the ones of
+ * the earlier capture as deallocations, so the total count and sizes of each {@link ClassifierSet} are the deltas between the two
+ * captures.
+ */
+public class DiffCaptureObject implements CaptureObject {
+  @NotNull private final CaptureObject myBefore;
+  @NotNull private final CaptureObject myAfter;
+  @NotNull private final Map<Integer, HeapSet> myHeapSets = new HashMap<>();
+
+  @Nullable private volatile CaptureDiff myDiff;
+  private volatile boolean myIsLoadingError = false;
+
+  public DiffCaptureObject(@NotNull CaptureObject before, @NotNull CaptureObject after) {
+    myBefore = before;
+    myAfter = after;
+  }
+
+  @NotNull
+  @Override
+  public String getName() {
+    return "Capture Diff";
+  }
+
+  @Nullable
+  @Override
+  public String getExportableExtension() {
+    return null;
+  }
+
+  @Override
+  public void saveToFile(@NotNull OutputStream outputStream) throws IOException {
+    throw new NotImplementedException();
+  }
+
+  @NotNull
+  public CaptureObject getBefore() {
+    return myBefore;
+  }
+
+  @NotNull
+  public CaptureObject getAfter() {
+    return myAfter;
+  }
+
+  /**
+   * Returns the per-class deltas, or null if the captures are not loaded yet.
+   */
+  @Nullable
+  public CaptureDiff getDiff() {
+    return myDiff;
+  }
+
+  @NotNull
+  @Override
+  public List<ClassifierAttribute> getClassifierAttributes() {
+    return Arrays.asList(LABEL, ALLOCATIONS, DEALLOCATIONS, TOTAL_COUNT, SHALLOW_SIZE, RETAINED_SIZE);
+  }
+
+  @NotNull
+  @Override
+  public List<InstanceAttribute> getInstanceAttributes() {
+    return Arrays
+      .asList(InstanceAttribute.LABEL, InstanceAttribute.DEPTH, InstanceAttribute.SHALLOW_SIZE, InstanceAttribute.RETAINED_SIZE);
+  }
+
+  @NotNull
+  @Override
+  public Collection<HeapSet> getHeapSets() {
+    if (myDiff == null) {
+      return Collections.emptyList();
+    }
+    return myHeapSets.values();
+  }
+
+  @Nullable
+  @Override
+  public HeapSet getHeapSet(int heapId) {
+    return myHeapSets.getOrDefault(heapId, null);
+  }
+
+  @NotNull
+  @Override
+  public Stream<InstanceObject> getInstances() {
+    return getHeapSets().stream().map(ClassifierSet::getInstancesStream).flatMap(Function.identity());
+  }
+
+  @Override
+  public long getStartTimeNs() {
+    return myBefore.getStartTimeNs();
+  }
+
+  @Override
+  public long getEndTimeNs() {
+    return myAfter.getEndTimeNs();
+  }
+
+  @Override
+  public boolean load(@Nullable Range queryRange, @Nullable Executor queryJoiner) {
+    if (!loadCapture(myBefore) || !loadCapture(myAfter)) {
+      myIsLoadingError = true;
+      return false;
+    }
+
+    CaptureDiff diff = CaptureDiff.compute(myBefore, myAfter);
+    Map<Integer, HeapSet> heapSets = new HashMap<>();
+    for (HeapSet heapSet : myBefore.getHeapSets()) {
+      heapSets.put(heapSet.getId(), new HeapSet(this, heapSet.getName(), heapSet.getId()));
+    }
+    for (HeapSet heapSet : myAfter.getHeapSets()) {
+      heapSets.put(heapSet.getId(), new HeapSet(this, heapSet.getName(), heapSet.getId()));
+    }
+
+    myBefore.getInstances().filter(instance -> diff.getDelta(instance) != null)
+      .forEach(instance -> heapSets.get(instance.getHeapId()).freeDeltaInstanceObject(instance));
+    myAfter.getInstances().filter(instance -> diff.getDelta(instance) != null)
+      .forEach(instance -> heapSets.get(instance.getHeapId()).addDeltaInstanceObject(instance));
+
+    myHeapSets.putAll(heapSets);
+    myDiff = diff;
+    return true;
+  }
+
+  private static boolean loadCapture(@NotNull CaptureObject captureObject) {
+    if (captureObject.isDoneLoading()) {
+      return !captureObject.isError();
+    }
+    return captureObject.load(null, null);
+  }
+
+  @Override
+  public boolean isDoneLoading() {
+    return myDiff != null || myIsLoadingError;
+  }
+
+  @Override
+  public boolean isError() {
+    return myIsLoadingError;
+  }
+
+  @Override
+  public void unload() {
+    myBefore.unload();
+    myAfter.unload();
+  }
+}
@@ -16,6 +16,8 @@
 package com.android.tools.profilers.memory.adapters;
 
 import com.android.tools.adtui.model.Range;
+import com.android.tools.perflib.captures.DataBuffer;
+import com.android.tools.perflib.captures.MemoryMappedFileBuffer;
 import com.android.tools.perflib.heap.ClassObj;
 import com.android.tools.perflib.heap.Heap;
 import com.android.tools.perflib.heap.Instance;
@@ -30,9 +32,13 @@ import com.android.tools.profiler.proto.MemoryServiceGrpc.MemoryServiceBlockingS
 import com.android.tools.profilers.analytics.FeatureTracker;
 import com.android.tools.proguard.ProguardMap;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.ByteString;
+import com.intellij.openapi.diagnostic.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.*;
@@ -44,6 +50,12 @@ import static com.android.tools.profilers.memory.adapters.CaptureObject.Classifi
 
 public class HeapDumpCaptureObject implements CaptureObject {
 
+  /**
+   * Dumps larger than this are written to a temporary file and memory-mapped instead of being parsed from the response,
+   * so that the IDE does not hold on to the raw dump while the {@link Snapshot} is built.
+   */
+  private static final long DEFAULT_SPILL_TO_DISK_THRESHOLD_BYTES = 16 * 1024 * 1024;
+
   @NotNull
   private final MemoryServiceBlockingStub myClient;
 
@@ -74,10 +86,23 @@ public class HeapDumpCaptureObject implements CaptureObject {
   @Nullable
   private volatile Snapshot mySnapshot;
 
+  /**
+   * The temporary file a large dump is spilled to. It is memory-mapped by {@link #mySnapshot} and deleted on {@link #unload()}.
+   */
+  @Nullable
+  private File myDumpFile;
+
   private volatile boolean myIsLoadingError = false;
 
   private boolean myHasNativeAllocations;
 
+  private long mySpillToDiskThresholdBytes = DEFAULT_SPILL_TO_DISK_THRESHOLD_BYTES;
+
+  @NotNull
+  private static Logger getLogger() {
+    return Logger.getInstance(HeapDumpCaptureObject.class);
+  }
+
   public HeapDumpCaptureObject(@NotNull MemoryServiceBlockingStub client,
                                @NotNull Common.Session session,
                                @NotNull HeapDumpInfo heapDumpInfo,
@@ -120,6 +145,11 @@ public class HeapDumpCaptureObject implements CaptureObject {
     }
   }
 
+  @VisibleForTesting
+  void setSpillToDiskThresholdBytes(long spillToDiskThresholdBytes) {
+    mySpillToDiskThresholdBytes = spillToDiskThresholdBytes;
+  }
+
   @VisibleForTesting
   @NotNull
   ClassDb getClassDb() {
@@ -192,7 +222,9 @@ public class HeapDumpCaptureObject implements CaptureObject {
       return false;
     }
 
-    InMemoryBuffer buffer = new InMemoryBuffer(response.getData().asReadOnlyByteBuffer());
+    DataBuffer buffer = createBuffer(response.getData());
+    // Let go of the response so that a spilled dump can be collected while the snapshot is built.
+    response = null;
     Snapshot snapshot;
     NativeRegistryPostProcessor nativeRegistryPostProcessor = new NativeRegistryPostProcessor();
     if (myProguardMap != null) {
@@ -256,6 +288,31 @@ public class HeapDumpCaptureObject implements CaptureObject {
     return true;
   }
 
+  /**
+   * Returns a buffer over the dump. Large dumps are streamed to a temporary file which is memory-mapped, so that the dump
+   * lives outside of the Java heap. If the file cannot be written, the dump is read from memory instead.
+   */
+  @NotNull
+  private DataBuffer createBuffer(@NotNull ByteString data) {
+    if (data.size() > mySpillToDiskThresholdBytes) {
+      File file = null;
+      try {
+        file = File.createTempFile("heapdump", ".hprof");
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+          data.writeTo(outputStream);
+        }
+        DataBuffer buffer = new MemoryMappedFileBuffer(file);
+        myDumpFile = file;
+        return buffer;
+      }
+      catch (IOException e) {
+        getLogger().warn("Could not spill heap dump to disk, reading it from memory instead", e);
+        deleteFile(file);
+      }
+    }
+    return new InMemoryBuffer(data.asReadOnlyByteBuffer());
+  }
+
   @Override
   public boolean isDoneLoading() {
     return mySnapshot != null || myIsLoadingError;
@@ -268,7 +325,31 @@ public class HeapDumpCaptureObject implements CaptureObject {
 
   @Override
   public void unload() {
+    Snapshot snapshot = mySnapshot;
+    mySnapshot = null;
+    if (snapshot != null) {
+      // Also unmaps the spilled dump, if any, so that its file can be deleted.
+      snapshot.dispose();
+    }
+    myHeapSets.clear();
+    myClassObjectIndex.clear();
+    myInstanceIndex.clear();
+    myClassDb.clear();
 
+    deleteFile(myDumpFile);
+    myDumpFile = null;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  File getDumpFile() {
+    return myDumpFile;
+  }
+
+  private static void deleteFile(@Nullable File file) {
+    if (file != null && !file.delete()) {
+      file.deleteOnExit();
+    }
   }
 
   @NotNull
@@ -276,6 +276,55 @@ public class MemoryProfilerStageTest extends MemoryProfilerTestBase {
     assertThat((long)selectionRange.getMax()).isEqualTo(endTimeUs);
   }
 
+  @Test
+  public void testSelectCaptureDiff() throws Exception {
+    FakeCaptureObject before = new FakeCaptureObject.Builder().setStartTime(TimeUnit.MICROSECONDS.toNanos(5))
+      .setEndTime(TimeUnit.MICROSECONDS.toNanos(6)).build();
+    before.addInstanceObjects(ImmutableSet.of(
+      new FakeInstanceObject.Builder(before, "Leaky").setName("leaky0").setShallowSize(16).setRetainedSize(100).build(),
+      new FakeInstanceObject.Builder(before, "Stable").setName("stable0").setShallowSize(8).setRetainedSize(8).build()));
+    FakeCaptureObject after = new FakeCaptureObject.Builder().setStartTime(TimeUnit.MICROSECONDS.toNanos(10))
+      .setEndTime(TimeUnit.MICROSECONDS.toNanos(11)).build();
+    after.addInstanceObjects(ImmutableSet.of(
+      new FakeInstanceObject.Builder(after, "Leaky").setName("leaky0").setShallowSize(16).setRetainedSize(100).build(),
+      new FakeInstanceObject.Builder(after, "Leaky").setName("leaky1").setShallowSize(16).setRetainedSize(300).build(),
+      new FakeInstanceObject.Builder(after, "Stable").setName("stable0").setShallowSize(8).setRetainedSize(8).build()));
+
+    myStage.selectCaptureDiff(new CaptureDurationData<>(1, false, false, new CaptureEntry<CaptureObject>(new Object(), () -> before)),
+                              new CaptureDurationData<>(1, false, false, new CaptureEntry<CaptureObject>(new Object(), () -> after)),
+                              null);
+    myMockLoader.runTask();
+
+    assertThat(myStage.getSelectedCapture()).isInstanceOf(DiffCaptureObject.class);
+    Range selectionRange = myStage.getStudioProfilers().getTimeline().getSelectionRange();
+    assertThat((long)selectionRange.getMin()).isEqualTo(5);
+    assertThat((long)selectionRange.getMax()).isEqualTo(11);
+
+    // Only the classes that changed are listed, and their totals are the deltas between the captures.
+    HeapSet heapSet = myStage.getSelectedHeapSet();
+    assertThat(heapSet).isNotNull();
+    assertThat(heapSet.getChildrenClassifierSets()).hasSize(1);
+    ClassSet leaky = (ClassSet)heapSet.getChildrenClassifierSets().get(0);
+    assertThat(leaky.getClassEntry().getClassName()).isEqualTo("Leaky");
+    assertThat(leaky.getDeltaAllocationCount()).isEqualTo(2);
+    assertThat(leaky.getDeltaDeallocationCount()).isEqualTo(1);
+    assertThat(leaky.getTotalObjectCount()).isEqualTo(1);
+    assertThat(leaky.getTotalShallowSize()).isEqualTo(16);
+    assertThat(leaky.getTotalRetainedSize()).isEqualTo(300);
+  }
+
+  @Test
+  public void testOngoingCaptureCannotBeDiffed() throws Exception {
+    FakeCaptureObject before = new FakeCaptureObject.Builder().build();
+    FakeCaptureObject after = new FakeCaptureObject.Builder().build();
+
+    myStage.selectCaptureDiff(new CaptureDurationData<>(1, false, false, new CaptureEntry<CaptureObject>(new Object(), () -> before)),
+                              new CaptureDurationData<>(Long.MAX_VALUE, false, false,
+                                                        new CaptureEntry<CaptureObject>(new Object(), () -> after)),
+                              null);
+    assertThat(myStage.getSelectedCapture()).isNull();
+  }
+
   @Test
   public void testMemoryObjectSelection() throws ExecutionException, InterruptedException {
     final String dummyClassName = "DUMMY_CLASS1";
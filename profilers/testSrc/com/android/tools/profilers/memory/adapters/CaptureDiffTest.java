@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CaptureDiffTest {
+  @Test
+  public void testDeltasPerClass() {
+    FakeCaptureObject before = new FakeCaptureObject.Builder().build();
+    before.addInstanceObjects(ImmutableSet.of(
+      new FakeInstanceObject.Builder(before, "Leaky").setName("leaky0").setShallowSize(16).setRetainedSize(100).build(),
+      new FakeInstanceObject.Builder(before, "Stable").setName("stable0").setShallowSize(8).setRetainedSize(8).build(),
+      new FakeInstanceObject.Builder(before, "Gone").setName("gone0").setShallowSize(4).setRetainedSize(4).build()));
+
+    FakeCaptureObject after = new FakeCaptureObject.Builder().build();
+    after.addInstanceObjects(ImmutableSet.of(
+      new FakeInstanceObject.Builder(after, "Leaky").setName("leaky0").setShallowSize(16).setRetainedSize(100).build(),
+      new FakeInstanceObject.Builder(after, "Leaky").setName("leaky1").setShallowSize(16).setRetainedSize(300).build(),
+      new FakeInstanceObject.Builder(after, "Stable").setName("stable0").setShallowSize(8).setRetainedSize(8).build()));
+
+    CaptureDiff diff = CaptureDiff.compute(before, after);
+    List<CaptureDiff.ClassDelta> deltas = diff.getDeltas();
+    // Unchanged classes are left out, and the largest growth comes first.
+    assertEquals(2, deltas.size());
+
+    CaptureDiff.ClassDelta leaky = deltas.get(0);
+    assertEquals("Leaky", leaky.getClassEntry().getClassName());
+    assertEquals(1, leaky.getInstanceCountBefore());
+    assertEquals(2, leaky.getInstanceCountAfter());
+    assertEquals(1, leaky.getInstanceCountDelta());
+    assertEquals(16, leaky.getShallowSizeDelta());
+    assertEquals(300, leaky.getRetainedSizeDelta());
+
+    CaptureDiff.ClassDelta gone = deltas.get(1);
+    assertEquals("Gone", gone.getClassEntry().getClassName());
+    assertEquals(-1, gone.getInstanceCountDelta());
+    assertEquals(-4, gone.getRetainedSizeDelta());
+
+    assertEquals(1, diff.getGrowth().size());
+    assertTrue(diff.getGrowth().contains(leaky));
+  }
+
+  @Test
+  public void testDeltaOfInstance() {
+    FakeCaptureObject before = new FakeCaptureObject.Builder().build();
+    InstanceObject stableBefore = new FakeInstanceObject.Builder(before, "Stable").setName("stable0").setShallowSize(8).build();
+    InstanceObject goneBefore = new FakeInstanceObject.Builder(before, "Gone").setName("gone0").setShallowSize(4).build();
+    before.addInstanceObjects(ImmutableSet.of(stableBefore, goneBefore));
+
+    FakeCaptureObject after = new FakeCaptureObject.Builder().build();
+    InstanceObject stableAfter = new FakeInstanceObject.Builder(after, "Stable").setName("stable0").setShallowSize(8).build();
+    after.addInstanceObjects(ImmutableSet.of(stableAfter));
+
+    CaptureDiff diff = CaptureDiff.compute(before, after);
+    assertNull(diff.getDelta(stableBefore));
+    assertNull(diff.getDelta(stableAfter));
+    CaptureDiff.ClassDelta gone = diff.getDelta(goneBefore);
+    assertNotNull(gone);
+    assertEquals(-1, gone.getInstanceCountDelta());
+    assertEquals(-4, gone.getShallowSizeDelta());
+  }
+}
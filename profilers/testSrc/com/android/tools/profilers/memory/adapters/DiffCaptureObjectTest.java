@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.profilers.memory.adapters;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DiffCaptureObjectTest {
+  @Test
+  public void testChangedClassesAreListedPerHeap() {
+    ImmutableMap<Integer, String> heaps = ImmutableMap.of(0, "default", 1, "app");
+    FakeCaptureObject before = new FakeCaptureObject.Builder().setHeapIdToNameMap(heaps).setStartTime(1).setEndTime(2).build();
+    InstanceObject leakyBefore =
+      new FakeInstanceObject.Builder(before, "Leaky").setName("leaky0").setHeapId(1).setShallowSize(16).setRetainedSize(100).build();
+    InstanceObject goneBefore =
+      new FakeInstanceObject.Builder(before, "Gone").setName("gone0").setHeapId(1).setShallowSize(4).setRetainedSize(4).build();
+    before.addInstanceObjects(ImmutableSet.of(
+      leakyBefore,
+      goneBefore,
+      new FakeInstanceObject.Builder(before, "Stable").setName("stable0").setShallowSize(8).setRetainedSize(8).build()));
+
+    FakeCaptureObject after = new FakeCaptureObject.Builder().setHeapIdToNameMap(heaps).setStartTime(3).setEndTime(4).build();
+    InstanceObject leakyAfter0 =
+      new FakeInstanceObject.Builder(after, "Leaky").setName("leaky0").setHeapId(1).setShallowSize(16).setRetainedSize(100).build();
+    InstanceObject leakyAfter1 =
+      new FakeInstanceObject.Builder(after, "Leaky").setName("leaky1").setHeapId(1).setShallowSize(16).setRetainedSize(300).build();
+    after.addInstanceObjects(ImmutableSet.of(
+      leakyAfter0,
+      leakyAfter1,
+      new FakeInstanceObject.Builder(after, "Stable").setName("stable0").setShallowSize(8).setRetainedSize(8).build()));
+
+    DiffCaptureObject diff = new DiffCaptureObject(before, after);
+    assertThat(diff.isDoneLoading()).isFalse();
+    assertThat(diff.getHeapSets()).isEmpty();
+    assertThat(diff.load(null, null)).isTrue();
+    assertThat(diff.isDoneLoading()).isTrue();
+    assertThat(diff.isError()).isFalse();
+    assertThat(diff.getStartTimeNs()).isEqualTo(1);
+    assertThat(diff.getEndTimeNs()).isEqualTo(4);
+    assertThat(diff.getDiff()).isNotNull();
+    assertThat(diff.getDiff().getDeltas()).hasSize(2);
+
+    // Heaps without changes are kept, so that the same heaps can be selected as in the compared captures.
+    HeapSet defaultHeap = diff.getHeapSet(0);
+    assertThat(defaultHeap).isNotNull();
+    assertThat(defaultHeap.getName()).isEqualTo("default");
+    assertThat(defaultHeap.isEmpty()).isTrue();
+
+    HeapSet appHeap = diff.getHeapSet(1);
+    assertThat(appHeap).isNotNull();
+    assertThat(appHeap.getName()).isEqualTo("app");
+    assertThat(appHeap.getDeltaAllocationCount()).isEqualTo(2);
+    assertThat(appHeap.getDeltaDeallocationCount()).isEqualTo(2);
+    assertThat(appHeap.getTotalObjectCount()).isEqualTo(0);
+    assertThat(appHeap.getTotalShallowSize()).isEqualTo(12);
+    assertThat(appHeap.getTotalRetainedSize()).isEqualTo(296);
+    assertThat(diff.getInstances().collect(Collectors.toSet()))
+      .containsExactly(leakyBefore, goneBefore, leakyAfter0, leakyAfter1);
+  }
+
+  @Test
+  public void testCaptureLoadingFailure() {
+    FakeCaptureObject before = new FakeCaptureObject.Builder().build();
+    FakeCaptureObject after = new FakeCaptureObject.Builder().setDoneLoading(false).setLoadSuccessful(false).build();
+
+    DiffCaptureObject diff = new DiffCaptureObject(before, after);
+    assertThat(diff.load(null, null)).isFalse();
+    assertThat(diff.isDoneLoading()).isTrue();
+    assertThat(diff.isError()).isTrue();
+    assertThat(diff.getDiff()).isNull();
+    assertThat(diff.getHeapSets()).isEmpty();
+  }
+}
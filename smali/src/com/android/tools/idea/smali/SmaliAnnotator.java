@@ -18,13 +18,13 @@ package com.android.tools.idea.smali;
 import com.android.tools.idea.smali.psi.SmaliAccessModifier;
 import com.android.tools.idea.smali.psi.SmaliFieldName;
 import com.android.tools.idea.smali.psi.SmaliFieldSpec;
-import com.intellij.lang.ASTNode;
 import com.intellij.lang.annotation.Annotation;
 import com.intellij.lang.annotation.AnnotationHolder;
 import com.intellij.lang.annotation.Annotator;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.impl.source.tree.LeafPsiElement;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
 import java.util.HashSet;
@@ -33,26 +33,22 @@ import java.util.Set;
 
 import static com.android.tools.idea.smali.SmaliHighlighterColors.*;
 import static com.android.tools.idea.smali.psi.SmaliTypes.IDENTIFIER;
-import static com.intellij.psi.util.PsiTreeUtil.findFirstParent;
 
 public class SmaliAnnotator implements Annotator {
   @Override
   public void annotate(@NotNull PsiElement element, @NotNull AnnotationHolder holder) {
-    //System.out.println(element);
-    if (element instanceof LeafPsiElement) {
-      ASTNode node = element.getNode();
-      if (node.getElementType().equals(IDENTIFIER)) {
-        PsiElement fieldNameElement = findFirstParent(element, element1 -> element1 instanceof SmaliFieldName);
-        if (fieldNameElement != null) {
-          // This identifier is the name of the field.
-          annotateFieldName(element, holder);
-        }
+    // Only field names are annotated. The name is the only child of a SmaliFieldName, itself a direct child of the SmaliFieldSpec,
+    // so check the immediate parents instead of walking up the tree for every identifier of every method body.
+    if (element instanceof LeafPsiElement && element.getNode().getElementType() == IDENTIFIER) {
+      PsiElement parent = element.getParent();
+      if (parent instanceof SmaliFieldName) {
+        annotateFieldName(element, parent.getParent(), holder);
       }
     }
   }
 
-  private static void annotateFieldName(@NotNull PsiElement element, @NotNull AnnotationHolder holder) {
-    PsiElement fieldSpecElement = findFirstParent(element, element1 -> element1 instanceof SmaliFieldSpec);
+  private static void annotateFieldName(@NotNull PsiElement element, @Nullable PsiElement fieldSpecElement,
+                                        @NotNull AnnotationHolder holder) {
     if (fieldSpecElement instanceof SmaliFieldSpec) {
       Annotation annotation = holder.createInfoAnnotation(element, null);
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.tools.idea.smali;
+
+import com.android.tools.idea.smali.psi.*;
+import com.intellij.ide.structureView.StructureViewBuilder;
+import com.intellij.ide.structureView.StructureViewModel;
+import com.intellij.ide.structureView.StructureViewModelBase;
+import com.intellij.ide.structureView.StructureViewTreeElement;
+import com.intellij.ide.structureView.TreeBasedStructureViewBuilder;
+import com.intellij.ide.structureView.impl.common.PsiTreeElementBase;
+import com.intellij.lang.PsiStructureViewFactory;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Structure view of smali files, listing the fields and methods of the class. It is built from
+ * {@link SmaliFile#getDeclarations()}, so it does not walk the method bodies of large baksmali output.
+ */
+public class SmaliStructureViewFactory implements PsiStructureViewFactory {
+  @Nullable
+  @Override
+  public StructureViewBuilder getStructureViewBuilder(@NotNull PsiFile psiFile) {
+    if (!(psiFile instanceof SmaliFile)) {
+      return null;
+    }
+    SmaliFile smaliFile = (SmaliFile)psiFile;
+    return new TreeBasedStructureViewBuilder() {
+      @NotNull
+      @Override
+      public StructureViewModel createStructureViewModel(@Nullable Editor editor) {
+        return new StructureViewModelBase(smaliFile, editor, new Root(smaliFile))
+          .withSuitableClasses(SmaliFieldSpec.class, SmaliMethodSpec.class);
+      }
+    };
+  }
+
+  private static class Root extends PsiTreeElementBase<SmaliFile> {
+    Root(@NotNull SmaliFile file) {
+      super(file);
+    }
+
+    @NotNull
+    @Override
+    public Collection<StructureViewTreeElement> getChildrenBase() {
+      SmaliFile file = getElement();
+      if (file == null) {
+        return Collections.emptyList();
+      }
+      SmaliFile.Declarations declarations = file.getDeclarations();
+      List<StructureViewTreeElement> result = new ArrayList<>();
+      for (SmaliFieldSpec fieldSpec : declarations.getFieldSpecs()) {
+        result.add(new Leaf(fieldSpec, getFieldText(fieldSpec)));
+      }
+      for (SmaliMethodSpec methodSpec : declarations.getMethodSpecs()) {
+        result.add(new Leaf(methodSpec, getMethodText(methodSpec)));
+      }
+      return result;
+    }
+
+    @Nullable
+    @Override
+    public String getPresentableText() {
+      SmaliFile file = getElement();
+      if (file == null) {
+        return null;
+      }
+      SmaliClassSpec classSpec = file.getDeclarations().getClassSpec();
+      SmaliClassName className = classSpec != null ? classSpec.getClassName() : null;
+      return className != null ? className.getJavaClassName() : file.getName();
+    }
+
+    @NotNull
+    private static String getFieldText(@NotNull SmaliFieldSpec fieldSpec) {
+      SmaliFieldName fieldName = fieldSpec.getFieldName();
+      String name = fieldName != null ? fieldName.getText() : "";
+      SmaliClassName className = fieldSpec.getClassName();
+      if (className != null) {
+        return name + ": " + className.getJavaClassName();
+      }
+      SmaliPrimitiveType primitiveType = fieldSpec.getPrimitiveType();
+      return primitiveType != null ? name + ": " + primitiveType.getText() : name;
+    }
+
+    @NotNull
+    private static String getMethodText(@NotNull SmaliMethodSpec methodSpec) {
+      SmaliMethodStart methodStart = methodSpec.getMethodStart();
+      return methodStart != null ? methodStart.getText() : "";
+    }
+  }
+
+  private static class Leaf extends PsiTreeElementBase<PsiElement> {
+    @NotNull private final String myText;
+
+    Leaf(@NotNull PsiElement element, @NotNull String text) {
+      super(element);
+      myText = text;
+    }
+
+    @NotNull
+    @Override
+    public Collection<StructureViewTreeElement> getChildrenBase() {
+      return Collections.emptyList();
+    }
+
+    @NotNull
+    @Override
+    public String getPresentableText() {
+      return myText;
+    }
+  }
+}
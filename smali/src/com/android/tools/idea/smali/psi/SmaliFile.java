@@ -21,9 +21,16 @@ import com.android.tools.idea.smali.SmaliLanguage;
 import com.intellij.extapi.psi.PsiFileBase;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.psi.FileViewProvider;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class SmaliFile extends PsiFileBase {
   public SmaliFile(@NotNull FileViewProvider viewProvider) {
@@ -36,6 +43,15 @@ public class SmaliFile extends PsiFileBase {
     return SmaliFileType.getInstance();
   }
 
+  /**
+   * Returns the class, field and method declarations of this file. Only the top-level elements of the file are visited, so
+   * method bodies are never walked, and the result is cached until the file changes.
+   */
+  @NotNull
+  public Declarations getDeclarations() {
+    return CachedValuesManager.getCachedValue(this, () -> CachedValueProvider.Result.create(new Declarations(this), this));
+  }
+
   @Override
   public String toString() {
     return "Smali File";
@@ -45,4 +61,45 @@ public class SmaliFile extends PsiFileBase {
   public Icon getIcon(int flags) {
     return SmaliIcons.SmaliFile;
   }
+
+  public static final class Declarations {
+    @Nullable private final SmaliClassSpec myClassSpec;
+    @NotNull private final List<SmaliFieldSpec> myFieldSpecs;
+    @NotNull private final List<SmaliMethodSpec> myMethodSpecs;
+
+    private Declarations(@NotNull SmaliFile file) {
+      SmaliClassSpec classSpec = null;
+      List<SmaliFieldSpec> fieldSpecs = new ArrayList<>();
+      List<SmaliMethodSpec> methodSpecs = new ArrayList<>();
+      for (PsiElement child = file.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child instanceof SmaliClassSpec && classSpec == null) {
+          classSpec = (SmaliClassSpec)child;
+        }
+        else if (child instanceof SmaliFieldSpec) {
+          fieldSpecs.add((SmaliFieldSpec)child);
+        }
+        else if (child instanceof SmaliMethodSpec) {
+          methodSpecs.add((SmaliMethodSpec)child);
+        }
+      }
+      myClassSpec = classSpec;
+      myFieldSpecs = Collections.unmodifiableList(fieldSpecs);
+      myMethodSpecs = Collections.unmodifiableList(methodSpecs);
+    }
+
+    @Nullable
+    public SmaliClassSpec getClassSpec() {
+      return myClassSpec;
+    }
+
+    @NotNull
+    public List<SmaliFieldSpec> getFieldSpecs() {
+      return myFieldSpecs;
+    }
+
+    @NotNull
+    public List<SmaliMethodSpec> getMethodSpecs() {
+      return myMethodSpecs;
+    }
+  }
 }
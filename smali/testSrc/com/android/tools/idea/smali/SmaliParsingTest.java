@@ -17,13 +17,16 @@ package com.android.tools.idea.smali;
 
 import com.android.tools.idea.smali.psi.SmaliClassName;
 import com.android.tools.idea.smali.psi.SmaliClassSpec;
+import com.android.tools.idea.smali.psi.SmaliFieldSpec;
 import com.android.tools.idea.smali.psi.SmaliFile;
+import com.android.tools.idea.smali.psi.SmaliMethodSpec;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiFileFactory;
 import com.intellij.testFramework.IdeaTestCase;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
+import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.intellij.psi.util.PsiTreeUtil.findChildrenOfType;
@@ -46,6 +49,40 @@ public class SmaliParsingTest extends IdeaTestCase {
     assertEquals("com.example.SanAngeles.TestClass", className.getJavaClassName());
   }
 
+  public void testDeclarations() {
+    String text = ".class public Lcom/example/SanAngeles/TestClass;\n" +
+                  ".super Ljava/lang/Object;\n" +
+                  ".field private static final TAG:Ljava/lang/String; = \"TestClass\"\n" +
+                  ".field private mCount:I\n" +
+                  ".method public constructor <init>()V\n" +
+                  "    .registers 1\n" +
+                  "    invoke-direct {p0}, Ljava/lang/Object;-><init>()V\n" +
+                  "    return-void\n" +
+                  ".end method\n" +
+                  ".method public getCount()I\n" +
+                  "    .registers 2\n" +
+                  "    iget v0, p0, Lcom/example/SanAngeles/TestClass;->mCount:I\n" +
+                  "    return v0\n" +
+                  ".end method\n";
+    SmaliFile smaliFile = parse(text);
+
+    SmaliFile.Declarations declarations = smaliFile.getDeclarations();
+    assertSame(declarations, smaliFile.getDeclarations());
+
+    SmaliClassSpec classSpec = declarations.getClassSpec();
+    assertNotNull(classSpec);
+    assertEquals("com.example.SanAngeles.TestClass", classSpec.getClassName().getJavaClassName());
+
+    List<SmaliFieldSpec> fieldSpecs = declarations.getFieldSpecs();
+    assertThat(fieldSpecs).hasSize(2);
+    assertEquals("TAG", fieldSpecs.get(0).getFieldName().getText());
+    assertEquals("mCount", fieldSpecs.get(1).getFieldName().getText());
+
+    List<SmaliMethodSpec> methodSpecs = declarations.getMethodSpecs();
+    assertThat(methodSpecs).hasSize(2);
+    assertEquals("getCount", methodSpecs.get(1).getMethodStart().getRegularMethodStart().getIdentifier().getText());
+  }
+
   @NotNull
   private SmaliFile parse(@NotNull String text) {
     PsiFile psiFile = PsiFileFactory.getInstance(getProject()).createFileFromText(SmaliLanguage.getInstance(), text);